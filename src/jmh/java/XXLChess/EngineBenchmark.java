@@ -0,0 +1,97 @@
+package XXLChess;
+
+import java.io.File;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks of the engine hot paths on a few fixture layouts, with white to move.
+ * Run them with "gradle jmh"; the gc profiler adds the allocation rate and bytes/op of each benchmark.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class EngineBenchmark {
+    @Param({"level1.txt", "testcases/checkmate/level_checkmate.txt", "testcases/castling/castling.txt"})
+    public String layout;
+
+    private String layoutPath;
+    private Game game;
+    private PlayerAgent player;
+    private Set<Movement> legalMovements;
+    private Movement firstMove;
+    private Position position;
+    private final MoveGenerator generator = new MoveGenerator();
+    private final MoveList moveList = new MoveList();
+
+    @Setup
+    public void setup() throws Exception {
+        layoutPath = new File(System.getProperty("xxlchess.root", "."), layout).getPath();
+        game = loadGame();
+        player = game.getCurrentPlayer();
+        // The bot's search would otherwise use its share of the clock; one frame keeps each decision comparable
+        game.getBotAgent().setStrategy(new AlphaBetaStrategy(AlphaBetaStrategy.FRAME_MILLIS));
+        legalMovements = game.getAllLegalMovements(player);
+        firstMove = game.getSafeMovements(legalMovements).iterator().next();
+        position = game.getPosition();
+    }
+
+    // Creates a game holding the fixture layout, with the clocks of the default config
+    private Game loadGame() throws Exception {
+        Game loaded = new Game(true, 180, 180, 2, 2, 0, 0);
+        loaded.loadLevel(layoutPath);
+        return loaded;
+    }
+
+    @Benchmark
+    public Set<Movement> getAllLegalMovements() {
+        return game.getAllLegalMovements(player);
+    }
+
+    // The encoded moves of the search, which should allocate nothing
+    @Benchmark
+    public int generateMoves() {
+        return generator.generate(position, moveList);
+    }
+
+    @Benchmark
+    public Set<Movement> getSafeMovements() {
+        return game.getSafeMovements(legalMovements);
+    }
+
+    @Benchmark
+    public Set<Piece> predictThreats() {
+        return game.predictThreats(player.getOpponent(), firstMove, player.getKing());
+    }
+
+    @Benchmark
+    public Board cloneBoard() {
+        return game.getBoard().clone();
+    }
+
+    @Benchmark
+    public Board refreshAvailableMoves() {
+        game.refreshAvailableMoves(game.getBoard());
+        return game.getBoard();
+    }
+
+    @Benchmark
+    public Movement makeDecision() {
+        return game.getBotAgent().makeDecision(game);
+    }
+
+    // App.loadLevel hands the file to Game.loadLevel, which needs a fresh game every time
+    @Benchmark
+    public Game loadLevel() throws Exception {
+        return loadGame();
+    }
+}
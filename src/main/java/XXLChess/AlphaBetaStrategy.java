@@ -0,0 +1,498 @@
+package XXLChess;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * AlphaBetaStrategy searches the legal moves of the bot with negamax and alpha-beta pruning, deepening one ply at a
+ * time until its time budget runs out. The search runs on a {@link Position} made from the board, and scores leaves
+ * with the {@link Evaluator} after resolving captures with a quiescence search. Moves are tried in the order most
+ * likely to cut the search short: the best move from the table, captures that win material (by the value of the
+ * victim, then the cheapest attacker), two killer moves per ply, quiet moves by their history of cutoffs, and last
+ * the captures that a {@link StaticExchange} shows to lose material. The quiescence search skips those captures.
+ * A {@link TimeManager} decides from the clock whether another iteration starts and when the search stops; when it
+ * stops during an iteration, the best move of the last finished iteration is played.
+ * Results are kept in a {@link TranspositionTable}, which lives as long as the strategy, so later iterations and
+ * later turns start from the best moves found before.
+ */
+public class AlphaBetaStrategy implements SearchStrategy {
+    // The duration of one frame in milliseconds, the longest a search on the render thread should take
+    public static final long FRAME_MILLIS = 1000 / App.FPS;
+
+    // The longest search in milliseconds; the bot searches in the background, so this is not bound to a frame
+    public static final long MAX_MILLIS = 10000;
+
+    // The deepest iteration and the deepest ply reached including the quiescence search
+    private static final int MAX_DEPTH = 32;
+    private static final int MAX_PLY = 64;
+
+    // The score of a checkmate; mates found sooner score higher
+    private static final int MATE = 1000000;
+    private static final int INFINITY = MATE + 1;
+
+    // The base 2 logarithm of the number of transposition table slots (16 bytes each)
+    private static final int TABLE_BITS = 18;
+
+    // Ordering scores: winning captures, then killers, then quiet moves by history, then losing captures
+    private static final int GOOD_CAPTURE = 1 << 28;
+    private static final int KILLER = 1 << 27;
+    private static final int BAD_CAPTURE = -(1 << 27);
+
+    // The history score at which a side's history is halved, so that scores stay below KILLER
+    private static final int HISTORY_MAX = 1 << 20;
+
+    private final TranspositionTable table = new TranspositionTable(TABLE_BITS);
+    private final long maxMillis;
+    private final int threads;
+
+    // The searcher on the calling thread, whose move is played, and the helpers that fill the shared table
+    private final Searcher main = new Searcher(0);
+    private final Searcher[] helpers;
+    private ExecutorService helperExecutor;
+    private boolean closed;
+
+    private long deadline;
+
+    // The time manager of the running search, consulted by the main searcher between iterations and by every
+    // searcher for a stop
+    private volatile TimeManager time;
+    private long startTime;
+
+    // Set when the main searcher has finished, to stop the helpers
+    private volatile boolean mainFinished;
+
+    public AlphaBetaStrategy() {
+        this(MAX_MILLIS);
+    }
+
+    /**
+     * Constructs a single-threaded strategy with a limit on the time of a single search.
+     *
+     * @param maxMillis the longest search in milliseconds.
+     */
+    public AlphaBetaStrategy(long maxMillis) {
+        this(maxMillis, 1);
+    }
+
+    /**
+     * Constructs a strategy that searches on several threads at once (Lazy SMP). Every thread searches the whole
+     * tree on its own copy of the position, and they share the transposition table, so each thread mostly picks up
+     * where the others left off. The move of the calling thread is played.
+     *
+     * @param maxMillis the longest search in milliseconds.
+     * @param threads   the number of threads, including the calling thread.
+     */
+    public AlphaBetaStrategy(long maxMillis, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("A search needs at least one thread");
+        }
+        this.maxMillis = maxMillis;
+        this.threads = threads;
+        helpers = new Searcher[threads - 1];
+        for (int i = 0; i < helpers.length; i++) {
+            helpers[i] = new Searcher(i + 1);
+        }
+    }
+
+    /**
+     * Without a game to search, a move is picked at random.
+     */
+    @Override
+    public Movement choose(Set<Movement> availableMovements) {
+        if (availableMovements.isEmpty()) {
+            return null;
+        }
+        return Utils.selectRandomElement(availableMovements);
+    }
+
+    @Override
+    public Movement choose(Game ctx, PlayerAgent agent, Set<Movement> availableMovements) {
+        if (availableMovements.isEmpty()) {
+            return null;
+        }
+        Board board = ctx.getBoard();
+        Position position = board.toPosition(agent.getColor());
+        int best = search(position, budget(agent, position));
+        if (best >= 0) {
+            Movement chosen = board.toMovement(best);
+            if (availableMovements.contains(chosen)) return chosen;
+        }
+        return choose(availableMovements);
+    }
+
+    /**
+     * Returns the time a player may spend on its next move, from its clock and the moves likely left in the game,
+     * but never more than the search limit.
+     *
+     * @param agent    the player to move.
+     * @param position the position to search.
+     * @return the time manager of the search.
+     */
+    @Override
+    public TimeManager budget(PlayerAgent agent, Position position) {
+        return budget(agent.getRemainingMillis(), agent.getTimeIncrement() * 1000L, position);
+    }
+
+    /**
+     * Returns the time a search may take, given a clock in milliseconds.
+     *
+     * @param remainingMillis the remaining time of the player to move.
+     * @param incrementMillis the time added to the player's clock after each move.
+     * @param position        the position to search.
+     * @return the time manager of the search.
+     */
+    public TimeManager budget(long remainingMillis, long incrementMillis, Position position) {
+        return TimeManager.forMove(remainingMillis, incrementMillis, TimeManager.movesToGo(position), maxMillis);
+    }
+
+    /**
+     * Searches a position with iterative deepening for a fixed time.
+     *
+     * @param position     the position, which is left unchanged.
+     * @param budgetMillis the time of the search in milliseconds.
+     * @return the best move found, or -1 if the side to move has no legal moves.
+     */
+    public int search(Position position, long budgetMillis) {
+        return search(position, TimeManager.fixed(budgetMillis));
+    }
+
+    /**
+     * Searches a position with iterative deepening until the time manager stops it.
+     *
+     * @param position the position, which is left unchanged.
+     * @param time     the time manager.
+     * @return the best move found, or -1 if the side to move has no legal moves.
+     */
+    @Override
+    public int search(Position position, TimeManager time) {
+        this.time = time;
+        startTime = System.nanoTime();
+        deadline = startTime + time.getHardMillis() * 1000000L;
+        mainFinished = false;
+        table.newSearch();
+
+        List<Future<?>> running = new ArrayList<>();
+        ExecutorService executor = helpers.length > 0 ? helperExecutor() : null;
+        for (int i = 0; executor != null && i < helpers.length; i++) {
+            Searcher helper = helpers[i];
+            Position copy = position.copy();
+            try {
+                running.add(executor.submit(() -> helper.iterate(copy)));
+            } catch (RejectedExecutionException e) {
+                // Closed while starting: search with the helpers started so far
+                break;
+            }
+        }
+        int best = main.iterate(position);
+        mainFinished = true;
+        // Wait for the helpers, so that the next search does not share their buffers
+        for (Future<?> f : running) {
+            try {
+                f.get();
+            } catch (InterruptedException | ExecutionException e) {
+                // A failed helper only leaves fewer entries in the table
+            }
+        }
+        return best;
+    }
+
+    @Override
+    public void stop() {
+        TimeManager running = time;
+        if (running != null) {
+            running.stop();
+        }
+    }
+
+    /**
+     * Returns the number of threads the strategy searches on.
+     *
+     * @return the number of threads, including the calling thread.
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Returns the number of nodes visited by the last search, summed over its threads.
+     *
+     * @return the number of nodes.
+     */
+    public long getNodes() {
+        long total = main.nodes;
+        for (Searcher helper : helpers) {
+            total += helper.nodes;
+        }
+        return total;
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        if (helperExecutor != null) {
+            helperExecutor.shutdown();
+            helperExecutor = null;
+        }
+    }
+
+    // Returns the executor of the helper threads, creating it on first use, or null once the strategy is closed
+    private synchronized ExecutorService helperExecutor() {
+        if (closed) {
+            return null;
+        }
+        if (helperExecutor == null) {
+            helperExecutor = Executors.newFixedThreadPool(helpers.length, r -> {
+                Thread thread = new Thread(r, "bot-search-helper");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return helperExecutor;
+    }
+
+    /**
+     * The state of one search thread: its move generator, its move lists and its node count.
+     */
+    private class Searcher {
+        private final int id;
+        private final MoveGenerator generator = new MoveGenerator();
+
+        // One move list per ply
+        private final MoveList[] lists = new MoveList[MAX_PLY];
+
+        // Two quiet moves per ply that recently caused a cutoff, and a cutoff score per side and move
+        private final int[][] killers = new int[MAX_PLY][2];
+        private final int[][] history = new int[2][MoveGenerator.SQUARES_MASK + 1];
+
+        private final StaticExchange exchange = new StaticExchange();
+
+        private long nodes;
+        private boolean aborted;
+
+        Searcher(int id) {
+            this.id = id;
+        }
+
+        // Searches with iterative deepening until time is up, and returns the best move of the root
+        int iterate(Position position) {
+            nodes = 0;
+            aborted = false;
+            // Killers are tied to the previous search's plies; history is kept, but weighs less
+            for (int[] plyKillers : killers) {
+                plyKillers[0] = 0;
+                plyKillers[1] = 0;
+            }
+            ageHistory(Position.WHITE);
+            ageHistory(Position.BLACK);
+
+            MoveList rootMoves = list(0);
+            int count = generator.generate(position, rootMoves);
+            if (count == 0) {
+                return -1;
+            }
+            orderMoves(position, rootMoves, 0);
+            rootMoves.moveToFront(TranspositionTable.moveOf(table.probe(position.getKey())));
+            int best = rootMoves.get(0);
+            int previous = best;
+
+            // Half of the helpers start one ply deeper, so that the threads do not all search the same depth
+            for (int depth = 1 + id % 2; depth <= MAX_DEPTH; depth++) {
+                int alpha = -INFINITY;
+                int iterationBest = -1;
+                for (int i = 0; i < count; i++) {
+                    position.makeMove(rootMoves.get(i));
+                    int score = -negamax(position, depth - 1, 1, -INFINITY, -alpha);
+                    position.unmakeMove();
+                    if (aborted) break;
+                    if (score > alpha) {
+                        alpha = score;
+                        iterationBest = i;
+                    }
+                }
+                // The previous best move is searched first, so a partial iteration can still improve on it
+                if (iterationBest >= 0) {
+                    best = rootMoves.get(iterationBest);
+                    rootMoves.moveToFront(best);
+                }
+                if (!aborted) {
+                    table.store(position.getKey(), best, alpha, depth, TranspositionTable.EXACT);
+                }
+                if (aborted || alpha >= MATE - MAX_PLY || count == 1) break;
+                // Only the main searcher's move is played, so only it decides whether to go deeper
+                if (id == 0 && !time.iterationFinished(best != previous, (System.nanoTime() - startTime) / 1000000)) {
+                    break;
+                }
+                previous = best;
+            }
+            return best;
+        }
+
+        // Returns the score of the side to move, searching depth more plies before resolving captures
+        private int negamax(Position position, int depth, int ply, int alpha, int beta) {
+            if (depth <= 0 || ply >= MAX_PLY - 1) {
+                return quiescence(position, ply, alpha, beta);
+            }
+            if (timeUp()) {
+                return 0;
+            }
+            long key = position.getKey();
+            long entry = table.probe(key);
+            if (entry != 0 && TranspositionTable.depthOf(entry) >= depth) {
+                int score = fromTable(TranspositionTable.scoreOf(entry), ply);
+                int bound = TranspositionTable.boundOf(entry);
+                if (bound == TranspositionTable.EXACT
+                        || (bound == TranspositionTable.LOWER && score >= beta)
+                        || (bound == TranspositionTable.UPPER && score <= alpha)) {
+                    return score;
+                }
+            }
+            MoveList plyMoves = list(ply);
+            int count = generator.generate(position, plyMoves);
+            if (count == 0) {
+                return MoveGenerator.isInCheck(position) ? -MATE + ply : 0;
+            }
+            orderMoves(position, plyMoves, ply);
+            plyMoves.moveToFront(TranspositionTable.moveOf(entry));
+            int originalAlpha = alpha;
+            int bestMove = 0;
+            for (int i = 0; i < count; i++) {
+                int move = plyMoves.get(i);
+                position.makeMove(move);
+                int score = -negamax(position, depth - 1, ply + 1, -beta, -alpha);
+                position.unmakeMove();
+                if (aborted) return 0;
+                if (score >= beta) {
+                    if (!MoveGenerator.isCapture(move)) {
+                        rememberCutoff(position.getSideToMove(), move, depth, ply);
+                    }
+                    table.store(key, move, toTable(beta, ply), depth, TranspositionTable.LOWER);
+                    return beta;
+                }
+                if (score > alpha) {
+                    alpha = score;
+                    bestMove = move;
+                }
+            }
+            table.store(key, bestMove, toTable(alpha, ply), depth,
+                    alpha > originalAlpha ? TranspositionTable.EXACT : TranspositionTable.UPPER);
+            return alpha;
+        }
+
+        // Returns the score of the side to move once no good captures are left
+        private int quiescence(Position position, int ply, int alpha, int beta) {
+            if (timeUp()) {
+                return 0;
+            }
+            int standPat = Evaluator.evaluate(position);
+            if (standPat >= beta || ply >= MAX_PLY - 1) {
+                return standPat;
+            }
+            if (standPat > alpha) alpha = standPat;
+
+            MoveList plyMoves = list(ply);
+            int count = generator.generate(position, plyMoves);
+            if (count == 0) {
+                return MoveGenerator.isInCheck(position) ? -MATE + ply : 0;
+            }
+            orderMoves(position, plyMoves, ply);
+            for (int i = 0; i < count; i++) {
+                // Winning captures are ordered first; captures that lose material are not worth resolving
+                if (plyMoves.getScore(i) < GOOD_CAPTURE) break;
+                position.makeMove(plyMoves.get(i));
+                int score = -quiescence(position, ply + 1, -beta, -alpha);
+                position.unmakeMove();
+                if (aborted) return 0;
+                if (score >= beta) return beta;
+                if (score > alpha) alpha = score;
+            }
+            return alpha;
+        }
+
+        // Sorts moves into winning captures, killers, quiet moves by history and losing captures.
+        // Winning captures are sorted by victim, most valuable first, then by attacker, cheapest first.
+        private void orderMoves(Position position, MoveList moveList, int ply) {
+            int[] sideHistory = history[position.getSideToMove()];
+            for (int i = 0; i < moveList.size(); i++) {
+                int move = moveList.get(i);
+                if (!MoveGenerator.isCapture(move)) {
+                    if (move == killers[ply][0]) {
+                        moveList.setScore(i, KILLER + 1);
+                    } else if (move == killers[ply][1]) {
+                        moveList.setScore(i, KILLER);
+                    } else {
+                        moveList.setScore(i, sideHistory[MoveGenerator.squaresOf(move)]);
+                    }
+                    continue;
+                }
+                int victim = position.pieceAt(MoveGenerator.toOf(move));
+                int victimValue = Evaluator.VALUES[Position.typeOf(victim)];
+                int attackerValue = Evaluator.VALUES[Position.typeOf(position.pieceAt(MoveGenerator.fromOf(move)))];
+                int mvvLva = victimValue * 16 - attackerValue;
+                // Taking a piece worth at least the attacker cannot lose material, so the exchange is only
+                // worked out for captures by more valuable pieces
+                boolean winning = victimValue >= attackerValue || exchange.evaluate(position, move) >= 0;
+                moveList.setScore(i, (winning ? GOOD_CAPTURE : BAD_CAPTURE) + mvvLva);
+            }
+            // The sort is stable, so that the root keeps the previous best move first among equals
+            moveList.sort();
+        }
+
+        // Remembers a quiet move that caused a cutoff as a killer of its ply and in the history of its side
+        private void rememberCutoff(int color, int move, int depth, int ply) {
+            if (killers[ply][0] != move) {
+                killers[ply][1] = killers[ply][0];
+                killers[ply][0] = move;
+            }
+            int squares = MoveGenerator.squaresOf(move);
+            history[color][squares] += depth * depth;
+            if (history[color][squares] >= HISTORY_MAX) {
+                ageHistory(color);
+            }
+        }
+
+        // Halves the history scores of a side
+        private void ageHistory(int color) {
+            int[] sideHistory = history[color];
+            for (int i = 0; i < sideHistory.length; i++) {
+                sideHistory[i] >>= 1;
+            }
+        }
+
+        // Returns the move list of a ply, creating it on first use
+        private MoveList list(int ply) {
+            if (lists[ply] == null) {
+                lists[ply] = new MoveList();
+            }
+            return lists[ply];
+        }
+
+        // Checks the clock every 256 nodes and stops the search once the deadline has passed or a stop was requested.
+        // Helpers also stop once the main searcher has finished.
+        private boolean timeUp() {
+            if ((++nodes & 255) == 0
+                    && (time.isStopped() || (id > 0 && mainFinished) || System.nanoTime() >= deadline)) {
+                aborted = true;
+            }
+            return aborted;
+        }
+    }
+
+    // Mate scores count plies from the root; the table stores them counted from the position instead
+    private static int toTable(int score, int ply) {
+        if (score >= MATE - MAX_PLY) return score + ply;
+        if (score <= -MATE + MAX_PLY) return score - ply;
+        return score;
+    }
+
+    private static int fromTable(int score, int ply) {
+        if (score >= MATE - MAX_PLY) return score - ply;
+        if (score <= -MATE + MAX_PLY) return score + ply;
+        return score;
+    }
+}
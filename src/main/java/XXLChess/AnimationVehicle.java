@@ -24,15 +24,27 @@ public class AnimationVehicle implements Tickable {
      *
      * @param pieceMovementSpeed The speed at which the piece should move.
      * @param maxMovementTime    The maximum time the movement should take.
-     * @param m                  The move that the piece is making.
+     * @param m                  The move that the piece is making, before it is made.
      */
     public AnimationVehicle(int pieceMovementSpeed, int maxMovementTime, Movement m) {
+        this(pieceMovementSpeed, maxMovementTime, m, m.getTargetPiece());
+    }
+
+    /**
+     * Constructor for the animation of a move that was already made on the board.
+     *
+     * @param pieceMovementSpeed The speed at which the piece should move.
+     * @param maxMovementTime    The maximum time the movement should take.
+     * @param m                  The move that the piece made.
+     * @param captured           The piece the move captured, shown under the moving piece, or null.
+     */
+    public AnimationVehicle(int pieceMovementSpeed, int maxMovementTime, Movement m, Piece captured) {
         piece = m.getSourcePiece();
         this.originalLeft = m.getSourceLeft();
         this.originalTop = m.getSourceTop();
-        if (m.getTargetPiece() != null) {
+        if (captured != null) {
             // checking a enemy's piece
-            afterimage = m.getTargetPiece().getImage();
+            afterimage = captured.getImage();
         }
         this.targetLeft = m.getTargetLeft();
         this.targetTop = m.getTargetTop();
@@ -4,6 +4,7 @@ import XXLChess.Game.GameStatus;
 import XXLChess.GameReport.EndReason;
 import java.io.*;
 import java.net.URL;
+import java.nio.file.Paths;
 import java.util.*;
 import processing.core.*;
 import processing.data.JSONObject;
@@ -52,20 +53,12 @@ public class App extends PApplet {
    * @return the set of target tiles.
    */
   public Set<Tile> getTargetTiles() {
-    Set<Tile> targetTiles;
     Tile sel = game.getHumanAgent().getSelection();
-    if (sel != null) {
-      Set<Movement> safeMovements = game.getSafeMovements(
-        game.getAllLegalMovements(game.getHumanAgent())
-      );
-      targetTiles = new HashSet<>();
-      for (Movement move : safeMovements) {
-        if (move.getSourceTile() == sel) targetTiles.add(move.getTargetTile());
-      }
-    } else {
-      targetTiles = null;
+    if (sel == null) {
+      return null;
     }
-    return targetTiles;
+    // Looked up in the game's cache, which is only rebuilt after a move, since this runs every frame
+    return game.getSafeTargets(game.getHumanAgent(), sel);
   }
 
   /**
@@ -83,6 +76,15 @@ public class App extends PApplet {
     mapValidityCheck();
   }
 
+  /**
+   * Returns the game loaded by {@link #loadXXLChess(String)}.
+   *
+   * @return the game, or null before one is loaded.
+   */
+  public Game getGame() {
+    return game;
+  }
+
   /**
    * Initializes the game with the specified configuration.
    *
@@ -113,6 +115,39 @@ public class App extends PApplet {
         pieceMovementSpeed,
         maxMovementTime
       );
+    // Animations and sounds follow the game's events; so does the move log, if asked for
+    GameEffects.attach(game);
+    if (conf.getBoolean("log_moves", false)) {
+      GameEventLogger.attach(game, System.out);
+    }
+
+    // Load the engine settings; the bot searches on one thread unless told otherwise
+    int searchThreads = conf.getInt("search_threads", 1);
+    if (searchThreads < 1) {
+      throw new Exception("search_threads must be at least 1.");
+    }
+    game
+      .getBotAgent()
+      .setStrategy(
+        new AlphaBetaStrategy(AlphaBetaStrategy.MAX_MILLIS, searchThreads)
+      );
+
+    // The opening book is optional; without one the bot searches from the first move
+    if (conf.hasKey("opening_book")) {
+      game
+        .getBotAgent()
+        .setOpeningBook(
+          OpeningBook.open(Paths.get(conf.getString("opening_book")))
+        );
+    }
+    // So are the endgame tablebases, a directory of table files
+    if (conf.hasKey("tablebases")) {
+      game
+        .getBotAgent()
+        .setTablebases(
+          Tablebases.load(Paths.get(conf.getString("tablebases")))
+        );
+    }
   }
 
   /**
@@ -122,21 +157,12 @@ public class App extends PApplet {
    */
   public void handlePieceSelection(Tile tile) {
     Human human = game.getHumanAgent();
-    // get safe movements
-    Set<Movement> safe = game.getSafeMovements(
-      game.getAllLegalMovements(human)
-    );
     // Must select a player's own piece first
     Piece piece = tile.getCurrentPiece();
     if (piece == null || piece.getColor() != human.getColor()) return;
     if (game.getInCheck() != null) {
-      boolean protective = false;
-      for (Movement m : safe) {
-        if (m.getSourcePiece() == piece) {
-          protective = true;
-          break;
-        }
-      }
+      // Only a piece with a safe move protects the king
+      boolean protective = !game.getSafeTargets(human, tile).isEmpty();
       if (!protective) {
         game.setWarning(new KingProtectionWarning());
         SoundPlayer.playSound("bruh.wav");
@@ -153,9 +179,6 @@ public class App extends PApplet {
    */
   public void handlePieceMovement(Tile tile) {
     Human human = game.getHumanAgent();
-    Set<Movement> safe = game.getSafeMovements(
-      game.getAllLegalMovements(human)
-    );
     try {
       if (tile == human.getSelection()) {
         // Unselect
@@ -170,10 +193,8 @@ public class App extends PApplet {
         Piece selectedPiece = human.getSelection().getCurrentPiece();
         Movement todo = new Movement(selectedPiece, tile);
         // Invalid move
-        boolean validity = false;
-        for (Movement safeMovement : safe) {
-          if (safeMovement.equals(todo)) validity = true;
-        }
+        boolean validity =
+          game.getSafeMovement(human, human.getSelection(), tile) != null;
         if (!validity) {
           throw new InvalidMoveException(human);
         }
@@ -213,6 +234,16 @@ public class App extends PApplet {
         return "You lost on time!";
       case PLAYER_RESIGNED:
         return "You resigned!";
+      case DRAW:
+        return "Draw!";
+      case STALEMATE:
+        return "Draw by \nstalemate!";
+      case REPETITION:
+        return "Draw by \nrepetition!";
+      case NO_PROGRESS:
+        return "Draw by the \n50-move rule!";
+      case INSUFFICIENT_MATERIAL:
+        return "Draw by \ninsufficient \nmaterial!";
       default:
         return "";
     }
@@ -247,62 +278,7 @@ public class App extends PApplet {
    * @throws Exception if an error occurs during loading.
    */
   public void loadLevel(String layoutFilename) throws Exception {
-    Scanner sc = null;
-    File layout = new File(layoutFilename);
-    try {
-      sc = new Scanner(layout);
-      int x = 0, y = 0;
-      // The layout file will contain a grid of text characters, where each character represents the piece that should be in that cell.
-      while (sc.hasNextLine()) {
-        String row = sc.nextLine();
-        for (Character c : row.toCharArray()) {
-          // Create a new piece based on the character from the layout file
-          Piece cur = Piece.createPiece(c);
-          if (c == ' ' || c == '.') {
-            x++;
-            continue;
-          }
-          if (cur == null) {
-            throw new InvalidObjectException(c.toString());
-          }
-          // Get the appropriate agent for the piece based on its color
-          PlayerAgent agent = game.getBoard().getAgentByColor(cur.getColor());
-          // Get the tile corresponding to the current position
-          Tile parentTile = game.getTile(x, y);
-          if (parentTile == null) {
-            throw new ArrayIndexOutOfBoundsException();
-          }
-          // Set the current tile and piece
-          cur.setCurrentTile(parentTile);
-          parentTile.setCurrentPiece(cur);
-          // Add the piece to the agent's list of pieces
-          agent.getPieces().add(cur);
-          // If the piece is a king, set it as the agent's king
-          if (cur instanceof King) {
-            if (agent.getKing() == null) {
-              agent.setKing((King) cur);
-            } else {
-              throw new Exception("A player must not have more than one king.");
-            }
-          }
-          x++;
-        }
-        y++;
-        x = 0;
-      }
-      // Refresh the available moves for the game
-      game.refreshAvailableMoves(game.getBoard());
-    } catch (ArrayIndexOutOfBoundsException e) {
-      throw new Exception("The map must have the size of 14*14.");
-    } catch (InvalidObjectException e) {
-      throw new Exception(
-        "Unexpected piece character '" + e.getMessage() + "'"
-      );
-    } catch (FileNotFoundException e) {
-      throw new Exception("File '" + layoutFilename + "' not found");
-    } finally {
-      if (sc != null) sc.close();
-    }
+    game.loadLevel(layoutFilename);
   }
 
   /**
@@ -0,0 +1,213 @@
+package XXLChess;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * AttackMap keeps track of which pieces attack each tile of a board, and keeps every piece's possible targets up to date.
+ * After a move only the pieces whose lines or leaps touch a changed tile are recomputed, instead of every piece on the board.
+ * A piece attacks the tiles it could capture on: its possible targets, or its capture diagonals for a pawn.
+ */
+public class AttackMap {
+    private final Board board;
+
+    // The pieces that attack each square, indexed by y * BOARD_WIDTH + x
+    private final List<List<Piece>> attackers = new ArrayList<>();
+
+    // The number of attackers of each colour on each square, indexed by colour ordinal then square
+    private final int[][] attackerCounts = new int[Piece.Color.values().length][Position.SQUARES];
+
+    // The tiles each piece currently attacks
+    private final Map<Piece, Set<Tile>> contributions = new IdentityHashMap<>();
+
+    // The pieces to recompute during an update (reused to avoid allocation)
+    private final Set<Piece> affected = Collections.newSetFromMap(new IdentityHashMap<Piece, Boolean>());
+
+    // Whether the map has been built; until then, updates are ignored
+    private boolean built;
+
+    /**
+     * Constructs an empty attack map for a board.
+     *
+     * @param board the board to track.
+     */
+    public AttackMap(Board board) {
+        this.board = board;
+        for (int i = 0; i < Position.SQUARES; i++) {
+            attackers.add(new ArrayList<Piece>());
+        }
+    }
+
+    /**
+     * Recomputes the possible targets of every piece on the board and rebuilds the map from scratch.
+     */
+    public void rebuild() {
+        contributions.clear();
+        for (List<Piece> list : attackers) {
+            list.clear();
+        }
+        for (int[] counts : attackerCounts) {
+            Arrays.fill(counts, 0);
+        }
+        for (int i = 0; i < Board.BOARD_WIDTH; i++) {
+            for (int j = 0; j < Board.BOARD_WIDTH; j++) {
+                Piece piece = board.getTile(i, j).getCurrentPiece();
+                if (piece != null) {
+                    recompute(piece);
+                }
+            }
+        }
+        built = true;
+    }
+
+    /**
+     * Updates the map after pieces were moved, added or removed.
+     * Only the pieces standing on, or looking at, one of the changed tiles are recomputed.
+     *
+     * @param changed the tiles whose occupant changed.
+     * @param removed the pieces that left the board.
+     */
+    public void update(List<Tile> changed, List<Piece> removed) {
+        if (!built) {
+            return;
+        }
+        for (Piece piece : removed) {
+            removeContribution(piece);
+        }
+        affected.clear();
+        for (Tile tile : changed) {
+            collectObservers(tile);
+        }
+        for (Piece piece : affected) {
+            recompute(piece);
+        }
+        affected.clear();
+    }
+
+    /**
+     * Returns the number of pieces of a colour that attack a tile.
+     *
+     * @param tile  the tile to check.
+     * @param color the colour of the attackers.
+     * @return the number of attackers.
+     */
+    public int getAttackerCount(Tile tile, Piece.Color color) {
+        return attackerCounts[color.ordinal()][index(tile)];
+    }
+
+    /**
+     * Returns the pieces of a colour that attack a tile.
+     *
+     * @param tile  the tile to check.
+     * @param color the colour of the attackers.
+     * @return a new set of the attacking pieces, or an empty immutable set if there are none.
+     */
+    public Set<Piece> getAttackers(Tile tile, Piece.Color color) {
+        if (getAttackerCount(tile, color) == 0) {
+            return Collections.emptySet();
+        }
+        Set<Piece> result = new HashSet<>();
+        for (Piece piece : attackers.get(index(tile))) {
+            if (piece.getColor() == color) {
+                result.add(piece);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Checks whether the map has been built.
+     *
+     * @return true if the map reflects the board, false if it has never been built.
+     */
+    public boolean isBuilt() {
+        return built;
+    }
+
+    // Recomputes the possible targets and attacked tiles of a piece on the board
+    private void recompute(Piece piece) {
+        removeContribution(piece);
+        piece.updatePossibleTargets(board);
+        Set<Tile> attacked = piece instanceof Pawn ? ((Pawn) piece).getAttackRange(board) : piece.getPossibleTargets();
+        contributions.put(piece, attacked);
+        for (Tile tile : attacked) {
+            attackers.get(index(tile)).add(piece);
+            attackerCounts[piece.getColor().ordinal()][index(tile)]++;
+        }
+    }
+
+    // Removes the attacked tiles of a piece from the map
+    private void removeContribution(Piece piece) {
+        Set<Tile> attacked = contributions.remove(piece);
+        if (attacked == null) {
+            return;
+        }
+        for (Tile tile : attacked) {
+            attackers.get(index(tile)).remove(piece);
+            attackerCounts[piece.getColor().ordinal()][index(tile)]--;
+        }
+    }
+
+    // Adds the occupant of a tile and every piece whose moves depend on that tile to the affected set
+    private void collectObservers(Tile tile) {
+        int x = tile.getX();
+        int y = tile.getY();
+        if (tile.getCurrentPiece() != null) {
+            affected.add(tile.getCurrentPiece());
+        }
+        // Sliders whose ray reaches the tile
+        for (int d = 0; d < Position.DIRECTIONS.length; d++) {
+            int ability = d < 4 ? Position.SLIDES_ORTHOGONALLY : Position.SLIDES_DIAGONALLY;
+            int dx = Position.DIRECTIONS[d][0];
+            int dy = Position.DIRECTIONS[d][1];
+            Piece p = null;
+            for (int tx = x + dx, ty = y + dy; p == null && Position.onBoard(tx, ty); tx += dx, ty += dy) {
+                p = board.getPiece(tx, ty);
+            }
+            if (p != null && (abilities(p) & ability) != 0) {
+                affected.add(p);
+            }
+        }
+        // Leapers that can land on the tile
+        collectLeapers(x, y, Position.KNIGHT_OFFSETS, Position.LEAPS_KNIGHT);
+        collectLeapers(x, y, Position.CAMEL_OFFSETS, Position.LEAPS_CAMEL);
+        collectLeapers(x, y, Position.KING_OFFSETS, Position.STEPS_KING);
+        // Pawns that can push onto the tile, or capture on it
+        for (int dy = -2; dy <= 2; dy++) {
+            for (int dx = -1; dx <= 1; dx++) {
+                boolean push = dx == 0 && dy != 0;
+                boolean capture = dx != 0 && Math.abs(dy) == 1;
+                Piece p = board.getPiece(x + dx, y + dy);
+                if ((push || capture) && p instanceof Pawn) {
+                    affected.add(p);
+                }
+            }
+        }
+    }
+
+    // Adds the pieces with the given leaping ability that stand one leap away from (x, y)
+    private void collectLeapers(int x, int y, int[][] offsets, int ability) {
+        for (int[] offset : offsets) {
+            Piece p = board.getPiece(x + offset[0], y + offset[1]);
+            if (p != null && (abilities(p) & ability) != 0) {
+                affected.add(p);
+            }
+        }
+    }
+
+    // Returns the movement abilities of a piece
+    private static int abilities(Piece piece) {
+        return Position.ABILITIES[Position.typeOfChar(piece.type)];
+    }
+
+    // Returns the square index of a tile
+    private static int index(Tile tile) {
+        return Position.square(tile.getX(), tile.getY());
+    }
+}
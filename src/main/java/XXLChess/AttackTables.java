@@ -0,0 +1,69 @@
+package XXLChess;
+
+import java.util.Arrays;
+
+/**
+ * Precomputed move geometry of the 14x14 board, built once when the class is loaded.
+ * For every square it lists the squares a knight, camel or king leap lands on, and the squares along each of the
+ * eight slider directions, nearest first. Only squares on the board are listed, so loops over the tables need no
+ * bounds checks, and a general uses both the knight and the king table.
+ */
+public final class AttackTables {
+    // The leap targets of each square
+    static final int[][] KNIGHT = new int[Position.SQUARES][];
+    static final int[][] CAMEL = new int[Position.SQUARES][];
+    static final int[][] KING = new int[Position.SQUARES][];
+
+    // The squares from each square to the edge of the board, indexed by square then by Position.DIRECTIONS index
+    static final int[][][] RAYS = new int[Position.SQUARES][Position.DIRECTIONS.length][];
+
+    // The same rays as bitboards, to skip a ray at once when no piece of interest is on it. The Bitboard.WORDS
+    // words of the ray of square sq in direction d start at (sq * Position.DIRECTIONS.length + d) * Bitboard.WORDS.
+    static final long[] RAY_MASKS = new long[Position.SQUARES * Position.DIRECTIONS.length * Bitboard.WORDS];
+
+    static {
+        for (int sq = 0; sq < Position.SQUARES; sq++) {
+            KNIGHT[sq] = leaps(sq, Position.KNIGHT_OFFSETS);
+            CAMEL[sq] = leaps(sq, Position.CAMEL_OFFSETS);
+            KING[sq] = leaps(sq, Position.KING_OFFSETS);
+            for (int d = 0; d < Position.DIRECTIONS.length; d++) {
+                RAYS[sq][d] = ray(sq, Position.DIRECTIONS[d]);
+                int mask = (sq * Position.DIRECTIONS.length + d) * Bitboard.WORDS;
+                for (int target : RAYS[sq][d]) {
+                    RAY_MASKS[mask + (target >>> 6)] |= 1L << (target & 63);
+                }
+            }
+        }
+    }
+
+    private AttackTables() {
+    }
+
+    // Lists the on-board squares one offset away from a square
+    private static int[] leaps(int sq, int[][] offsets) {
+        int[] targets = new int[offsets.length];
+        int count = 0;
+        for (int[] offset : offsets) {
+            int x = Position.xOf(sq) + offset[0];
+            int y = Position.yOf(sq) + offset[1];
+            if (Position.onBoard(x, y)) {
+                targets[count++] = Position.square(x, y);
+            }
+        }
+        return Arrays.copyOf(targets, count);
+    }
+
+    // Lists the squares from a square to the edge of the board in one direction
+    private static int[] ray(int sq, int[] direction) {
+        int[] squares = new int[Board.BOARD_WIDTH];
+        int count = 0;
+        int x = Position.xOf(sq) + direction[0];
+        int y = Position.yOf(sq) + direction[1];
+        while (Position.onBoard(x, y)) {
+            squares[count++] = Position.square(x, y);
+            x += direction[0];
+            y += direction[1];
+        }
+        return Arrays.copyOf(squares, count);
+    }
+}
@@ -0,0 +1,29 @@
+package XXLChess;
+
+/**
+ * An AudioBackend plays decoded sounds for the {@link SoundPlayer}. Playing never blocks the caller.
+ */
+public interface AudioBackend {
+    // A backend that plays nothing, for runs without a sound device or without a window
+    AudioBackend NONE = new AudioBackend() {
+        @Override
+        public void play(short[] samples) {
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    /**
+     * Starts playing a sound, mixed with any sounds still playing.
+     *
+     * @param samples the sound as interleaved 16-bit samples in the {@link AudioMixer#FORMAT}.
+     */
+    void play(short[] samples);
+
+    /**
+     * Stops playing and releases the sound device.
+     */
+    void close();
+}
@@ -0,0 +1,160 @@
+package XXLChess;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+
+/**
+ * AudioMixer plays sounds on a single line, from a single thread that lives as long as the mixer. Play requests
+ * go through a bounded queue, so the game thread only hands over a buffer: a request that finds the queue full is
+ * dropped rather than waited for. The thread mixes the playing sounds a few milliseconds at a time and writes them
+ * to a line whose buffer holds only a few such chunks, so that a sound starts after about the same short delay
+ * whatever else is playing. While nothing plays, the thread waits on the queue.
+ */
+public class AudioMixer implements AudioBackend, Runnable {
+    // 48 kHz 16-bit stereo, the format of the game's sounds
+    public static final AudioFormat FORMAT = new AudioFormat(48000f, 16, 2, true, false);
+
+    // The number of play requests that may wait, and the number of sounds mixed at once
+    public static final int QUEUE_CAPACITY = 16;
+    public static final int MAX_VOICES = 8;
+
+    // The frames mixed at a time (5 ms), and the number of chunks the line buffers
+    static final int CHUNK_FRAMES = 240;
+    private static final int LINE_CHUNKS = 4;
+
+    private final SourceDataLine line;
+    private final BlockingQueue<short[]> requests = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+
+    // The sounds playing and the next sample of each; a null voice is free
+    private final short[][] voices = new short[MAX_VOICES][];
+    private final int[] positions = new int[MAX_VOICES];
+    private final byte[] chunk = new byte[CHUNK_FRAMES * FORMAT.getFrameSize()];
+
+    private final Thread thread;
+    private volatile boolean closed;
+
+    /**
+     * Opens the default line in the mixer's format and starts the mixing thread.
+     *
+     * @return the mixer, or {@link AudioBackend#NONE} if no line can be opened.
+     */
+    public static AudioBackend open() {
+        try {
+            SourceDataLine line = AudioSystem.getSourceDataLine(FORMAT);
+            line.open(FORMAT, LINE_CHUNKS * CHUNK_FRAMES * FORMAT.getFrameSize());
+            line.start();
+            return new AudioMixer(line);
+        } catch (LineUnavailableException | IllegalArgumentException | SecurityException e) {
+            return NONE;
+        }
+    }
+
+    AudioMixer(SourceDataLine line) {
+        this.line = line;
+        thread = new Thread(this, "audio-mixer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void play(short[] samples) {
+        if (!closed) {
+            requests.offer(samples);
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        thread.interrupt();
+    }
+
+    @Override
+    public void run() {
+        try {
+            int active = 0;
+            while (!closed) {
+                if (active == 0) {
+                    addVoice(voices, positions, requests.take());
+                }
+                short[] next;
+                while ((next = requests.poll()) != null) {
+                    addVoice(voices, positions, next);
+                }
+                active = mix(voices, positions, chunk);
+                line.write(chunk, 0, chunk.length);
+            }
+        } catch (InterruptedException e) {
+            // Closed while waiting for a sound
+        } finally {
+            line.stop();
+            line.close();
+        }
+    }
+
+    /**
+     * Adds a sound to the voices, in place of the one closest to its end if all are playing.
+     *
+     * @param voices    the sounds playing, null for a free voice.
+     * @param positions the next sample of each voice.
+     * @param samples   the sound to add.
+     */
+    static void addVoice(short[][] voices, int[] positions, short[] samples) {
+        int slot = 0;
+        int slotLeft = Integer.MAX_VALUE;
+        for (int i = 0; i < voices.length; i++) {
+            if (voices[i] == null) {
+                slot = i;
+                break;
+            }
+            int left = voices[i].length - positions[i];
+            if (left < slotLeft) {
+                slot = i;
+                slotLeft = left;
+            }
+        }
+        voices[slot] = samples;
+        positions[slot] = 0;
+    }
+
+    /**
+     * Mixes the next chunk of the voices into 16-bit little-endian samples, clipping the sum, and frees the voices
+     * that have ended. Past the end of every voice the chunk is silent.
+     *
+     * @param voices    the sounds playing, null for a free voice.
+     * @param positions the next sample of each voice, advanced by the chunk.
+     * @param out       the chunk to fill, two bytes per sample.
+     * @return the number of voices still playing.
+     */
+    static int mix(short[][] voices, int[] positions, byte[] out) {
+        int samples = out.length / 2;
+        for (int s = 0; s < samples; s++) {
+            int sum = 0;
+            for (int i = 0; i < voices.length; i++) {
+                short[] voice = voices[i];
+                if (voice != null && positions[i] + s < voice.length) {
+                    sum += voice[positions[i] + s];
+                }
+            }
+            sum = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, sum));
+            out[2 * s] = (byte) sum;
+            out[2 * s + 1] = (byte) (sum >> 8);
+        }
+        int active = 0;
+        for (int i = 0; i < voices.length; i++) {
+            if (voices[i] == null) continue;
+            positions[i] += samples;
+            if (positions[i] >= voices[i].length) {
+                voices[i] = null;
+            } else {
+                active++;
+            }
+        }
+        return active;
+    }
+}
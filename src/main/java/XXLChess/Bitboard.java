@@ -0,0 +1,156 @@
+package XXLChess;
+
+/**
+ * Bitboard helpers for the 196 squares of the 14x14 board.
+ * A bitboard is a long[] of WORDS words, where bit (sq & 63) of word (sq >>> 6) marks square sq.
+ * All operations work in place so that the hot paths never allocate.
+ */
+public final class Bitboard {
+    // The number of 64-bit words needed to hold one bit per square.
+    public static final int WORDS = 4;
+
+    private Bitboard() {
+    }
+
+    /**
+     * Creates an empty bitboard.
+     *
+     * @return a new, empty bitboard.
+     */
+    public static long[] create() {
+        return new long[WORDS];
+    }
+
+    /**
+     * Marks a square on the bitboard.
+     *
+     * @param bb the bitboard to modify.
+     * @param sq the square index.
+     */
+    public static void set(long[] bb, int sq) {
+        bb[sq >>> 6] |= 1L << (sq & 63);
+    }
+
+    /**
+     * Unmarks a square on the bitboard.
+     *
+     * @param bb the bitboard to modify.
+     * @param sq the square index.
+     */
+    public static void clear(long[] bb, int sq) {
+        bb[sq >>> 6] &= ~(1L << (sq & 63));
+    }
+
+    /**
+     * Checks whether a square is marked on the bitboard.
+     *
+     * @param bb the bitboard to check.
+     * @param sq the square index.
+     * @return true if the square is marked, false otherwise.
+     */
+    public static boolean test(long[] bb, int sq) {
+        return (bb[sq >>> 6] & (1L << (sq & 63))) != 0;
+    }
+
+    /**
+     * Unmarks every square on the bitboard.
+     *
+     * @param bb the bitboard to clear.
+     */
+    public static void clearAll(long[] bb) {
+        for (int i = 0; i < WORDS; i++) {
+            bb[i] = 0;
+        }
+    }
+
+    /**
+     * Copies one bitboard into another.
+     *
+     * @param src the bitboard to copy from.
+     * @param dst the bitboard to copy into.
+     */
+    public static void copy(long[] src, long[] dst) {
+        System.arraycopy(src, 0, dst, 0, WORDS);
+    }
+
+    /**
+     * Checks whether no square is marked.
+     *
+     * @param bb the bitboard to check.
+     * @return true if the bitboard is empty, false otherwise.
+     */
+    public static boolean isEmpty(long[] bb) {
+        return (bb[0] | bb[1] | bb[2] | bb[3]) == 0;
+    }
+
+    /**
+     * Counts the marked squares.
+     *
+     * @param bb the bitboard to count.
+     * @return the number of marked squares.
+     */
+    public static int count(long[] bb) {
+        return Long.bitCount(bb[0]) + Long.bitCount(bb[1]) + Long.bitCount(bb[2]) + Long.bitCount(bb[3]);
+    }
+
+    /**
+     * Returns the first marked square at or after the given square.
+     * Typical iteration: {@code for (int sq = next(bb, 0); sq >= 0; sq = next(bb, sq + 1))}.
+     *
+     * @param bb   the bitboard to scan.
+     * @param from the square to start scanning from.
+     * @return the index of the next marked square, or -1 if there is none.
+     */
+    public static int next(long[] bb, int from) {
+        int word = from >>> 6;
+        if (word >= WORDS) {
+            return -1;
+        }
+        long bits = bb[word] & (-1L << (from & 63));
+        while (true) {
+            if (bits != 0) {
+                return (word << 6) + Long.numberOfTrailingZeros(bits);
+            }
+            if (++word == WORDS) {
+                return -1;
+            }
+            bits = bb[word];
+        }
+    }
+
+    /**
+     * Intersects a bitboard with another one, in place.
+     *
+     * @param dst   the bitboard to modify.
+     * @param other the bitboard to intersect with.
+     */
+    public static void and(long[] dst, long[] other) {
+        for (int i = 0; i < WORDS; i++) {
+            dst[i] &= other[i];
+        }
+    }
+
+    /**
+     * Removes the squares of another bitboard, in place.
+     *
+     * @param dst   the bitboard to modify.
+     * @param other the squares to remove.
+     */
+    public static void andNot(long[] dst, long[] other) {
+        for (int i = 0; i < WORDS; i++) {
+            dst[i] &= ~other[i];
+        }
+    }
+
+    /**
+     * Adds the squares of another bitboard, in place.
+     *
+     * @param dst   the bitboard to modify.
+     * @param other the squares to add.
+     */
+    public static void or(long[] dst, long[] other) {
+        for (int i = 0; i < WORDS; i++) {
+            dst[i] |= other[i];
+        }
+    }
+}
@@ -2,8 +2,10 @@ package XXLChess;
 
 import XXLChess.Piece.Color;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -14,12 +16,25 @@ public class Board {
     // The width of the game board.
     public static final int BOARD_WIDTH = 14;
 
+    // The row on which a pawn is promoted to a queen.
+    public static final int PROMOTION_ROW = 7;
+
     // A 2D array representing the chess board, each tile may or may not hold a piece.
     private final Tile[][] board;
 
+    // The same tiles indexed by square, y * BOARD_WIDTH + x, to look up the squares of the AttackTables.
+    private final Tile[] tilesBySquare = new Tile[Position.SQUARES];
+
     // A map storing the player agents, key is the color of the pieces that the player controls.
     private final HashMap<Piece.Color, PlayerAgent> agents = new HashMap<>();
 
+    // Tracks the attackers of every tile and keeps the pieces' possible targets up to date across moves.
+    private final AttackMap attackMap = new AttackMap(this);
+
+    // Scratch lists describing the last change, passed to the attack map.
+    private final List<Tile> changedTiles = new ArrayList<>();
+    private final List<Piece> removedPieces = new ArrayList<>();
+
     /**
      * Constructs a new Board object.
      * Initializes the board with empty tiles, and associates the player agents with their respective colors.
@@ -32,6 +47,7 @@ public class Board {
         for (int i = 0; i < BOARD_WIDTH; i++) {
             for (int j = 0; j < BOARD_WIDTH; j++) {
                 board[i][j] = new Tile(i, j, this);
+                tilesBySquare[Position.square(i, j)] = board[i][j];
             }
         }
         agents.put(Piece.Color.WHITE, white);
@@ -87,6 +103,16 @@ public class Board {
         return agents.get(color);
     }
 
+    /**
+     * Returns the attack map of this board. It is built by {@link AttackMap#rebuild()} and kept up to date by
+     * {@link #makeMove(Movement)} and {@link #unmakeMove(UndoRecord)}.
+     *
+     * @return the attack map.
+     */
+    public AttackMap getAttackMap() {
+        return attackMap;
+    }
+
     /**
      * Computes and returns the set of Tiles that can be reached by "jumping" from the source Tile in the specified directions.
      *
@@ -116,34 +142,278 @@ public class Board {
     }
 
     /**
-     * Computes and returns the set of Tiles that can be reached by moving linearly from the source Tile.
+     * Computes and returns the set of Tiles that can be reached by "jumping" from the source Tile onto precomputed
+     * target squares, such as a row of {@link AttackTables#KNIGHT}. The squares are all on the board.
+     *
+     * @param source  the Tile from which the moves start.
+     * @param targets the squares the piece can jump to on an empty board.
+     * @return the set of Tiles that can be reached by jumping from the source Tile.
+     */
+    public Set<Tile> jumpingMove(Tile source, int[] targets) {
+        Set<Tile> possibleMoves = new HashSet<Tile>();
+        Piece.Color color = source.getCurrentPiece().getColor();
+        for (int sq : targets) {
+            Tile tile = tilesBySquare[sq];
+            Piece p = tile.getCurrentPiece();
+            if (p == null || p.getColor() != color) {
+                possibleMoves.add(tile);
+            }
+        }
+        return possibleMoves;
+    }
+
+    /**
+     * Computes and returns the set of Tiles that can be reached by moving linearly from the source Tile in a range of
+     * the directions of {@link Position#DIRECTIONS}, following the precomputed rays of {@link AttackTables#RAYS}.
+     * Directions 0 to 3 are orthogonal and 4 to 7 are diagonal.
      *
-     * @param sourceTile the Tile from which the moves start.
-     * @param xOffset    the change in x-coordinate for each step of the move.
-     * @param yOffset    the change in y-coordinate for each step of the move.
+     * @param sourceTile     the Tile from which the moves start.
+     * @param firstDirection the first direction.
+     * @param endDirection   the direction after the last one.
      * @return the set of Tiles that can be reached by moving linearly from the source Tile.
      */
-    public Set<Tile> linearMove(Tile sourceTile, int xOffset, int yOffset) {
+    public Set<Tile> linearMoves(Tile sourceTile, int firstDirection, int endDirection) {
         Set<Tile> tiles = new HashSet<Tile>();
-        int x = sourceTile.getX(), y = sourceTile.getY();
-        while (true) {
-            x += xOffset;
-            y += yOffset;
-            Tile tile = getTile(x, y);
-            if (tile == null) break;
-            Piece p = tile.getCurrentPiece();
-            if (p != null) {
-                // obstruct by enemy pieces, but can capture one in the front
-                if (p.getColor() != sourceTile.getCurrentPiece().getColor()) {
-                    tiles.add(tile);
+        Piece.Color color = sourceTile.getCurrentPiece().getColor();
+        int[][] rays = AttackTables.RAYS[sourceTile.getSquare()];
+        for (int d = firstDirection; d < endDirection; d++) {
+            for (int sq : rays[d]) {
+                Tile tile = tilesBySquare[sq];
+                Piece p = tile.getCurrentPiece();
+                if (p != null) {
+                    // obstruct by enemy pieces, but can capture one in the front
+                    if (p.getColor() != color) {
+                        tiles.add(tile);
+                    }
+                    break;
                 }
-                break;
+                tiles.add(tile);
             }
-            tiles.add(tile);
         }
         return tiles;
     }
 
+    /**
+     * Returns the rook movement that accompanies a castling move, regardless of whether the king is in check.
+     * A castling move is an unmoved king moving two tiles sideways onto an empty tile; the rook is the last
+     * unmoved rook in that direction and lands on the tile the king passed over, which must be empty unless the rook
+     * is already there.
+     *
+     * @param m the king's movement.
+     * @return the rook's movement, or null if the movement is not a castling move.
+     */
+    public Movement getCastlingMovement(Movement m) {
+        if (
+            !(m.getSourcePiece() instanceof King)
+                || m.getSourcePiece().getHasMovedBefore()
+                || m.getTargetPiece() != null
+                || Math.abs(m.getTargetX() - m.getSourceX()) != 2
+        ) {
+            return null;
+        }
+        int unitDirection = m.getTargetX() - m.getSourceX() > 0 ? 1 : -1;
+        int curX = m.getSourceX();
+        Rook r = null;
+        while (curX >= 0 && curX < BOARD_WIDTH) {
+            Piece p = getPiece(curX, m.getSourceY());
+            if (p instanceof Rook && !p.getHasMovedBefore()) {
+                r = (Rook) p;
+            }
+            curX += unitDirection;
+        }
+        Tile landing = getTile(m.getTargetX() - unitDirection, m.getSourceY());
+        if (r == null || (landing.getCurrentPiece() != null && landing.getCurrentPiece() != r)) {
+            return null;
+        }
+        return new Movement(r, landing);
+    }
+
+    /**
+     * Makes a movement on the board in place, including captures, the rook of a castling move and pawn promotion.
+     * The owners' piece lists are kept in step with the board. The returned record undoes the move.
+     *
+     * @param m the movement to make.
+     * @return the record to pass to {@link #unmakeMove(UndoRecord)}.
+     */
+    public UndoRecord makeMove(Movement m) {
+        Piece piece = m.getSourcePiece();
+        Tile target = m.getTargetTile();
+        Piece captured = target.getCurrentPiece();
+        Movement castling = getCastlingMovement(m);
+
+        int capturedIndex = -1;
+        if (captured != null) {
+            List<Piece> pieces = getPieceList(captured);
+            if (pieces != null) {
+                capturedIndex = pieces.indexOf(captured);
+                if (capturedIndex >= 0) pieces.remove(capturedIndex);
+            }
+        }
+        UndoRecord undo = new UndoRecord(m, piece.getHasMovedBefore(), captured, capturedIndex,
+                castling, castling != null && castling.getSourcePiece().getHasMovedBefore());
+
+        m.perform();
+        if (captured != null) {
+            captured.setCurrentTile(null);
+        }
+        if (castling != null) {
+            castling.perform();
+        }
+
+        // A pawn that reaches the promotion row becomes a queen
+        if (piece instanceof Pawn && target.getY() == PROMOTION_ROW) {
+            Queen queen = new Queen(piece.getColor());
+            target.setCurrentPiece(queen);
+            queen.setCurrentTile(target);
+            piece.setCurrentTile(null);
+            int index = -1;
+            List<Piece> pieces = getPieceList(piece);
+            if (pieces != null) {
+                index = pieces.indexOf(piece);
+                if (index >= 0) pieces.set(index, queen);
+            }
+            undo.setPromotion(queen, index);
+        }
+
+        changedTiles.add(m.getSourceTile());
+        changedTiles.add(target);
+        if (castling != null) {
+            changedTiles.add(castling.getSourceTile());
+            changedTiles.add(castling.getTargetTile());
+        }
+        if (captured != null) removedPieces.add(captured);
+        if (undo.getPromotedPiece() != null) removedPieces.add(piece);
+        updateAttackMap();
+        return undo;
+    }
+
+    /**
+     * Takes back a movement made by {@link #makeMove(Movement)}. Moves must be taken back in reverse order.
+     *
+     * @param undo the record returned by makeMove.
+     */
+    public void unmakeMove(UndoRecord undo) {
+        Movement m = undo.getMovement();
+        Piece piece = m.getSourcePiece();
+        Tile source = m.getSourceTile();
+        Tile target = m.getTargetTile();
+
+        Movement castling = undo.getCastlingMovement();
+        if (castling != null) {
+            Piece rook = castling.getSourcePiece();
+            castling.getTargetTile().setCurrentPiece(null);
+            castling.getSourceTile().setCurrentPiece(rook);
+            rook.setCurrentTile(castling.getSourceTile());
+            rook.setHasMovedBefore(undo.getRookMovedBefore());
+        }
+
+        Piece promoted = undo.getPromotedPiece();
+        if (promoted != null) {
+            promoted.setCurrentTile(null);
+            List<Piece> pieces = getPieceList(piece);
+            if (pieces != null && undo.getPromotedIndex() >= 0) {
+                pieces.set(undo.getPromotedIndex(), piece);
+            }
+        }
+
+        Piece captured = undo.getCapturedPiece();
+        target.setCurrentPiece(captured);
+        if (captured != null) {
+            captured.setCurrentTile(target);
+            List<Piece> pieces = getPieceList(captured);
+            if (pieces != null && undo.getCapturedIndex() >= 0) {
+                pieces.add(undo.getCapturedIndex(), captured);
+            }
+        }
+        source.setCurrentPiece(piece);
+        piece.setCurrentTile(source);
+        piece.setHasMovedBefore(undo.getMovedBefore());
+
+        changedTiles.add(source);
+        changedTiles.add(target);
+        if (castling != null) {
+            changedTiles.add(castling.getSourceTile());
+            changedTiles.add(castling.getTargetTile());
+        }
+        if (promoted != null) removedPieces.add(promoted);
+        updateAttackMap();
+    }
+
+    // Passes the recorded change to the attack map and resets the scratch lists
+    private void updateAttackMap() {
+        attackMap.update(changedTiles, removedPieces);
+        changedTiles.clear();
+        removedPieces.clear();
+    }
+
+    // Returns the piece list of the piece's owner, or null if the colour has no agent
+    private List<Piece> getPieceList(Piece piece) {
+        PlayerAgent owner = getPieceOwner(piece);
+        return owner == null ? null : owner.getPieces();
+    }
+
+    /**
+     * Converts the current board state into a compact Position, without any Tile or Piece objects.
+     * The pawn direction of each colour follows its agent: the human's pawns move up, the computer's move down.
+     *
+     * @param sideToMove the colour whose turn it is.
+     * @return a Position with the same pieces as the board.
+     */
+    public Position toPosition(Piece.Color sideToMove) {
+        Position position = new Position();
+        for (int i = 0; i < BOARD_WIDTH; i++) {
+            for (int j = 0; j < BOARD_WIDTH; j++) {
+                Piece piece = board[i][j].getCurrentPiece();
+                if (piece != null) {
+                    int code = Position.codeOf(piece.getColor() == Color.BLACK ? Character.toUpperCase(piece.type) : piece.type);
+                    position.put(Position.square(i, j), code, !piece.getHasMovedBefore());
+                }
+            }
+        }
+        for (Piece.Color color : Piece.Color.values()) {
+            position.setPawnDirection(Position.colorIndex(color), agents.get(color) instanceof Human ? -1 : 1);
+        }
+        position.setSideToMove(Position.colorIndex(sideToMove));
+        return position;
+    }
+
+    /**
+     * Converts a move encoded by {@link MoveGenerator} into a Movement of the piece on its from-square.
+     *
+     * @param move the encoded move.
+     * @return the movement on this board.
+     */
+    public Movement toMovement(int move) {
+        int from = MoveGenerator.fromOf(move);
+        int to = MoveGenerator.toOf(move);
+        return new Movement(getPiece(Position.xOf(from), Position.yOf(from)), getTile(Position.xOf(to), Position.yOf(to)));
+    }
+
+    /**
+     * Creates a new Board holding the pieces of a Position.
+     * Like {@link #clone()}, the new pieces are not added to the agents' piece lists and their possible targets are not computed.
+     *
+     * @param position the position to convert.
+     * @param white    the player agent who controls the white pieces.
+     * @param black    the player agent who controls the black pieces.
+     * @return a new Board with the same pieces as the position.
+     */
+    public static Board fromPosition(Position position, PlayerAgent white, PlayerAgent black) {
+        Board converted = new Board(white, black);
+        for (int sq = 0; sq < Position.SQUARES; sq++) {
+            int code = position.pieceAt(sq);
+            if (code == Position.NO_PIECE) {
+                continue;
+            }
+            Piece piece = Piece.createPiece(Position.charOf(code));
+            Tile tile = converted.getTile(Position.xOf(sq), Position.yOf(sq));
+            piece.setHasMovedBefore(!position.isUnmoved(sq));
+            tile.setCurrentPiece(piece);
+            piece.setCurrentTile(tile);
+        }
+        return converted;
+    }
+
     /**
      * Clones the current board state and returns a new Board object with the same state.
      *
@@ -2,15 +2,38 @@ package XXLChess;
 
 import XXLChess.Piece.Color;
 
-import java.util.HashSet;
+import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * This class represents a computer player (bot) in the chess game.
  * It extends the abstract PlayerAgent class and provides a method for making a decision on the next move.
+ * With a {@link SearchStrategy}, the decision can also be made in the background, see {@link #think(Game)}.
+ * A bot with an {@link OpeningBook} plays the book's moves without searching while the game is in the book,
+ * and a bot with {@link Tablebases} plays the endgames they cover perfectly.
  */
 public class Bot extends PlayerAgent {
+    // The remaining time in seconds below which a running search is told to stop
+    public static final int SHORT_TIME_SECS = 2;
+
+    // The thread the bots search on, so that the render thread never waits for a search
+    private static final ExecutorService SEARCH_EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "bot-search");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     private BotAIStrategy strategy;
+    private Future<Integer> pendingSearch; // The background search for the next move, if one was started
+    private TimeManager pendingTime;       // The time manager of the pending search, which also stops it
+    private OpeningBook openingBook;       // null to always search
+    private Tablebases tablebases;         // null to always search
+    private final Random bookRandom = new Random();
 
     /**
      * Constructor for the Bot class.
@@ -21,29 +44,137 @@ public class Bot extends PlayerAgent {
      */
     public Bot(Color color, int remainingTime, int timeIncrement) {
         super(color, remainingTime, timeIncrement);
-        strategy = new RandomSelectionStrategy();
+        strategy = new AlphaBetaStrategy();
     }
 
     /**
      * Make a decision on the next move.
-     * The strategy is to choose a random move from the set of legal moves that do not lead to a threat against the king.
-     * If no such moves exist, return null.
+     * The strategy chooses among the legal moves that do not lead to a threat against the king; by default it searches
+     * them with {@link AlphaBetaStrategy}. If no such moves exist, return null.
      *
      * @param ctx The current game context.
      * @return The selected move, or null if no safe moves are possible.
      */
     public Movement makeDecision(Game ctx) {
-        Set<Movement> moves = ctx.getAllLegalMovements(this);  // Get all legal moves
-        Set<Movement> notBadMoves = new HashSet<>();  // Store moves that don't lead to a threat against the king
+        // Keep the moves that don't lead to a threat against the king
+        Set<Movement> notBadMoves = ctx.getSafeMovements(this);
+        return strategy.choose(ctx, this, notBadMoves);
+    }
+
+    /**
+     * Starts choosing the next move in the background, unless a search is already pending.
+     * The search runs on a snapshot of the board, so the game may keep rendering in the meantime.
+     * Strategies that are not a {@link SearchStrategy} decide in {@link #takeDecision(Game)} instead.
+     *
+     * @param ctx The current game context.
+     */
+    public void think(Game ctx) {
+        if (pendingSearch != null || !(strategy instanceof SearchStrategy)) {
+            return;
+        }
+        SearchStrategy search = (SearchStrategy) strategy;
+        Position snapshot = ctx.getBoard().toPosition(getColor());
+        // A book or tablebase move is played right away, and leaves the whole clock for the search
+        int knownMove = openingBook == null ? -1 : openingBook.probe(snapshot, bookRandom);
+        if (knownMove < 0 && tablebases != null) {
+            knownMove = tablebases.bestMove(snapshot);
+        }
+        if (knownMove >= 0) {
+            pendingSearch = CompletableFuture.completedFuture(knownMove);
+            return;
+        }
+        TimeManager time = search.budget(this, snapshot);
+        pendingTime = time;
+        pendingSearch = SEARCH_EXECUTOR.submit(() -> search.search(snapshot, time));
+    }
+
+    /**
+     * Checks whether {@link #takeDecision(Game)} can return without waiting.
+     *
+     * @return false while a background search is running.
+     */
+    public boolean hasDecision() {
+        return pendingSearch == null || pendingSearch.isDone();
+    }
+
+    /**
+     * Returns the move chosen by the background search, waiting for it if it is still running.
+     * Without a pending search, or if the search failed or chose no legal move, the move is chosen right away by
+     * {@link #makeDecision(Game)}.
+     *
+     * @param ctx The current game context.
+     * @return The selected move, or null if no safe moves are possible.
+     */
+    public Movement takeDecision(Game ctx) {
+        if (pendingSearch == null) {
+            return makeDecision(ctx);
+        }
+        int move;
+        try {
+            move = pendingSearch.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            move = -1;
+        } catch (ExecutionException e) {
+            // A failed search is a bug, so it is reported rather than hidden behind the fallback below
+            System.err.println("The background search failed:");
+            e.getCause().printStackTrace();
+            move = -1;
+        } finally {
+            pendingSearch = null;
+            pendingTime = null;
+        }
+        // The search's move only becomes a Movement here, once it is known to be legal on the board
+        if (move >= 0 && ctx.isLegalMove(getColor(), move)) {
+            return ctx.getBoard().toMovement(move);
+        }
+        return makeDecision(ctx);
+    }
 
-        // Iterate through all moves
-        for (Movement m : moves) {
-            // If the move doesn't lead to a threat against the king, add it to notBadMoves
-            if (ctx.predictThreats(getOpponent(), m, getKing()).size() == 0) {
-                notBadMoves.add(m);
-            }
+    /**
+     * Asks a background search to return its best move so far. Only that search is stopped, even if it has not
+     * started yet, so that a later search with the same strategy is unaffected.
+     */
+    public void stopThinking() {
+        if (!hasDecision() && pendingTime != null) {
+            pendingTime.stop();
+        }
+    }
+
+    /**
+     * Abandons a running background search, whose move will not be played.
+     */
+    public void cancelThinking() {
+        if (pendingSearch != null) {
+            stopThinking();
+            pendingSearch.cancel(false);
+            pendingSearch = null;
+            pendingTime = null;
+        }
+    }
+
+    /**
+     * Tick the bot's timer, and stop a running search once the remaining time is short.
+     */
+    @Override
+    public void tick() {
+        super.tick();
+        stopIfShortOfTime();
+    }
+
+    /**
+     * Charge the bot's timer with elapsed seconds, and stop a running search once the remaining time is short.
+     */
+    @Override
+    public void elapse(double seconds) {
+        super.elapse(seconds);
+        stopIfShortOfTime();
+    }
+
+    private void stopIfShortOfTime() {
+        if (!hasDecision() && getRemainingTime() < SHORT_TIME_SECS) {
+            stopThinking();
         }
-        return strategy.choose(notBadMoves);
     }
 
     public BotAIStrategy getStrategy() {
@@ -51,8 +182,29 @@ public class Bot extends PlayerAgent {
     }
 
     public void setStrategy(BotAIStrategy strategy) {
+        cancelThinking();
+        // The replaced strategy is not used again, so its search threads are released
+        if (this.strategy instanceof SearchStrategy && this.strategy != strategy) {
+            ((SearchStrategy) this.strategy).close();
+        }
         this.strategy = strategy;
     }
 
+    public OpeningBook getOpeningBook() {
+        return openingBook;
+    }
+
+    public void setOpeningBook(OpeningBook openingBook) {
+        this.openingBook = openingBook;
+    }
+
+    public Tablebases getTablebases() {
+        return tablebases;
+    }
+
+    public void setTablebases(Tablebases tablebases) {
+        this.tablebases = tablebases;
+    }
+
 }
 
@@ -4,6 +4,19 @@ import java.util.Set;
 
 public interface BotAIStrategy {
     Movement choose(Set<Movement> availableMovements);
+
+    /**
+     * Chooses a move with the game at hand. Strategies that do not look at the board keep the default,
+     * which ignores the game.
+     *
+     * @param ctx                the current game.
+     * @param agent              the player to move.
+     * @param availableMovements the legal moves of the player.
+     * @return the chosen move, or null if there is none.
+     */
+    default Movement choose(Game ctx, PlayerAgent agent, Set<Movement> availableMovements) {
+        return choose(availableMovements);
+    }
 }
 
 class RandomSelectionStrategy implements BotAIStrategy {
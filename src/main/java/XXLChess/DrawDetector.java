@@ -0,0 +1,149 @@
+package XXLChess;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * DrawDetector follows the positions of a game and tells when the game is drawn by rule: when the same position
+ * has come up three times, when no piece was captured and no pawn moved for fifty moves of each side, or when
+ * neither side has the material left to mate.
+ * <p>
+ * Positions are told apart by their Zobrist key, which covers the pieces, their unmoved flags and the side to move.
+ * The keys of the game so far are kept on a stack, and counted in a map, so that both a move and the repetition
+ * check take constant time. Keys from before a capture or pawn move are not forgotten, but can never come back.
+ */
+public class DrawDetector {
+    // The number of times a position must come up for a draw
+    public static final int REPETITIONS = 3;
+
+    // The number of plies without a capture or pawn move after which the game is drawn
+    public static final int NO_PROGRESS_PLIES = 100;
+
+    /**
+     * Why a game is drawn.
+     */
+    public enum Reason {
+        REPETITION,           // The same position came up three times
+        NO_PROGRESS,          // No capture or pawn move for fifty moves of each side
+        INSUFFICIENT_MATERIAL // Neither side can mate
+    }
+
+    // The keys of the positions so far, and the plies since the last capture or pawn move in each of them
+    private long[] keys = new long[64];
+    private int[] quietPlies = new int[64];
+    private int size;
+
+    // How often each key is on the stack
+    private final Map<Long, Integer> counts = new HashMap<>();
+
+    /**
+     * Constructs a detector for a game starting in a position.
+     *
+     * @param startKey the key of the starting position.
+     */
+    public DrawDetector(long startKey) {
+        add(startKey, 0);
+    }
+
+    /**
+     * Records a move.
+     *
+     * @param key      the key of the position after the move.
+     * @param progress whether the move captured a piece or moved a pawn, which resets the fifty-move count.
+     */
+    public void push(long key, boolean progress) {
+        add(key, progress ? 0 : quietPlies[size - 1] + 1);
+    }
+
+    /**
+     * Takes back the last move recorded by {@link #push(long, boolean)}.
+     *
+     * @throws IllegalStateException if there is no move to take back.
+     */
+    public void pop() {
+        if (size <= 1) {
+            throw new IllegalStateException("No move to take back");
+        }
+        size--;
+        counts.merge(keys[size], -1, Integer::sum);
+    }
+
+    private void add(long key, int quiet) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            quietPlies = Arrays.copyOf(quietPlies, size * 2);
+        }
+        keys[size] = key;
+        quietPlies[size] = quiet;
+        size++;
+        counts.merge(key, 1, Integer::sum);
+    }
+
+    /**
+     * Returns how often the current position has come up, including now.
+     *
+     * @return the number of times, at least 1.
+     */
+    public int getRepetitions() {
+        return counts.get(keys[size - 1]);
+    }
+
+    /**
+     * Returns the number of plies since the last capture or pawn move.
+     *
+     * @return the number of plies.
+     */
+    public int getQuietPlies() {
+        return quietPlies[size - 1];
+    }
+
+    /**
+     * Checks whether the current position is drawn by rule. Stalemate is left to the caller, which knows the legal
+     * moves.
+     *
+     * @param position the current position, whose key was the last one recorded.
+     * @return the reason of the draw, or null if the game goes on.
+     */
+    public Reason check(Position position) {
+        if (getRepetitions() >= REPETITIONS) {
+            return Reason.REPETITION;
+        }
+        if (getQuietPlies() >= NO_PROGRESS_PLIES) {
+            return Reason.NO_PROGRESS;
+        }
+        if (isInsufficientMaterial(position)) {
+            return Reason.INSUFFICIENT_MATERIAL;
+        }
+        return null;
+    }
+
+    /**
+     * Checks whether neither side can ever mate. Pawns may still promote, and every piece but the knight, the bishop
+     * and the camel can mate with the help of its king, so this is the case when, besides the kings, there is at most
+     * a single knight, bishop or camel on the board.
+     *
+     * @param position the position.
+     * @return true if no sequence of moves leads to a mate.
+     */
+    public static boolean isInsufficientMaterial(Position position) {
+        if (position.getKingSquare(Position.WHITE) < 0 || position.getKingSquare(Position.BLACK) < 0) {
+            return false;
+        }
+        int others = Bitboard.count(position.getOccupancy()) - 2;
+        if (others == 0) {
+            return true;
+        }
+        if (others > 1) {
+            return false;
+        }
+        for (int color = 0; color < 2; color++) {
+            for (int type : new int[]{Position.KNIGHT, Position.BISHOP, Position.CAMEL}) {
+                if (!Bitboard.isEmpty(position.getPieces(Position.pieceCode(color, type)))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
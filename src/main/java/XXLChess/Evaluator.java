@@ -0,0 +1,219 @@
+package XXLChess;
+
+/**
+ * Evaluator scores positions in thousandths of a pawn. A score has four parts:
+ * <ul>
+ *     <li>material, using the piece values of the {@link Piece} classes;</li>
+ *     <li>piece-square values, which favour central squares for the pieces, advanced pawns, and a king at home;</li>
+ *     <li>king safety: pieces sheltering the king, and enemy pieces close to it;</li>
+ *     <li>mobility, the number of squares the pieces other than pawns and kings can move to.</li>
+ * </ul>
+ * {@link Position} keeps the material and piece-square sum up to date as pieces are put and removed, so making and
+ * unmaking a move updates it at no extra cost. King safety only looks at the squares around the kings. Mobility
+ * counts leaps from the {@link AttackTables} and walks the slider rays up to the first piece.
+ */
+public final class Evaluator {
+    // The value of each piece type, taken from the Piece classes (the king counts as 0)
+    static final int[] VALUES = new int[Position.PIECE_TYPES];
+
+    // The material and piece-square value of each piece type on each square, for a side whose pawns move up the board.
+    // A side whose pawns move down the board uses the square mirrored top to bottom.
+    static final int[][] PIECE_SQUARE = new int[Position.PIECE_TYPES][Position.SQUARES];
+
+    // The bonus per step towards the centre of the board, indexed by piece type. Leapers depend on the centre most;
+    // the pawn and king tables are built separately.
+    private static final int[] CENTRE_BONUS = {
+            0,  // pawn
+            4,  // rook
+            20, // knight
+            10, // bishop
+            15, // archbishop
+            12, // camel
+            15, // general
+            5,  // amazon
+            0,  // king
+            10, // chancellor
+            5   // queen
+    };
+
+    // The bonus per row a pawn has advanced, and per step its column is from the edge
+    private static final int PAWN_ADVANCE_BONUS = 20;
+    private static final int PAWN_CENTRE_BONUS = 4;
+
+    // The penalty per row the king has left its home row, up to KING_MAX_ROWS rows
+    private static final int KING_ADVANCE_PENALTY = 25;
+    private static final int KING_MAX_ROWS = 6;
+
+    // The bonus per friendly piece on the three squares in front of the king
+    private static final int SHELTER_BONUS = 30;
+
+    // The penalty per enemy piece other than a pawn within two squares of the king
+    private static final int KING_PRESSURE_PENALTY = 25;
+
+    // The bonus per square a piece can move to
+    private static final int MOBILITY_BONUS = 5;
+
+    static {
+        for (int type = 0; type < Position.PIECE_TYPES; type++) {
+            double value = Piece.createPiece(Position.charOf(Position.pieceCode(Position.WHITE, type))).getValue();
+            VALUES[type] = Double.isInfinite(value) ? 0 : (int) Math.round(value * 1000);
+        }
+        int last = Board.BOARD_WIDTH - 1;
+        for (int sq = 0; sq < Position.SQUARES; sq++) {
+            int x = Position.xOf(sq);
+            int y = Position.yOf(sq);
+            // Steps from the edge of the board, 0 to 6 in each direction
+            int columnCentre = (last - Math.abs(2 * x - last)) / 2;
+            int rowCentre = (last - Math.abs(2 * y - last)) / 2;
+            // Rows away from the home row at the bottom of the board
+            int rowsAdvanced = last - y;
+            for (int type = 0; type < Position.PIECE_TYPES; type++) {
+                int bonus;
+                if (type == Position.PAWN) {
+                    bonus = PAWN_ADVANCE_BONUS * Math.max(0, rowsAdvanced - 1) + PAWN_CENTRE_BONUS * columnCentre;
+                } else if (type == Position.KING) {
+                    bonus = -KING_ADVANCE_PENALTY * Math.min(rowsAdvanced, KING_MAX_ROWS);
+                } else {
+                    bonus = CENTRE_BONUS[type] * (columnCentre + rowCentre);
+                }
+                PIECE_SQUARE[type][sq] = VALUES[type] + bonus;
+            }
+        }
+    }
+
+    private Evaluator() {
+    }
+
+    /**
+     * Returns the material and piece-square value of a piece.
+     *
+     * @param type          the piece type.
+     * @param sq            the square of the piece.
+     * @param pawnDirection the pawn direction of the piece's colour, -1 if its pawns move up the board.
+     * @return the value.
+     */
+    public static int pieceSquare(int type, int sq, int pawnDirection) {
+        if (pawnDirection > 0) {
+            sq = Position.square(Position.xOf(sq), Board.BOARD_WIDTH - 1 - Position.yOf(sq));
+        }
+        return PIECE_SQUARE[type][sq];
+    }
+
+    /**
+     * Computes the material and piece-square balance of a position from scratch.
+     *
+     * @param position the position.
+     * @return the balance of white over black, which equals {@link Position#getScore()} when the incremental
+     *         updates are correct.
+     */
+    public static int computeScore(Position position) {
+        int score = 0;
+        for (int sq = 0; sq < Position.SQUARES; sq++) {
+            int code = position.pieceAt(sq);
+            if (code == Position.NO_PIECE) continue;
+            int color = Position.colorOf(code);
+            int value = pieceSquare(Position.typeOf(code), sq, position.getPawnDirection(color));
+            score += color == Position.WHITE ? value : -value;
+        }
+        return score;
+    }
+
+    /**
+     * Evaluates a position from the point of view of the side to move.
+     *
+     * @param position the position.
+     * @return the score in thousandths of a pawn.
+     */
+    public static int evaluate(Position position) {
+        int score = position.getScore()
+                + kingSafety(position, Position.WHITE) - kingSafety(position, Position.BLACK)
+                + mobility(position, Position.WHITE) - mobility(position, Position.BLACK);
+        return position.getSideToMove() == Position.WHITE ? score : -score;
+    }
+
+    /**
+     * Returns the mobility score of a colour: the squares its pieces other than pawns and kings can move to, empty
+     * or held by an enemy piece, whether or not the move would leave the king in check.
+     *
+     * @param position the position.
+     * @param color    the colour.
+     * @return the score in thousandths of a pawn.
+     */
+    public static int mobility(Position position, int color) {
+        long[] own = position.getColorOccupancy(color);
+        int squares = 0;
+        for (int sq = Bitboard.next(own, 0); sq >= 0; sq = Bitboard.next(own, sq + 1)) {
+            int type = Position.typeOf(position.pieceAt(sq));
+            if (type == Position.PAWN || type == Position.KING) continue;
+            int abilities = Position.ABILITIES[type];
+            if ((abilities & Position.LEAPS_KNIGHT) != 0) squares += leaps(own, AttackTables.KNIGHT[sq]);
+            if ((abilities & Position.LEAPS_CAMEL) != 0) squares += leaps(own, AttackTables.CAMEL[sq]);
+            if ((abilities & Position.STEPS_KING) != 0) squares += leaps(own, AttackTables.KING[sq]);
+            int[][] rays = AttackTables.RAYS[sq];
+            if ((abilities & Position.SLIDES_ORTHOGONALLY) != 0) {
+                for (int d = 0; d < 4; d++) squares += slides(position, own, rays[d]);
+            }
+            if ((abilities & Position.SLIDES_DIAGONALLY) != 0) {
+                for (int d = 4; d < 8; d++) squares += slides(position, own, rays[d]);
+            }
+        }
+        return MOBILITY_BONUS * squares;
+    }
+
+    // Counts the leap targets not held by a friendly piece
+    private static int leaps(long[] own, int[] targets) {
+        int squares = 0;
+        for (int target : targets) {
+            if (!Bitboard.test(own, target)) squares++;
+        }
+        return squares;
+    }
+
+    // Counts the squares of a ray up to the first piece, including it if it is an enemy
+    private static int slides(Position position, long[] own, int[] ray) {
+        int squares = 0;
+        for (int sq : ray) {
+            if (position.pieceAt(sq) != Position.NO_PIECE) {
+                return Bitboard.test(own, sq) ? squares : squares + 1;
+            }
+            squares++;
+        }
+        return squares;
+    }
+
+    /**
+     * Returns the king safety score of a colour.
+     *
+     * @param position the position.
+     * @param color    the colour.
+     * @return the score in thousandths of a pawn, or 0 if the colour has no king.
+     */
+    public static int kingSafety(Position position, int color) {
+        int king = position.getKingSquare(color);
+        if (king < 0) {
+            return 0;
+        }
+        int kx = Position.xOf(king);
+        int ky = Position.yOf(king);
+        int score = 0;
+        int front = ky + position.getPawnDirection(color);
+        for (int x = kx - 1; x <= kx + 1; x++) {
+            if (!Position.onBoard(x, front)) continue;
+            int code = position.pieceAt(Position.square(x, front));
+            if (code != Position.NO_PIECE && Position.colorOf(code) == color) {
+                score += SHELTER_BONUS;
+            }
+        }
+        for (int y = ky - 2; y <= ky + 2; y++) {
+            for (int x = kx - 2; x <= kx + 2; x++) {
+                if (!Position.onBoard(x, y)) continue;
+                int code = position.pieceAt(Position.square(x, y));
+                if (code != Position.NO_PIECE && Position.colorOf(code) != color
+                        && Position.typeOf(code) != Position.PAWN) {
+                    score -= KING_PRESSURE_PENALTY;
+                }
+            }
+        }
+        return score;
+    }
+}
@@ -1,7 +1,15 @@
 package XXLChess;
 
 import XXLChess.GameReport.EndReason;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.InvalidObjectException;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Scanner;
 import java.util.Set;
 
 /**
@@ -39,12 +47,40 @@ public class Game implements Tickable {
   // Chess board
   private final Board board;
 
+  // The listeners to the game's moves and end
+  private final GameEventBus eventBus = new GameEventBus();
+
   // Piece movement speed
   private final int pieceMovementSpeed;
 
   // Max movement time
   private final int maxMovementTime;
 
+  // Instant mode: no animations, warnings or sounds
+  private boolean instant;
+
+  // Measures the time between ticks, which is charged to the player to move
+  private WallClock wallClock = new WallClock(TimeSource.SYSTEM);
+
+  // Legal move generator and its output buffer
+  private final MoveGenerator moveGenerator = new MoveGenerator();
+  private final int[] moveBuffer = new int[MoveGenerator.MAX_MOVES];
+
+  // Bumped whenever the pieces change, so that cached legal moves can tell they are out of date
+  private long positionVersion;
+
+  // The safe movements of each colour, indexed by colour, as of some position version
+  private final SafeMovements[] safeMovementCache = new SafeMovements[2];
+
+  // The positions of the game so far, for the draw rules
+  private DrawDetector drawDetector;
+
+  // Check, checkmate or stalemate of the player to move, and the position version and player it was evaluated for
+  private PositionStatus positionStatus;
+  private DrawDetector.Reason drawReason;
+  private long evaluatedVersion = -1;
+  private PlayerAgent evaluatedPlayer;
+
   /**
    * Constructs a Game with the provided parameters.
    *
@@ -87,6 +123,72 @@ public class Game implements Tickable {
     this.maxMovementTime = maxMovementTime;
   }
 
+  /**
+   * Loads a chess level from a file, placing its pieces on the board and in the agents' piece lists.
+   *
+   * @param layoutFilename the name of the file containing the level layout.
+   * @throws Exception if an error occurs during loading.
+   */
+  public void loadLevel(String layoutFilename) throws Exception {
+    Scanner sc = null;
+    File layout = new File(layoutFilename);
+    try {
+      sc = new Scanner(layout);
+      int x = 0, y = 0;
+      // The layout file will contain a grid of text characters, where each character represents the piece that should be in that cell.
+      while (sc.hasNextLine()) {
+        String row = sc.nextLine();
+        for (Character c : row.toCharArray()) {
+          // Create a new piece based on the character from the layout file
+          Piece cur = Piece.createPiece(c);
+          if (c == ' ' || c == '.') {
+            x++;
+            continue;
+          }
+          if (cur == null) {
+            throw new InvalidObjectException(c.toString());
+          }
+          // Get the appropriate agent for the piece based on its color
+          PlayerAgent agent = board.getAgentByColor(cur.getColor());
+          // Get the tile corresponding to the current position
+          Tile parentTile = getTile(x, y);
+          if (parentTile == null) {
+            throw new ArrayIndexOutOfBoundsException();
+          }
+          // Set the current tile and piece
+          cur.setCurrentTile(parentTile);
+          parentTile.setCurrentPiece(cur);
+          // Add the piece to the agent's list of pieces
+          agent.getPieces().add(cur);
+          // If the piece is a king, set it as the agent's king
+          if (cur instanceof King) {
+            if (agent.getKing() == null) {
+              agent.setKing((King) cur);
+            } else {
+              throw new Exception("A player must not have more than one king.");
+            }
+          }
+          x++;
+        }
+        y++;
+        x = 0;
+      }
+      // Refresh the available moves for the game
+      refreshAvailableMoves(board);
+      drawDetector = new DrawDetector(getPosition().getKey());
+    } catch (ArrayIndexOutOfBoundsException e) {
+      throw new Exception("The map must have the size of 14*14.");
+    } catch (InvalidObjectException e) {
+      throw new Exception(
+        "Unexpected piece character '" + e.getMessage() + "'"
+      );
+    } catch (FileNotFoundException e) {
+      throw new Exception("File '" + layoutFilename + "' not found");
+    } finally {
+      if (sc != null) sc.close();
+    }
+  }
+
   /**
    * Returns the current in-check incident.
    *
@@ -138,9 +240,59 @@ public class Game implements Tickable {
    * @param warning the warning to be set.
    */
   public void setWarning(KingProtectionWarning warning) {
+    if (instant) {
+      // Nobody is watching, so the warning is skipped
+      return;
+    }
     this.warning = warning;
   }
 
+  /**
+   * Returns the source of the time charged to the players.
+   *
+   * @return the time source.
+   */
+  public TimeSource getTimeSource() {
+    return wallClock.getSource();
+  }
+
+  /**
+   * Sets the source of the time charged to the players, such as a {@link SimulatedTimeSource} to fast-forward
+   * a simulation. The time until the next tick is not charged.
+   *
+   * @param source the time source.
+   */
+  public void setTimeSource(TimeSource source) {
+    wallClock = new WallClock(source);
+  }
+
+  /**
+   * Returns whether the game runs in instant mode.
+   *
+   * @return true if the game runs in instant mode.
+   */
+  public boolean isInstant() {
+    return instant;
+  }
+
+  /**
+   * Turns instant mode on or off. In instant mode, for simulations and tests without a window, moves take effect
+   * at once: there are no animations, warnings or sounds, so the game never renders and the next turn starts
+   * on the next tick. The clocks are charged with the time of the game's {@link TimeSource} by {@link #tick()},
+   * or with the explicit time passed to {@link #tick(double)}.
+   *
+   * @param instant true to turn instant mode on.
+   */
+  public void setInstant(boolean instant) {
+    this.instant = instant;
+    wallClock.reset();
+    if (instant) {
+      animation = null;
+      rookAnimation = null;
+      warning = null;
+    }
+  }
+
   /**
    * Returns the current animation.
    *
@@ -174,7 +326,39 @@ public class Game implements Tickable {
    * @param report the game report to be set.
    */
   public void setReport(GameReport report) {
+    boolean ended = this.report == null && report != null;
     this.report = report;
+    if (ended && eventBus.hasListeners(GameEvent.Type.GAME_END.mask())) {
+      eventBus.publish(GameEvent.gameEnd(this, report));
+    }
+  }
+
+  /**
+   * Returns the bus on which the game publishes its moves and its end. Sounds, animations and logs subscribe to
+   * it; a game without listeners only applies the rules.
+   *
+   * @return the event bus.
+   */
+  public GameEventBus getEventBus() {
+    return eventBus;
+  }
+
+  /**
+   * Returns the speed at which pieces are animated.
+   *
+   * @return the piece movement speed.
+   */
+  public int getPieceMovementSpeed() {
+    return pieceMovementSpeed;
+  }
+
+  /**
+   * Returns the longest time a piece animation may take.
+   *
+   * @return the maximum movement time.
+   */
+  public int getMaxMovementTime() {
+    return maxMovementTime;
   }
 
 
@@ -187,6 +371,15 @@ public class Game implements Tickable {
     return board;
   }
 
+  /**
+   * Returns a compact snapshot of the board, with the current player to move.
+   *
+   * @return the current position.
+   */
+  public Position getPosition() {
+    return board.toPosition(currentPlayer.getColor());
+  }
+
   /**
    * Returns a specific tile from the board.
    *
@@ -246,29 +439,56 @@ public class Game implements Tickable {
   /**
    * The tick method is called every frame and handles the game logic. This includes checking if the game has ended,
    * checking for in-check incidents, rendering warnings and animations, and handling player and computer turns.
+   * The player to move is charged the time since the last tick, as measured on the game's {@link TimeSource},
+   * so the clocks keep time whatever the frame rate.
    */
   public void tick() {
+    wallClock.tick();
+    advance(wallClock.getElapsedNanos() / 1e9);
+  }
+
+  /**
+   * Handles the game logic like {@link #tick()}, but charges the player to move the given time instead.
+   * Used in instant mode to drive the clocks by explicit time deltas. The time until the next {@link #tick()}
+   * is not charged.
+   *
+   * @param seconds the time that has elapsed since the last tick, in seconds.
+   */
+  public void tick(double seconds) {
+    wallClock.reset();
+    advance(seconds);
+  }
+
+  // Charges a player's clock with the time of one tick
+  private void chargeClock(PlayerAgent agent, double seconds) {
+    agent.elapse(seconds);
+  }
+
+  // The game logic of a tick, which charges the player to move the given seconds
+  private void advance(double seconds) {
     // Check if the game has ended
     if (isEnded()) {
       // If the game has ended and a report hasn't been created yet, create one
       if (report == null) {
-        report =
+        setReport(
           new GameReport(
             this,
             humanAgent.isEnded()
               ? GameReport.EndReason.PLAYER_TIMEOUT
               : GameReport.EndReason.COMPUTER_TIMEOUT
-          );
+          )
+        );
       }
     }
 
-    InCheckIncident inc = detectInCheck(currentPlayer);
-    setInCheck(inc);
+    // Check and mate were evaluated when the position last changed, so a frame costs the same on any board
+    PositionStatus status = getPositionStatus();
 
     // Handle game logic based on the current game status
     switch (getGameStatus()) {
       case ENDED:
-        // Nothing to do if the game has ended
+        // Nothing to do if the game has ended, apart from abandoning the bot's search
+        botAgent.cancelThinking();
         break;
       case RENDERING_WARNING:
         // Handle warning rendering
@@ -293,26 +513,25 @@ public class Game implements Tickable {
         break;
       case PLAYER_TURN:
         // Handle player's turn
-        checkmateInspection();
-        if (getGameStatus() == GameStatus.ENDED) {
+        if (endIfOver(status)) {
           return;
         }
-        humanAgent.tick();
+        chargeClock(humanAgent, seconds);
         break;
       case COMPUTER_TURN:
         // Handle computer's turn
         Movement m;
-        if (inCheck != null) {
-          // If the computer is in check, inspect for checkmate
-          Set<Movement> solution = checkmateInspection();
-          if (getGameStatus() == GameStatus.ENDED) {
-            return;
-          }
-          m = solution.iterator().next();
-        } else {
-          // If the computer is not in check, make a decision
-          m = botAgent.makeDecision(this);
+        if (endIfOver(status)) {
+          return;
+        }
+        // Let the computer think in the background and keep rendering until it has decided; in check, the search
+        // only sees the moves out of check
+        botAgent.think(this);
+        if (!botAgent.hasDecision()) {
+          chargeClock(botAgent, seconds);
+          break;
         }
+        m = botAgent.takeDecision(this);
         if (m != null) {
           try {
             movePiece(m);
@@ -322,37 +541,82 @@ public class Game implements Tickable {
             );
           }
         } else {
-          report = new GameReport(this, EndReason.PLAYER_RESIGNED);
+          setReport(new GameReport(this, EndReason.PLAYER_RESIGNED));
         }
-        botAgent.tick();
+        chargeClock(botAgent, seconds);
         break;
     }
   }
 
   /**
-   * Inspects the game for a checkmate situation. If the current player is in check and there are no legal moves,
-   * a GameReport is created with a checkmate end reason.
+   * Returns whether the player to move is in check, checkmated or stalemated, or whether the game is drawn by rule.
+   * The status is evaluated once for each position and player to move, when it is first asked for after a change,
+   * and read from then on.
    *
-   * @return a Set of legal movements if the current player is in check, or null if not.
+   * @return the status of the position for the player to move.
    */
-  public Set<Movement> checkmateInspection() {
-    Set<Movement> solution = new HashSet<>();
-    if (inCheck != null) {
-      solution = solveIncident(inCheck);
-      // If there are no legal moves, the player is checkmated
-      if (solution.size() == 0) {
-        setReport(
-          new GameReport(
-            this,
-            inCheck.getThreatenedKing().getColor() == humanAgent.getColor()
-              ? EndReason.PLAYER_CHECKMATED
-              : EndReason.COMPUTER_CHECKMATED
-          )
-        );
-      }
-      return solution;
+  public PositionStatus getPositionStatus() {
+    if (evaluatedVersion != positionVersion || evaluatedPlayer != currentPlayer) {
+      evaluatePosition();
     }
-    return null;
+    return positionStatus;
+  }
+
+  /**
+   * Returns why the game is drawn by rule, if {@link #getPositionStatus()} is {@link PositionStatus#DRAW}.
+   *
+   * @return the reason of the draw, or null if the game is not drawn by rule.
+   */
+  public DrawDetector.Reason getDrawReason() {
+    getPositionStatus();
+    return drawReason;
+  }
+
+  // Evaluates check, checkmate, stalemate and the draw rules for the player to move, and stores the result
+  private void evaluatePosition() {
+    evaluatePosition(getPosition());
+  }
+
+  // Evaluates the status from a snapshot of the current position, with the player to move
+  private void evaluatePosition(Position position) {
+    InCheckIncident incident = detectInCheck(currentPlayer);
+    setInCheck(incident);
+    boolean noMoves = moveGenerator.generate(position, moveBuffer) == 0;
+    // A mate on the last move before a draw by rule still counts
+    drawReason = noMoves || drawDetector == null ? null : drawDetector.check(position);
+    if (drawReason != null) {
+      positionStatus = PositionStatus.DRAW;
+    } else if (incident != null) {
+      positionStatus = noMoves ? PositionStatus.CHECKMATE : PositionStatus.CHECK;
+    } else {
+      positionStatus = noMoves ? PositionStatus.STALEMATE : PositionStatus.NORMAL;
+    }
+    evaluatedVersion = positionVersion;
+    evaluatedPlayer = currentPlayer;
+  }
+
+  // Ends the game if the player to move has no moves left or it is drawn by rule, and returns whether it did
+  private boolean endIfOver(PositionStatus status) {
+    if (status == PositionStatus.CHECKMATE) {
+      setReport(
+        new GameReport(
+          this,
+          currentPlayer == humanAgent
+            ? EndReason.PLAYER_CHECKMATED
+            : EndReason.COMPUTER_CHECKMATED
+        )
+      );
+      return true;
+    }
+    if (status == PositionStatus.STALEMATE) {
+      setReport(new GameReport(this, EndReason.STALEMATE));
+      return true;
+    }
+    if (status == PositionStatus.DRAW) {
+      setReport(new GameReport(this, EndReason.of(drawReason)));
+      return true;
+    }
+    return false;
   }
 
   /**
@@ -388,12 +652,13 @@ public class Game implements Tickable {
    * @throws RuleViolationException if the move is illegal
    */
   public void movePiece(Movement m) throws RuleViolationException {
+    // Castling depends on whether the mover is in check
+    getPositionStatus();
     // Predict if the king will be in check after the move
     InCheckIncident inc = predictInCheck(
       board.getPieceOwner(m.getSourcePiece()),
       m
     );
-    Piece piece = m.getSourcePiece();
     Tile target = m.getTargetTile();
     PlayerAgent mover = board.getAgentByColor(m.getSourcePiece().getColor());
 
@@ -402,90 +667,58 @@ public class Game implements Tickable {
       throw new KingInDangerException(mover);
     }
 
-    AnimationVehicle animation = new AnimationVehicle(
-      pieceMovementSpeed,
-      maxMovementTime,
-      m
-    );
     Piece capturedPiece = target.getCurrentPiece();
+    // Captures and pawn moves can never be taken back, which resets the fifty-move count
+    boolean progress = capturedPiece != null || m.getSourcePiece() instanceof Pawn;
 
-    // If the target tile is occupied by a piece
-    if (capturedPiece != null) {
-      // If the piece is the opponent's king, throw an exception
-      if (
-        capturedPiece == mover.getOpponent().getKing()
-      ) throw new KingDignityException(mover);
-
-      // Remove the opponent's piece from the game
-      board.getPieceOwner(capturedPiece).getPieces().remove(capturedPiece);
-    }
+    // If the piece is the opponent's king, throw an exception
+    if (
+      capturedPiece != null && capturedPiece == mover.getOpponent().getKing()
+    ) throw new KingDignityException(mover);
 
     Movement castlingMove = getCastlingMovement(m);
 
     mover.setLastMove(m);
-    setAnimation(animation);
-    m.perform();
-
-    boolean pawnPromotion =
-      piece instanceof Pawn && target != null && target.getY() == 7;
-    // If a pawn has reached the opponent's side of the board, promote it to a queen
-    if (pawnPromotion) {
-      Queen queen = new Queen(piece.getColor());
-      target.setCurrentPiece(queen);
-      queen.setCurrentTile(target);
-      mover.getPieces().remove(piece);
-      mover.getPieces().add(queen);
-    }
+    // Captures, the castling rook and pawn promotion are all handled by the board
+    UndoRecord record = board.makeMove(m);
+    positionVersion++;
 
-    refreshAvailableMoves(this.board);
+    // The board's attack map has already refreshed the targets of the pieces affected by the move
     mover.increaseRemainingTime();
 
-    if (castlingMove != null) {
-      AnimationVehicle castlingAnimationVehicle = new AnimationVehicle(
-        pieceMovementSpeed,
-        maxMovementTime,
-        castlingMove
-      );
-      setRookAnimation(castlingAnimationVehicle);
-      mover.getPieces().remove(castlingMove.perform());
-    }
-
     // After the move, it is the opponent's turn
     currentPlayer = mover.getOpponent();
+    // One snapshot of the new position serves both the repetition key and the status
+    Position position = getPosition();
+    if (drawDetector != null) {
+      drawDetector.push(position.getKey(), progress);
+    }
 
-    // Detect if the current player is in check
-    InCheckIncident incident = detectInCheck(currentPlayer);
-    setInCheck(incident);
-
-    // Play sound
-    if (incident != null) {
-      SoundPlayer.playSound("move-check.wav");
-    } else if (capturedPiece != null) {
-      // Play capture sound
-      SoundPlayer.playSound("capture.wav");
-    } else if (castlingMove != null) {
-      SoundPlayer.playSound("castle.wav");
-    } else if (pawnPromotion) {
-      SoundPlayer.playSound("promote.wav");
-    } else {
-      SoundPlayer.playSound("move-self.wav");
+    // Evaluate check, checkmate and stalemate for the player to move, once for the new position
+    evaluatePosition(position);
+
+    // Sounds, animations and logs listen for the move; without listeners, no event is made
+    int types = GameEvent.Type.MOVE.mask();
+    if (capturedPiece != null) types |= GameEvent.Type.CAPTURE.mask();
+    if (getInCheck() != null) types |= GameEvent.Type.CHECK.mask();
+    if (castlingMove != null) types |= GameEvent.Type.CASTLE.mask();
+    if (record.getPromotedPiece() != null) types |= GameEvent.Type.PROMOTION.mask();
+    if (eventBus.hasListeners(types)) {
+      eventBus.publish(
+        GameEvent.move(this, types, m, castlingMove, capturedPiece, record.getPromotedPiece())
+      );
     }
   }
 
   /**
-   * Refreshes the set of available moves for all pieces on the board.
+   * Refreshes the set of available moves for all pieces on the board, and rebuilds its attack map.
+   * This is only needed after pieces were placed directly on the tiles; moves keep the map up to date.
    *
    * @param board the game board to refresh
    */
   public void refreshAvailableMoves(Board board) {
-    for (int i = 0; i < Board.BOARD_WIDTH; i++) {
-      for (int j = 0; j < Board.BOARD_WIDTH; j++) {
-        Piece piece = board.getTile(i, j).getCurrentPiece();
-        if (piece != null) {
-          piece.updatePossibleTargets(board);
-        }
-      }
-    }
+    board.getAttackMap().rebuild();
+    positionVersion++;
   }
 
   /**
@@ -499,15 +732,7 @@ public class Game implements Tickable {
     Set<Tile> illegal = new HashSet<Tile>();
     for (Tile move : moves) {
       // If the piece would be threatened by an opponent's piece on the tile, add it to the set
-      if (
-        predictThreats(
-          board.getPieceOwner(p).getOpponent(),
-          new Movement(p, move),
-          p
-        )
-          .size() >
-        0
-      ) {
+      if (predictThreatened(new Movement(p, move), p)) {
         illegal.add(move);
       }
     }
@@ -527,31 +752,43 @@ public class Game implements Tickable {
     Movement move,
     Piece subject
   ) {
-    // Start a simulation of the move
-    int sourceX = move.getSourceX();
-    int sourceY = move.getSourceY();
-    int targetX = move.getTargetX();
-    int targetY = move.getTargetY();
-    int subjectX = subject.getX();
-    int subjectY = subject.getY();
-
-    // Create a clone of the board to simulate the move on
-    Board clonedBoard = board.clone();
-    Tile simSourceTile = clonedBoard.getTile(sourceX, sourceY);
-    Piece simSourcePiece = simSourceTile.getCurrentPiece();
-    Tile simTargetTile = clonedBoard.getTile(targetX, targetY);
-    Piece simSubject = clonedBoard.getPiece(subjectX, subjectY);
-
-    // Execute the move in the simulation
-    new Movement(simSourcePiece, simTargetTile).perform();
-
-    refreshAvailableMoves(clonedBoard);
+    // Simulate the move in place and take it back afterwards
+    UndoRecord undo = board.makeMove(move);
+    try {
+      // Get the pieces that could attack the subject piece after the move
+      return detectThreats(board, subject);
+    } finally {
+      board.unmakeMove(undo);
+    }
+  }
 
-    // Get the pieces that could attack the subject piece after the move
-    Set<Piece> threats = detectThreats(clonedBoard, simSubject);
+  /**
+   * Predicts whether a piece would be threatened after a given move.
+   *
+   * @param move    the move to consider
+   * @param subject the piece to check for threats against
+   * @return true if an opponent's piece would attack the subject piece after the move
+   */
+  public boolean predictThreatened(Movement move, Piece subject) {
+    UndoRecord undo = board.makeMove(move);
+    try {
+      return isThreatened(board, subject);
+    } finally {
+      board.unmakeMove(undo);
+    }
+  }
 
-    // Return the threats
-    return threats;
+  /**
+   * Checks whether a piece is threatened on a given board. Unlike {@link #detectThreats(Board, Piece)}, only the
+   * number of attackers of its tile is read, so nothing is allocated.
+   *
+   * @param board   the board to check
+   * @param subject the piece to check for threats against
+   * @return true if an opponent's piece attacks the subject piece
+   */
+  public boolean isThreatened(Board board, Piece subject) {
+    Tile tile = board.getTile(subject.getX(), subject.getY());
+    return builtAttackMap(board).getAttackerCount(tile, opponentColor(board, subject)) > 0;
   }
 
   /**
@@ -562,39 +799,32 @@ public class Game implements Tickable {
    * @return a set of pieces that could threaten the subject piece
    */
   public Set<Piece> detectThreats(Board board, Piece subject) {
-    int attackeeX = subject.getX();
-    int attackeeY = subject.getY();
-    Set<Piece> attackerPieces = new HashSet<>();
-    Piece attackee = board.getPiece(attackeeX, attackeeY);
+    Piece.Color attackerColor = opponentColor(board, subject);
+    // Look up the pieces that could attack the subject piece
+    return builtAttackMap(board).getAttackers(
+      board.getTile(subject.getX(), subject.getY()),
+      attackerColor
+    );
+  }
 
+  // Returns the colour that attacks a piece on the board
+  private static Piece.Color opponentColor(Board board, Piece subject) {
+    Piece attackee = board.getPiece(subject.getX(), subject.getY());
     if (attackee == null) {
       throw new RuntimeException("attackee is not found");
     }
+    return attackee.getColor() == Piece.Color.WHITE
+      ? Piece.Color.BLACK
+      : Piece.Color.WHITE;
+  }
 
-    Piece.Color attackeeColor = attackee.getColor();
-
-    // Find all the pieces that could attack the subject piece
-    for (int i = 0; i < Board.BOARD_WIDTH; i++) {
-      for (int j = 0; j < Board.BOARD_WIDTH; j++) {
-        Piece p = board.getTile(i, j).getCurrentPiece();
-        if (p != null && p.getColor() != attackeeColor) {
-          attackerPieces.add(p);
-        }
-      }
+  // Returns the attack map of a board, building it on first use
+  private static AttackMap builtAttackMap(Board board) {
+    AttackMap attackMap = board.getAttackMap();
+    if (!attackMap.isBuilt()) {
+      attackMap.rebuild();
     }
-
-    // Check if any of the attacker's pieces could reach the subject piece
-    Set<Piece> threats = new HashSet<>();
-    for (Piece piece : attackerPieces) {
-      Set<Tile> moves = piece instanceof Pawn
-        ? ((Pawn) piece).getAttackRange(board)
-        : piece.getPossibleTargets();
-      if (moves.contains(attackee.getCurrentTile())) {
-        threats.add(piece);
-      }
-    }
-
-    return threats;
+    return attackMap;
   }
 
   /**
@@ -626,23 +856,39 @@ public class Game implements Tickable {
    * @return a set of all moves that would remove the king from check
    */
   public Set<Movement> solveIncident(InCheckIncident inc) {
-    Set<Movement> solutions = new HashSet<>();
-    King k = inc.getThreatenedKing();
-    Set<Movement> allLegalMovements = getAllLegalMovements(
-      board.getAgentByColor(k.getColor())
-    );
+    Set<Movement> solutions = new LinkedHashSet<>();
+    int count = generateLegalMoves(inc.getThreatenedKing().getColor());
+    for (int i = 0; i < count; i++) {
+      solutions.add(board.toMovement(moveBuffer[i]));
+    }
+    return solutions;
+  }
 
-    for (Movement move : allLegalMovements) {
-      Set<Piece> threats = predictThreats(
-        board.getPieceOwner(k).getOpponent(),
-        move,
-        k
-      );
-      if (threats.size() == 0) {
-        solutions.add(move);
+  /**
+   * Checks whether an encoded move is legal for a colour on the current board, without creating any Movement.
+   *
+   * @param color the colour to move
+   * @param move  the move, compared by its squares
+   * @return true if the move is legal
+   */
+  public boolean isLegalMove(Piece.Color color, int move) {
+    int count = generateLegalMoves(color);
+    for (int i = 0; i < count; i++) {
+      if (MoveGenerator.squaresOf(moveBuffer[i]) == MoveGenerator.squaresOf(move)) {
+        return true;
       }
     }
-    return solutions;
+    return false;
+  }
+
+  /**
+   * Generates the legal moves of a colour on the current board into the move buffer.
+   *
+   * @param color the colour to move
+   * @return the number of moves generated
+   */
+  private int generateLegalMoves(Piece.Color color) {
+    return moveGenerator.generate(board.toPosition(color), moveBuffer);
   }
 
   /**
@@ -652,8 +898,7 @@ public class Game implements Tickable {
    * @return an InCheckIncident if the king is in check, or null if not
    */
   public InCheckIncident detectInCheck(PlayerAgent agent) {
-    Set<Piece> threats = detectThreats(getBoard(), agent.getKing());
-    if (threats.size() > 0) {
+    if (isThreatened(getBoard(), agent.getKing())) {
       return new InCheckIncident(agent.getKing());
     }
     return null;
@@ -667,8 +912,7 @@ public class Game implements Tickable {
    * @return an InCheckIncident if the king would be in check after the move, or null if not
    */
   public InCheckIncident predictInCheck(PlayerAgent agent, Movement m) {
-    Set<Piece> threats = predictThreats(agent, m, agent.getKing());
-    if (threats.size() > 0) {
+    if (predictThreatened(m, agent.getKing())) {
       return new InCheckIncident(agent.getKing());
     }
     return null;
@@ -691,21 +935,121 @@ public class Game implements Tickable {
    */
 
   /**
-   * Get all movements that don't impose a threat to the king
+   * Get all movements that don't impose a threat to the king.
+   * The movements are looked up in the legal moves of the move generator instead of being tried one by one.
    *
+   * @param allMovements the movements to filter
    * @return all movements that don't impose a threat to the king
    */
   public Set<Movement> getSafeMovements(Set<Movement> allMovements) {
     if (allMovements == null) return null;
-    Set<Movement> safeMovements = new HashSet<>();
+    // Index the movements by their squares, noting which colours have to be generated
+    Map<Integer, Movement> requested = new HashMap<>();
+    boolean[] colors = new boolean[2];
     for (Movement move : allMovements) {
-      if (
-        predictInCheck(board.getPieceOwner(move.getSourcePiece()), move) == null
-      ) safeMovements.add(move);
+      int from = Position.square(move.getSourceTile().getX(), move.getSourceTile().getY());
+      int to = Position.square(move.getTargetX(), move.getTargetY());
+      requested.put(MoveGenerator.encode(from, to), move);
+      colors[Position.colorIndex(move.getSourcePiece().getColor())] = true;
+    }
+    // The safe movements come out in the generator's order, so the same board always gives the same order
+    Set<Movement> safeMovements = new LinkedHashSet<>();
+    for (int color = 0; color < colors.length; color++) {
+      if (!colors[color]) continue;
+      int count = generateLegalMoves(Position.pieceColor(color));
+      for (int i = 0; i < count; i++) {
+        Movement move = requested.get(MoveGenerator.squaresOf(moveBuffer[i]));
+        if (move != null) safeMovements.add(move);
+      }
     }
     return safeMovements;
   }
 
+  /**
+   * Returns the version of the position, which changes whenever the pieces do.
+   *
+   * @return the position version.
+   */
+  public long getPositionVersion() {
+    return positionVersion;
+  }
+
+  /**
+   * Gets the movements of a player that don't impose a threat to its king, like
+   * {@code getSafeMovements(getAllLegalMovements(agent))}, but computed only once per position.
+   *
+   * @param agent the player
+   * @return the safe movements, which must not be modified
+   */
+  public Set<Movement> getSafeMovements(PlayerAgent agent) {
+    return safeMovementsOf(agent).all;
+  }
+
+  /**
+   * Gets the tiles a piece can safely move to, as cached for the current position.
+   *
+   * @param agent  the player owning the piece
+   * @param source the tile of the piece
+   * @return the target tiles, empty if the piece cannot move or the tile holds none of the player's pieces;
+   *         the set must not be modified
+   */
+  public Set<Tile> getSafeTargets(PlayerAgent agent, Tile source) {
+    Map<Tile, Movement> targets = safeMovementsOf(agent).bySource.get(source);
+    return targets == null ? Collections.<Tile>emptySet() : Collections.unmodifiableSet(targets.keySet());
+  }
+
+  /**
+   * Looks up a safe movement of a player by its tiles, as cached for the current position.
+   *
+   * @param agent  the player
+   * @param source the source tile
+   * @param target the target tile
+   * @return the movement, or null if it is not legal or not safe
+   */
+  public Movement getSafeMovement(PlayerAgent agent, Tile source, Tile target) {
+    Map<Tile, Movement> targets = safeMovementsOf(agent).bySource.get(source);
+    return targets == null ? null : targets.get(target);
+  }
+
+  // Returns the cached safe movements of a player, recomputing them if the position has changed since
+  private SafeMovements safeMovementsOf(PlayerAgent agent) {
+    int color = Position.colorIndex(agent.getColor());
+    SafeMovements cached = safeMovementCache[color];
+    if (cached == null || cached.version != positionVersion) {
+      cached = new SafeMovements(positionVersion, getSafeMovements(getAllLegalMovements(agent)));
+      safeMovementCache[color] = cached;
+    }
+    return cached;
+  }
+
+  /**
+   * The safe movements of a player in one position, indexed by their source and target tiles.
+   */
+  private static class SafeMovements {
+    private final long version;
+    private final Set<Movement> all;
+    private final Map<Tile, Map<Tile, Movement>> bySource = new HashMap<>();
+
+    SafeMovements(long version, Set<Movement> movements) {
+      this.version = version;
+      this.all = Collections.unmodifiableSet(movements);
+      for (Movement m : movements) {
+        bySource
+          .computeIfAbsent(m.getSourceTile(), tile -> new HashMap<>())
+          .put(m.getTargetTile(), m);
+      }
+    }
+  }
+
+  // Status of the position for the player to move
+  public enum PositionStatus {
+    NORMAL,
+    CHECK,
+    CHECKMATE,
+    STALEMATE,
+    DRAW,
+  }
+
   // Game status enumeration
   public enum GameStatus {
     ENDED,
@@ -722,34 +1066,10 @@ public class Game implements Tickable {
    * @return the castling movement if valid, or null if not applicable
    */
   public Movement getCastlingMovement(Movement m) {
-    // Castling
-    if (
-      m.getSourcePiece() instanceof King &&
-      !m.getSourcePiece().getHasMovedBefore() &&
-      m.getTargetPiece() == null &&
-      Math.abs(m.getTargetX() - m.getSourceX()) == 2 &&
-      getInCheck() == null
-    ) {
-      int unitDirection = m.getTargetX() - m.getSourceX() > 0 ? 1 : -1;
-      int curX = m.getSourceX();
-      Rook r = null;
-
-      while (curX >= 0 && curX < Board.BOARD_WIDTH) {
-        Piece p = board.getPiece(curX, m.getSourceY());
-        if (p instanceof Rook && !p.getHasMovedBefore()) {
-          r = (Rook) p;
-        }
-        curX += unitDirection;
-      }
-
-      if (r != null) {
-        return new Movement(
-          r,
-          board.getTile(m.getTargetX() - unitDirection, m.getSourceY())
-        );
-      }
+    // Castling is not allowed while in check
+    if (getInCheck() != null) {
+      return null;
     }
-
-    return null;
+    return board.getCastlingMovement(m);
   }
 }
@@ -0,0 +1,56 @@
+package XXLChess;
+
+/**
+ * GameEffects animates the moves of a game and plays its sounds. It listens on the game's {@link GameEventBus}
+ * synchronously, so that the animation is in place before the next frame, and does nothing in instant mode.
+ */
+public class GameEffects implements GameEventListener {
+    /**
+     * Subscribes the effects to the moves and the end of a game.
+     *
+     * @param game the game.
+     * @return the subscribed effects.
+     */
+    public static GameEffects attach(Game game) {
+        GameEffects effects = new GameEffects();
+        game.getEventBus().subscribe(effects, GameEvent.Type.MOVE, GameEvent.Type.GAME_END);
+        return effects;
+    }
+
+    @Override
+    public void onEvent(GameEvent event) {
+        Game game = event.getGame();
+        if (game.isInstant()) {
+            return;
+        }
+        if (event.is(GameEvent.Type.GAME_END)) {
+            if (event.getReport().getWinner() == game.getHumanAgent()) {
+                SoundPlayer.playSound("win.wav");
+            } else {
+                SoundPlayer.playSound("lose.wav");
+            }
+            return;
+        }
+
+        // The move is already made, so the captured piece comes with the event
+        game.setAnimation(new AnimationVehicle(
+                game.getPieceMovementSpeed(), game.getMaxMovementTime(), event.getMove(), event.getCaptured()));
+        if (event.getCastling() != null) {
+            game.setRookAnimation(new AnimationVehicle(
+                    game.getPieceMovementSpeed(), game.getMaxMovementTime(), event.getCastling(), null));
+        }
+
+        // One sound per move, the most telling one
+        if (event.is(GameEvent.Type.CHECK)) {
+            SoundPlayer.playSound("move-check.wav");
+        } else if (event.is(GameEvent.Type.CAPTURE)) {
+            SoundPlayer.playSound("capture.wav");
+        } else if (event.is(GameEvent.Type.CASTLE)) {
+            SoundPlayer.playSound("castle.wav");
+        } else if (event.is(GameEvent.Type.PROMOTION)) {
+            SoundPlayer.playSound("promote.wav");
+        } else {
+            SoundPlayer.playSound("move-self.wav");
+        }
+    }
+}
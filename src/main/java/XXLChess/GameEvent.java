@@ -0,0 +1,109 @@
+package XXLChess;
+
+/**
+ * A GameEvent tells the listeners of a {@link GameEventBus} what happened in a game. A move is a single event of
+ * several types at once, such as a capture that gives check, so that it costs at most one object; the game skips
+ * even that when no listener wants any of its types. Events are immutable, so asynchronous listeners may keep them.
+ */
+public final class GameEvent {
+    /**
+     * What an event is about.
+     */
+    public enum Type {
+        MOVE,      // Every move, after it is made on the board
+        CAPTURE,   // A move that captured a piece
+        CHECK,     // A move that put the opponent in check
+        CASTLE,    // A castling move
+        PROMOTION, // A move that promoted a pawn
+        GAME_END;  // The game has ended, see the report
+
+        // The bit of the type in an event's types
+        public int mask() {
+            return 1 << ordinal();
+        }
+    }
+
+    private final Game game;
+    private final int types;
+    private final Movement move;
+    private final Movement castling;
+    private final Piece captured;
+    private final Piece promoted;
+    private final GameReport report;
+
+    private GameEvent(Game game, int types, Movement move, Movement castling, Piece captured, Piece promoted,
+                      GameReport report) {
+        this.game = game;
+        this.types = types;
+        this.move = move;
+        this.castling = castling;
+        this.captured = captured;
+        this.promoted = promoted;
+        this.report = report;
+    }
+
+    /**
+     * Makes the event of a move.
+     *
+     * @param game     the game.
+     * @param types    the types of the event, as a combination of {@link Type#mask()}.
+     * @param move     the move.
+     * @param castling the rook's part of a castling move, or null.
+     * @param captured the captured piece, or null.
+     * @param promoted the piece a pawn was promoted to, or null.
+     * @return the event.
+     */
+    public static GameEvent move(Game game, int types, Movement move, Movement castling, Piece captured,
+                                 Piece promoted) {
+        return new GameEvent(game, types, move, castling, captured, promoted, null);
+    }
+
+    /**
+     * Makes the event of the end of a game.
+     *
+     * @param game   the game.
+     * @param report the report of the game.
+     * @return the event.
+     */
+    public static GameEvent gameEnd(Game game, GameReport report) {
+        return new GameEvent(game, Type.GAME_END.mask(), null, null, null, null, report);
+    }
+
+    public Game getGame() {
+        return game;
+    }
+
+    /**
+     * Checks whether the event is of a type.
+     *
+     * @param type the type.
+     * @return true if the event is of the type.
+     */
+    public boolean is(Type type) {
+        return (types & type.mask()) != 0;
+    }
+
+    public int getTypes() {
+        return types;
+    }
+
+    public Movement getMove() {
+        return move;
+    }
+
+    public Movement getCastling() {
+        return castling;
+    }
+
+    public Piece getCaptured() {
+        return captured;
+    }
+
+    public Piece getPromoted() {
+        return promoted;
+    }
+
+    public GameReport getReport() {
+        return report;
+    }
+}
@@ -0,0 +1,112 @@
+package XXLChess;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * GameEventBus hands the events of a game to the listeners that subscribed to their types. Synchronous listeners
+ * run on the thread that publishes, before the game goes on, which suits state the next frame depends on, such as
+ * animations. Asynchronous listeners run later, in order, on a single thread shared by all buses, which suits
+ * listeners that may be slow, such as logging. A bus without listeners costs a check of a bit mask per event.
+ */
+public class GameEventBus {
+    // Runs the asynchronous listeners of every bus, one event at a time
+    private static final ExecutorService ASYNC_EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "game-events");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // A listener and the types it subscribed to
+    private static class Subscription {
+        private final GameEventListener listener;
+        private final int types;
+        private final boolean async;
+
+        Subscription(GameEventListener listener, int types, boolean async) {
+            this.listener = listener;
+            this.types = types;
+            this.async = async;
+        }
+    }
+
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    // The types any listener subscribed to
+    private volatile int subscribedTypes;
+
+    /**
+     * Subscribes a listener that runs on the publishing thread.
+     *
+     * @param listener the listener.
+     * @param types    the types of events to hand to it; an event of several of them is handed over once.
+     */
+    public void subscribe(GameEventListener listener, GameEvent.Type... types) {
+        add(new Subscription(listener, maskOf(types), false));
+    }
+
+    /**
+     * Subscribes a listener that runs on the bus thread, after the event was published.
+     *
+     * @param listener the listener.
+     * @param types    the types of events to hand to it; an event of several of them is handed over once.
+     */
+    public void subscribeAsync(GameEventListener listener, GameEvent.Type... types) {
+        add(new Subscription(listener, maskOf(types), true));
+    }
+
+    /**
+     * Removes every subscription of a listener.
+     *
+     * @param listener the listener.
+     */
+    public synchronized void unsubscribe(GameEventListener listener) {
+        subscriptions.removeIf(s -> s.listener == listener);
+        int types = 0;
+        for (Subscription s : subscriptions) {
+            types |= s.types;
+        }
+        subscribedTypes = types;
+    }
+
+    private synchronized void add(Subscription subscription) {
+        subscriptions.add(subscription);
+        subscribedTypes |= subscription.types;
+    }
+
+    /**
+     * Checks whether any listener wants events of some types, so that the event need not be made otherwise.
+     *
+     * @param types a combination of {@link GameEvent.Type#mask()}.
+     * @return true if some listener subscribed to one of the types.
+     */
+    public boolean hasListeners(int types) {
+        return (subscribedTypes & types) != 0;
+    }
+
+    /**
+     * Hands an event to the listeners of its types: the synchronous ones at once, the asynchronous ones later.
+     *
+     * @param event the event.
+     */
+    public void publish(GameEvent event) {
+        for (Subscription s : subscriptions) {
+            if ((s.types & event.getTypes()) == 0) continue;
+            if (s.async) {
+                ASYNC_EXECUTOR.execute(() -> s.listener.onEvent(event));
+            } else {
+                s.listener.onEvent(event);
+            }
+        }
+    }
+
+    private static int maskOf(GameEvent.Type... types) {
+        int mask = 0;
+        for (GameEvent.Type type : types) {
+            mask |= type.mask();
+        }
+        return mask;
+    }
+}
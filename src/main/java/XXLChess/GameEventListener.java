@@ -0,0 +1,14 @@
+package XXLChess;
+
+/**
+ * A listener to the events of a {@link GameEventBus}.
+ */
+@FunctionalInterface
+public interface GameEventListener {
+    /**
+     * Handles an event.
+     *
+     * @param event the event, which is of at least one of the types the listener subscribed to.
+     */
+    void onEvent(GameEvent event);
+}
@@ -0,0 +1,57 @@
+package XXLChess;
+
+import java.io.PrintStream;
+
+/**
+ * GameEventLogger prints the moves of a game in coordinate notation, and how it ended. It listens on the game's
+ * {@link GameEventBus} asynchronously, so that printing never holds up the game.
+ */
+public class GameEventLogger implements GameEventListener {
+    private final PrintStream out;
+
+    public GameEventLogger(PrintStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Subscribes a logger to the moves and the end of a game.
+     *
+     * @param game the game.
+     * @param out  the stream to print to.
+     * @return the subscribed logger.
+     */
+    public static GameEventLogger attach(Game game, PrintStream out) {
+        GameEventLogger logger = new GameEventLogger(out);
+        game.getEventBus().subscribeAsync(logger, GameEvent.Type.MOVE, GameEvent.Type.GAME_END);
+        return logger;
+    }
+
+    @Override
+    public void onEvent(GameEvent event) {
+        out.println(describe(event));
+    }
+
+    /**
+     * Describes an event in one line, such as "white g2g4" or "black e9e7 capture check".
+     *
+     * @param event the event.
+     * @return the description.
+     */
+    public static String describe(GameEvent event) {
+        if (event.is(GameEvent.Type.GAME_END)) {
+            return "end " + event.getReport().getReasonForEnd();
+        }
+        Movement m = event.getMove();
+        StringBuilder sb = new StringBuilder();
+        sb.append(m.getSourcePiece().getColor() == Piece.Color.WHITE ? "white " : "black ");
+        sb.append(Perft.moveName(MoveGenerator.encode(
+                Position.square(m.getSourceX(), m.getSourceY()),
+                Position.square(m.getTargetX(), m.getTargetY()))));
+        for (GameEvent.Type type : GameEvent.Type.values()) {
+            if (type != GameEvent.Type.MOVE && event.is(type)) {
+                sb.append(' ').append(type.name().toLowerCase());
+            }
+        }
+        return sb.toString();
+    }
+}
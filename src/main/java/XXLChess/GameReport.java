@@ -17,7 +17,7 @@ public class GameReport {
      */
     public GameReport(Game ctx, EndReason reasonForEnd) {
         this.reasonForEnd = reasonForEnd;
-        if (reasonForEnd == EndReason.DRAW) {
+        if (reasonForEnd.isDraw()) {
             winner = null;
             loser = null;
         } else if (reasonForEnd == EndReason.COMPUTER_TIMEOUT
@@ -28,11 +28,6 @@ public class GameReport {
             winner = ctx.getBotAgent();
             loser = ctx.getHumanAgent();
         }
-        if (winner == ctx.getHumanAgent()) {
-            SoundPlayer.playSound("win.wav");
-        } else {
-            SoundPlayer.playSound("lose.wav");
-        }
     }
 
     /**
@@ -69,8 +64,41 @@ public class GameReport {
         COMPUTER_TIMEOUT,
         COMPUTER_CHECKMATED,
         DRAW,
+        STALEMATE,
+        REPETITION,
+        NO_PROGRESS,
+        INSUFFICIENT_MATERIAL,
         PLAYER_TIMEOUT,
         PLAYER_RESIGNED,
-        PLAYER_CHECKMATED
+        PLAYER_CHECKMATED;
+
+        /**
+         * Returns whether the game ended without a winner.
+         *
+         * @return true for a draw.
+         */
+        public boolean isDraw() {
+            return this == DRAW || this == STALEMATE || this == REPETITION || this == NO_PROGRESS
+                    || this == INSUFFICIENT_MATERIAL;
+        }
+
+        /**
+         * Returns the end reason of a draw by rule.
+         *
+         * @param reason the reason of the draw.
+         * @return the end reason.
+         */
+        public static EndReason of(DrawDetector.Reason reason) {
+            switch (reason) {
+                case REPETITION:
+                    return REPETITION;
+                case NO_PROGRESS:
+                    return NO_PROGRESS;
+                case INSUFFICIENT_MATERIAL:
+                    return INSUFFICIENT_MATERIAL;
+                default:
+                    return DRAW;
+            }
+        }
     }
 }
@@ -0,0 +1,290 @@
+package XXLChess;
+
+/**
+ * MoveGenerator lists the legal moves of the side to move in a {@link Position}.
+ * The checkers of the king, the pieces pinned to it and the squares that answer a check are found once per call,
+ * so every other piece's moves are legal by construction and no move has to be tried on the board.
+ * Only king moves and castling are tested square by square.
+ * Moves are ints holding the from-square, the to-square and flags for captures, castling and promotion,
+ * see {@link #encode(int, int, int)}, so generating moves allocates nothing.
+ */
+public class MoveGenerator {
+    // An upper bound on the number of legal moves in a position
+    public static final int MAX_MOVES = 1024;
+
+    // Move flags, stored above the squares
+    public static final int CAPTURE = 1 << 16;
+    public static final int CASTLE = 1 << 17;
+    public static final int PROMOTION = 1 << 18;
+
+    // The bits of a move that hold its squares
+    public static final int SQUARES_MASK = 0xFFFF;
+
+    // The squares of the pieces giving check
+    private final long[] checkers = Bitboard.create();
+
+    // The squares a non-king piece may move to while the king is in check
+    private final long[] evasions = Bitboard.create();
+
+    // The pinned pieces, and for each one the line between the king and the pinning piece
+    private final int[] pinnedSquares = new int[8];
+    private final long[][] pinRays = new long[8][Bitboard.WORDS];
+    private int pinCount;
+
+    // The targets of the piece being generated (reused to avoid allocation)
+    private final long[] targets = Bitboard.create();
+
+    /**
+     * Encodes a move without flags.
+     *
+     * @param from the square the piece moves from.
+     * @param to   the square the piece moves to.
+     * @return the encoded move.
+     */
+    public static int encode(int from, int to) {
+        return from << 8 | to;
+    }
+
+    /**
+     * Encodes a move with flags.
+     *
+     * @param from  the square the piece moves from.
+     * @param to    the square the piece moves to.
+     * @param flags CAPTURE, CASTLE and PROMOTION, or 0.
+     * @return the encoded move.
+     */
+    public static int encode(int from, int to, int flags) {
+        return from << 8 | to | flags;
+    }
+
+    /**
+     * Returns a move without its flags. Two moves between the same squares in the same position are the same move,
+     * so moves from different sources, such as a board and the transposition table, are compared by their squares.
+     *
+     * @param move the encoded move.
+     * @return the move's squares, as encoded by {@link #encode(int, int)}.
+     */
+    public static int squaresOf(int move) {
+        return move & SQUARES_MASK;
+    }
+
+    /**
+     * Returns the square a move starts from.
+     *
+     * @param move the encoded move.
+     * @return the from-square.
+     */
+    public static int fromOf(int move) {
+        return (move >>> 8) & 0xFF;
+    }
+
+    /**
+     * Returns the square a move ends on.
+     *
+     * @param move the encoded move.
+     * @return the to-square.
+     */
+    public static int toOf(int move) {
+        return move & 0xFF;
+    }
+
+    public static boolean isCapture(int move) {
+        return (move & CAPTURE) != 0;
+    }
+
+    public static boolean isCastle(int move) {
+        return (move & CASTLE) != 0;
+    }
+
+    public static boolean isPromotion(int move) {
+        return (move & PROMOTION) != 0;
+    }
+
+    /**
+     * Replaces the moves of a list with the legal moves of the side to move.
+     *
+     * @param position the position.
+     * @param list     the list to fill.
+     * @return the number of moves.
+     */
+    public int generate(Position position, MoveList list) {
+        list.setSize(generate(position, list.getMoves()));
+        return list.size();
+    }
+
+    /**
+     * Writes the legal moves of the side to move into an array.
+     * A move is legal if it does not leave the mover's king attacked; the position is left unchanged.
+     *
+     * @param position the position.
+     * @param moves    the array to write the moves into, of at least MAX_MOVES elements.
+     * @return the number of moves written.
+     */
+    public int generate(Position position, int[] moves) {
+        int us = position.getSideToMove();
+        int them = 1 - us;
+        int king = position.getKingSquare(us);
+        int checkCount = 0;
+        pinCount = 0;
+        if (king >= 0) {
+            position.attackers(king, them, checkers);
+            checkCount = Bitboard.count(checkers);
+            if (checkCount == 1) {
+                findEvasions(position, king, Bitboard.next(checkers, 0));
+            }
+            findPins(position, king, us, them);
+        }
+
+        int count = 0;
+        // With two checkers, only the king can move
+        if (checkCount < 2) {
+            long[] own = position.getColorOccupancy(us);
+            for (int from = Bitboard.next(own, 0); from >= 0; from = Bitboard.next(own, from + 1)) {
+                if (from == king) continue;
+                pieceTargets(position, from);
+                if (checkCount == 1) {
+                    Bitboard.and(targets, evasions);
+                }
+                for (int i = 0; i < pinCount; i++) {
+                    if (pinnedSquares[i] == from) {
+                        Bitboard.and(targets, pinRays[i]);
+                    }
+                }
+                // Only pawns promote, on reaching the promotion row
+                boolean pawn = Position.typeOf(position.pieceAt(from)) == Position.PAWN;
+                for (int to = Bitboard.next(targets, 0); to >= 0; to = Bitboard.next(targets, to + 1)) {
+                    int flags = position.pieceAt(to) != Position.NO_PIECE ? CAPTURE : 0;
+                    if (pawn && Position.yOf(to) == Board.PROMOTION_ROW) {
+                        flags |= PROMOTION;
+                    }
+                    moves[count++] = encode(from, to, flags);
+                }
+            }
+        }
+
+        if (king >= 0) {
+            pieceTargets(position, king);
+            for (int to = Bitboard.next(targets, 0); to >= 0; to = Bitboard.next(targets, to + 1)) {
+                // The king must not shield the squares behind itself from a slider
+                if (!position.isAttacked(to, them, king)) {
+                    moves[count++] = encode(king, to, position.pieceAt(to) != Position.NO_PIECE ? CAPTURE : 0);
+                }
+            }
+            if (checkCount == 0) {
+                count = addCastlingMoves(position, king, them, moves, count);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Checks whether the side to move is in check.
+     *
+     * @param position the position.
+     * @return true if the king of the side to move is attacked.
+     */
+    public static boolean isInCheck(Position position) {
+        int us = position.getSideToMove();
+        int king = position.getKingSquare(us);
+        return king >= 0 && position.isAttacked(king, 1 - us);
+    }
+
+    // Writes the pseudo-legal targets of the piece on a square into targets
+    private void pieceTargets(Position position, int from) {
+        int code = position.pieceAt(from);
+        int color = Position.colorOf(code);
+        if (Position.typeOf(code) != Position.PAWN) {
+            position.attacks(from, targets);
+            Bitboard.andNot(targets, position.getColorOccupancy(color));
+            return;
+        }
+        // Pawns capture diagonally forwards, and step forwards onto empty squares only
+        Bitboard.clearAll(targets);
+        position.addAttacks(from, code, targets);
+        Bitboard.and(targets, position.getColorOccupancy(1 - color));
+        int x = Position.xOf(from);
+        int y = Position.yOf(from);
+        int direction = position.getPawnDirection(color);
+        addPawnStep(position, x, y + direction);
+        // A pawn that has not moved may step two squares forwards from the 2nd row from the top or bottom
+        if (position.isUnmoved(from) && (y == 1 || y == Board.BOARD_WIDTH - 2)) {
+            addPawnStep(position, x, y + 2 * direction);
+        }
+    }
+
+    // Adds a pawn step to targets if the square is on the board and empty
+    private void addPawnStep(Position position, int x, int y) {
+        if (Position.onBoard(x, y) && position.pieceAt(Position.square(x, y)) == Position.NO_PIECE) {
+            Bitboard.set(targets, Position.square(x, y));
+        }
+    }
+
+    // Sets evasions to the checker's square and, for a check along a line, the squares between it and the king
+    private void findEvasions(Position position, int king, int checker) {
+        Bitboard.clearAll(evasions);
+        Bitboard.set(evasions, checker);
+        int dx = Position.xOf(checker) - Position.xOf(king);
+        int dy = Position.yOf(checker) - Position.yOf(king);
+        boolean orthogonal = dx == 0 || dy == 0;
+        if (!orthogonal && Math.abs(dx) != Math.abs(dy)) {
+            return;
+        }
+        int ability = orthogonal ? Position.SLIDES_ORTHOGONALLY : Position.SLIDES_DIAGONALLY;
+        if ((Position.ABILITIES[Position.typeOf(position.pieceAt(checker))] & ability) == 0) {
+            return;
+        }
+        int stepX = Integer.signum(dx);
+        int stepY = Integer.signum(dy);
+        for (int x = Position.xOf(king) + stepX, y = Position.yOf(king) + stepY;
+             Position.square(x, y) != checker; x += stepX, y += stepY) {
+            Bitboard.set(evasions, Position.square(x, y));
+        }
+    }
+
+    // Finds the pieces that shield the king from an enemy slider, with the line each of them must stay on
+    private void findPins(Position position, int king, int us, int them) {
+        int[][] kingRays = AttackTables.RAYS[king];
+        for (int d = 0; d < Position.DIRECTIONS.length; d++) {
+            int ability = d < 4 ? Position.SLIDES_ORTHOGONALLY : Position.SLIDES_DIAGONALLY;
+            long[] ray = pinRays[pinCount];
+            Bitboard.clearAll(ray);
+            int shield = -1;
+            for (int sq : kingRays[d]) {
+                Bitboard.set(ray, sq);
+                int code = position.pieceAt(sq);
+                if (code == Position.NO_PIECE) continue;
+                if (shield < 0 && Position.colorOf(code) == us) {
+                    shield = sq;
+                    continue;
+                }
+                if (shield >= 0 && Position.colorOf(code) == them
+                        && (Position.ABILITIES[Position.typeOf(code)] & ability) != 0) {
+                    pinnedSquares[pinCount++] = shield;
+                }
+                break;
+            }
+        }
+    }
+
+    // Adds the castling moves of the king that do not leave it attacked
+    private int addCastlingMoves(Position position, int king, int them, int[] moves, int count) {
+        if (!position.isUnmoved(king)) {
+            return count;
+        }
+        int y = Position.yOf(king);
+        for (int direction = -1; direction <= 1; direction += 2) {
+            int x = Position.xOf(king) + 2 * direction;
+            if (!Position.onBoard(x, y)) continue;
+            int to = Position.square(x, y);
+            if (position.castlingRook(king, to) < 0) continue;
+            int move = encode(king, to, CASTLE);
+            position.makeMove(move);
+            boolean safe = !position.isAttacked(to, them);
+            position.unmakeMove();
+            if (safe) {
+                moves[count++] = move;
+            }
+        }
+        return count;
+    }
+}
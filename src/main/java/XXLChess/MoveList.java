@@ -0,0 +1,105 @@
+package XXLChess;
+
+/**
+ * MoveList is a reusable list of encoded moves (see {@link MoveGenerator}), each with an ordering score.
+ * It holds up to {@link MoveGenerator#MAX_MOVES} moves in plain int arrays, so filling and sorting it allocates nothing.
+ */
+public class MoveList {
+    private final int[] moves = new int[MoveGenerator.MAX_MOVES];
+    private final int[] scores = new int[MoveGenerator.MAX_MOVES];
+    private int size;
+
+    public int size() {
+        return size;
+    }
+
+    public int get(int index) {
+        return moves[index];
+    }
+
+    public int getScore(int index) {
+        return scores[index];
+    }
+
+    public void setScore(int index, int score) {
+        scores[index] = score;
+    }
+
+    public void add(int move) {
+        moves[size++] = move;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Returns the array backing the list, for {@link MoveGenerator} to write into.
+     *
+     * @return the moves, of which the first {@link #size()} are in the list.
+     */
+    int[] getMoves() {
+        return moves;
+    }
+
+    void setSize(int size) {
+        this.size = size;
+    }
+
+    /**
+     * Finds a move by its squares, ignoring its flags.
+     *
+     * @param move the move.
+     * @return the index of the move, or -1 if it is not in the list.
+     */
+    public int indexOf(int move) {
+        int squares = MoveGenerator.squaresOf(move);
+        for (int i = 0; i < size; i++) {
+            if (MoveGenerator.squaresOf(moves[i]) == squares) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public boolean contains(int move) {
+        return indexOf(move) >= 0;
+    }
+
+    /**
+     * Sorts the moves by score, highest first. The sort is stable, so moves with equal scores keep their order.
+     */
+    public void sort() {
+        // Insertion sort: the lists are short, and mostly sorted after moveToFront
+        for (int i = 1; i < size; i++) {
+            int move = moves[i];
+            int score = scores[i];
+            int j = i - 1;
+            while (j >= 0 && scores[j] < score) {
+                moves[j + 1] = moves[j];
+                scores[j + 1] = scores[j];
+                j--;
+            }
+            moves[j + 1] = move;
+            scores[j + 1] = score;
+        }
+    }
+
+    /**
+     * Moves a move to the front of the list, keeping the order of the others. Does nothing if it is not listed.
+     *
+     * @param move the move, compared by its squares.
+     */
+    public void moveToFront(int move) {
+        int index = indexOf(move);
+        if (index <= 0) {
+            return;
+        }
+        int score = scores[index];
+        int found = moves[index];
+        System.arraycopy(moves, 0, moves, 1, index);
+        System.arraycopy(scores, 0, scores, 1, index);
+        moves[0] = found;
+        scores[0] = score;
+    }
+}
@@ -63,7 +63,7 @@ public class Movement {
      * @return The x-coordinate of the source tile.
      */
     public int getSourceX() {
-        return this.source.getX();
+        return this.sourceTile.getX();
     }
 
     /**
@@ -72,7 +72,7 @@ public class Movement {
      * @return The y-coordinate of the source tile.
      */
     public int getSourceY() {
-        return this.source.getY();
+        return this.sourceTile.getY();
     }
 
     /**
@@ -117,7 +117,7 @@ public class Movement {
      * @return The left position of the source tile.
      */
     public int getSourceLeft() {
-        return source.getLeft();
+        return sourceTile.getLeft();
     }
 
     /**
@@ -126,7 +126,7 @@ public class Movement {
      * @return The top position of the source tile.
      */
     public int getSourceTop() {
-        return source.getTop();
+        return sourceTile.getTop();
     }
 
     public Piece perform() {
@@ -152,6 +152,14 @@ public class Movement {
         && this.target == m.target
         && this.sourceTile == m.sourceTile;
     }
+
+    // Consistent with equals, which compares by identity, so that movements can be looked up in hash sets
+    @Override
+    public int hashCode() {
+        int hash = System.identityHashCode(source);
+        hash = 31 * hash + System.identityHashCode(sourceTile);
+        return 31 * hash + System.identityHashCode(target);
+    }
 }
 
 /**
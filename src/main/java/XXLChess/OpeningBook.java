@@ -0,0 +1,308 @@
+package XXLChess;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * OpeningBook holds weighted moves for positions near the start of the game, so that the {@link Bot} can play its
+ * opening moves without searching. A book is built from {@link SelfPlay} game records by the {@link Builder}.
+ * <p>
+ * The file is a header of {@link #MAGIC}, {@link #VERSION} and the number of entries, followed by one 16-byte entry
+ * per book move: the {@link Zobrist} key of the position (long), the move's squares as given by
+ * {@link MoveGenerator#squaresOf(int)} (int) and its weight (int), sorted by key. All numbers are big-endian.
+ * The reader maps the file into memory and finds a position's moves by binary search, so opening a book reads
+ * nothing up front, and a book may be probed from several threads at once.
+ *
+ * <pre>
+ * OpeningBook &lt;config&gt; &lt;book file&gt; [--games N] [--threads N] [--plies N] [--layout file]
+ * </pre>
+ * The command plays {@link SelfPlay} games from the config and writes a book of their first plies.
+ */
+public class OpeningBook {
+    // "XXLB", at the start of every book file
+    public static final int MAGIC = 0x58584C42;
+    public static final int VERSION = 1;
+
+    public static final int DEFAULT_PLIES = 16;
+
+    private static final int HEADER_BYTES = 12;
+    private static final int ENTRY_BYTES = 16;
+
+    private final ByteBuffer entries;
+    private final int size;
+
+    /**
+     * Reads a book from a buffer holding a book file.
+     *
+     * @param buffer the contents of the file, from its header on.
+     * @throws IOException if the buffer does not hold a book.
+     */
+    public OpeningBook(ByteBuffer buffer) throws IOException {
+        if (buffer.remaining() < HEADER_BYTES || buffer.getInt(buffer.position()) != MAGIC) {
+            throw new IOException("Not an opening book");
+        }
+        if (buffer.getInt(buffer.position() + 4) != VERSION) {
+            throw new IOException("Unsupported opening book version " + buffer.getInt(buffer.position() + 4));
+        }
+        size = buffer.getInt(buffer.position() + 8);
+        ByteBuffer duplicate = buffer.duplicate();
+        duplicate.position(buffer.position() + HEADER_BYTES);
+        entries = duplicate.slice();
+        if (size < 0 || (long) size * ENTRY_BYTES > entries.remaining()) {
+            throw new IOException("Truncated opening book");
+        }
+    }
+
+    /**
+     * Opens a book file by mapping it into memory.
+     *
+     * @param path the book file.
+     * @return the book.
+     * @throws IOException if the file cannot be read or is not a book.
+     */
+    public static OpeningBook open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            return new OpeningBook(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Returns the number of moves in the book, over all positions.
+     *
+     * @return the number of entries.
+     */
+    public int size() {
+        return size;
+    }
+
+    private long keyAt(int index) {
+        return entries.getLong(index * ENTRY_BYTES);
+    }
+
+    private int moveAt(int index) {
+        return entries.getInt(index * ENTRY_BYTES + 8);
+    }
+
+    private int weightAt(int index) {
+        return entries.getInt(index * ENTRY_BYTES + 12);
+    }
+
+    // Returns the index of the first entry with a key, or of the first entry with a greater key if there is none
+    private int firstIndex(long key) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keyAt(mid) < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the weight of a move in a position.
+     *
+     * @param key  the {@link Zobrist} key of the position.
+     * @param move the move, compared by its squares.
+     * @return the weight, or 0 if the book does not have the move.
+     */
+    public int weightOf(long key, int move) {
+        int squares = MoveGenerator.squaresOf(move);
+        for (int i = firstIndex(key); i < size && keyAt(i) == key; i++) {
+            if (moveAt(i) == squares) {
+                return weightAt(i);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Picks a book move for a position at random, each move with a chance in proportion to its weight.
+     * Only moves that are legal in the position are picked, so a key collision cannot make an illegal move.
+     *
+     * @param position the position, which is left unchanged.
+     * @param random   the source of the choice.
+     * @return the move as generated by {@link MoveGenerator}, or -1 if the book has no move for the position.
+     */
+    public int probe(Position position, Random random) {
+        long key = position.getKey();
+        int first = firstIndex(key);
+        if (first == size || keyAt(first) != key) {
+            return -1;
+        }
+        MoveList legal = new MoveList();
+        new MoveGenerator().generate(position, legal);
+        long total = 0;
+        for (int i = first; i < size && keyAt(i) == key; i++) {
+            int index = legal.indexOf(moveAt(i));
+            if (index >= 0) {
+                legal.setScore(index, weightAt(i));
+                total += weightAt(i);
+            }
+        }
+        if (total == 0) {
+            return -1;
+        }
+        long pick = (long) (random.nextDouble() * total);
+        for (int i = 0; i < legal.size(); i++) {
+            pick -= legal.getScore(i);
+            if (pick < 0) {
+                return legal.get(i);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Builder collects the moves of finished games and writes them out as a book. A move's weight is the score
+     * of the side that played it over all the games it was played in: two points for a win and one for a draw.
+     * Moves that never scored are left out.
+     */
+    public static class Builder {
+        public static final int WIN_WEIGHT = 2;
+        public static final int DRAW_WEIGHT = 1;
+
+        private final int plies;
+        // The weights of the moves of each position, by key and then by the move's squares
+        private final Map<Long, Map<Integer, Integer>> weights = new HashMap<>();
+
+        /**
+         * Constructs a builder.
+         *
+         * @param plies the number of plies from the start of each game that go into the book.
+         */
+        public Builder(int plies) {
+            this.plies = plies;
+        }
+
+        /**
+         * Adds the first plies of a game to the book.
+         *
+         * @param start  the position the game started from, which is left unchanged.
+         * @param moves  the moves of the game in order.
+         * @param winner Position.WHITE, Position.BLACK or {@link SelfPlay#DRAW}.
+         */
+        public void addGame(Position start, int[] moves, int winner) {
+            addGame(start, moves, winner, 0);
+        }
+
+        /**
+         * Adds the first plies of a game to the book, leaving out the moves that were not chosen by the engine.
+         *
+         * @param start     the position the game started from, which is left unchanged.
+         * @param moves     the moves of the game in order.
+         * @param winner    Position.WHITE, Position.BLACK or {@link SelfPlay#DRAW}.
+         * @param firstPly  the first ply the engine chose; the plies before it were random, see
+         *                  {@link SelfPlay#getRandomPlies()}, and only lead to the positions that go into the book.
+         */
+        public synchronized void addGame(Position start, int[] moves, int winner, int firstPly) {
+            Position position = start.copy();
+            for (int ply = 0; ply < moves.length && ply < plies; ply++) {
+                int us = position.getSideToMove();
+                int weight = winner == us ? WIN_WEIGHT : winner == SelfPlay.DRAW ? DRAW_WEIGHT : 0;
+                if (weight > 0 && ply >= firstPly) {
+                    weights.computeIfAbsent(position.getKey(), k -> new HashMap<>())
+                            .merge(MoveGenerator.squaresOf(moves[ply]), weight, Integer::sum);
+                }
+                position.makeMove(moves[ply]);
+            }
+        }
+
+        /**
+         * Lays the book out in the file format.
+         *
+         * @return a buffer holding the book file.
+         */
+        public synchronized ByteBuffer toBuffer() {
+            List<Long> keys = new ArrayList<>(weights.keySet());
+            keys.sort(null);
+            int count = 0;
+            for (Map<Integer, Integer> moves : weights.values()) {
+                count += moves.size();
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + count * ENTRY_BYTES);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(count);
+            for (long key : keys) {
+                for (Map.Entry<Integer, Integer> move : weights.get(key).entrySet()) {
+                    buffer.putLong(key).putInt(move.getKey()).putInt(move.getValue());
+                }
+            }
+            buffer.flip();
+            return buffer;
+        }
+
+        /**
+         * Builds the book in memory.
+         *
+         * @return the book.
+         */
+        public OpeningBook build() {
+            try {
+                return new OpeningBook(toBuffer());
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        /**
+         * Writes the book to a file, replacing it if it exists.
+         *
+         * @param path the book file.
+         * @throws IOException if the file cannot be written.
+         */
+        public void write(Path path) throws IOException {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = toBuffer();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.out.println("Usage: OpeningBook <config> <book file> [--games N] [--threads N] [--plies N] "
+                    + "[--layout file]");
+            System.exit(2);
+        }
+        int games = SelfPlay.DEFAULT_GAMES;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int plies = DEFAULT_PLIES;
+        String layout = null;
+        for (int i = 2; i + 1 < args.length; i += 2) {
+            if (args[i].equals("--games")) games = Integer.parseInt(args[i + 1]);
+            else if (args[i].equals("--threads")) threads = Integer.parseInt(args[i + 1]);
+            else if (args[i].equals("--plies")) plies = Integer.parseInt(args[i + 1]);
+            else if (args[i].equals("--layout")) layout = args[i + 1];
+        }
+        SelfPlay selfPlay = SelfPlay.fromConfig(args[0], layout);
+        Position start = selfPlay.getStart();
+        Builder builder = new Builder(plies);
+        // The random opening plies of self-play only spread the games out; the engine's replies go into the book
+        int randomPlies = selfPlay.getRandomPlies();
+        SelfPlay.Summary summary = selfPlay.run(games, threads,
+                result -> builder.addGame(start, result.moves, result.winner, randomPlies));
+        System.out.print(summary);
+
+        Path path = Paths.get(args[1]);
+        builder.write(path);
+        System.out.printf("Wrote %d book moves to %s (%d bytes)%n",
+                builder.build().size(), path, Files.size(path));
+    }
+}
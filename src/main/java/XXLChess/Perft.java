@@ -0,0 +1,221 @@
+package XXLChess;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+
+/**
+ * Perft walks the tree of legal moves to a fixed depth and counts its leaves. The counts are compared against
+ * stored reference counts to catch move generation bugs, and the time taken measures move generation speed.
+ * It can count with the {@link MoveGenerator} on a {@link Position}, or on the {@link Board} itself, moving
+ * Piece objects with makeMove/unmakeMove and checking each move with {@link Game#predictInCheck}.
+ *
+ * <pre>
+ * Perft &lt;layout&gt; &lt;depth&gt; [--divide] [--board] [--black]
+ * Perft --suite [suite file]
+ * </pre>
+ * The layout is a level file in the same format as the "layout" of config.json, and white moves first.
+ * --divide prints the leaf count below each root move, --board counts on the Board instead of a Position,
+ * and --black makes the human player black, which turns the pawn directions around.
+ */
+public class Perft {
+    // The reference node counts, one "layout player_colour depth nodes" entry per line
+    public static final String SUITE_FILE = "testcases/perft_suite.txt";
+
+    private final MoveGenerator generator = new MoveGenerator();
+
+    // One move buffer per remaining depth
+    private int[][] buffers = new int[0][];
+
+    /**
+     * Counts the leaves of the move tree of a position.
+     *
+     * @param position the position, which is left unchanged.
+     * @param depth    the number of plies to search.
+     * @return the number of leaf nodes.
+     */
+    public long count(Position position, int depth) {
+        if (depth == 0) {
+            return 1;
+        }
+        if (buffers.length < depth) {
+            buffers = new int[depth][MoveGenerator.MAX_MOVES];
+        }
+        int[] moves = buffers[depth - 1];
+        int count = generator.generate(position, moves);
+        // Every generated move is legal, so the last ply does not need to be made
+        if (depth == 1) {
+            return count;
+        }
+        long nodes = 0;
+        for (int i = 0; i < count; i++) {
+            position.makeMove(moves[i]);
+            nodes += count(position, depth - 1);
+            position.unmakeMove();
+        }
+        return nodes;
+    }
+
+    /**
+     * Counts the leaves of the move tree below each move of a position.
+     *
+     * @param position the position, which is left unchanged.
+     * @param depth    the number of plies to search, including the root move.
+     * @return "move: nodes" lines, one per root move.
+     */
+    public List<String> divide(Position position, int depth) {
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int count = generator.generate(position, moves);
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            position.makeMove(moves[i]);
+            lines.add(moveName(moves[i]) + ": " + count(position, depth - 1));
+            position.unmakeMove();
+        }
+        return lines;
+    }
+
+    /**
+     * Counts the leaves of the move tree on a game's board, trying every pseudo-legal move of the Piece objects.
+     * This follows the same path as the game itself, so it checks the Board against the move generator.
+     *
+     * @param game  the game, whose board is left unchanged.
+     * @param agent the player to move.
+     * @param depth the number of plies to search.
+     * @return the number of leaf nodes.
+     */
+    public static long countOnBoard(Game game, PlayerAgent agent, int depth) {
+        if (depth == 0) {
+            return 1;
+        }
+        Board board = game.getBoard();
+        InCheckIncident inCheck = game.getInCheck();
+        // Castling depends on whether the player to move is in check
+        game.setInCheck(game.detectInCheck(agent));
+        List<Movement> moves = new ArrayList<>(game.getAllLegalMovements(agent));
+        long nodes = 0;
+        for (Movement m : moves) {
+            if (game.predictInCheck(agent, m) != null) continue;
+            if (depth == 1) {
+                nodes++;
+                continue;
+            }
+            UndoRecord undo = board.makeMove(m);
+            nodes += countOnBoard(game, agent.getOpponent(), depth - 1);
+            board.unmakeMove(undo);
+        }
+        game.setInCheck(inCheck);
+        return nodes;
+    }
+
+    /**
+     * Creates a game holding a level file, with white to move.
+     *
+     * @param layoutFilename the level file.
+     * @param isPlayerWhite  whether the human player is white.
+     * @return the game.
+     * @throws Exception if the level cannot be loaded.
+     */
+    public static Game loadGame(String layoutFilename, boolean isPlayerWhite) throws Exception {
+        Game game = new Game(isPlayerWhite, 0, 0, 0, 0, 0, 0);
+        game.loadLevel(layoutFilename);
+        return game;
+    }
+
+    /**
+     * Returns the name of a move in coordinate notation, with files a to n from the left
+     * and ranks 1 to 14 from the bottom of the board.
+     *
+     * @param move the encoded move.
+     * @return the move name, such as "g2g4".
+     */
+    public static String moveName(int move) {
+        return squareName(MoveGenerator.fromOf(move)) + squareName(MoveGenerator.toOf(move));
+    }
+
+    // Returns the name of a square, such as "g2"
+    private static String squareName(int sq) {
+        return (char) ('a' + Position.xOf(sq)) + String.valueOf(Board.BOARD_WIDTH - Position.yOf(sq));
+    }
+
+    /**
+     * Reads the reference node counts of a suite file. Blank lines and lines starting with # are skipped.
+     *
+     * @param suiteFilename the suite file.
+     * @return the entries, each as {layout, player_colour, depth, nodes}.
+     * @throws FileNotFoundException if the file does not exist.
+     */
+    public static List<String[]> loadSuite(String suiteFilename) throws FileNotFoundException {
+        List<String[]> entries = new ArrayList<>();
+        try (Scanner sc = new Scanner(new File(suiteFilename))) {
+            while (sc.hasNextLine()) {
+                String line = sc.nextLine().trim();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                entries.add(line.split("\\s+"));
+            }
+        }
+        return entries;
+    }
+
+    // Runs every entry of a suite file and returns the number of mismatches
+    private static int runSuite(String suiteFilename) throws Exception {
+        int failures = 0;
+        Perft perft = new Perft();
+        for (String[] entry : loadSuite(suiteFilename)) {
+            Game game = loadGame(entry[0], entry[1].equals("white"));
+            int depth = Integer.parseInt(entry[2]);
+            long expected = Long.parseLong(entry[3]);
+            long start = System.nanoTime();
+            long nodes = perft.count(game.getPosition(), depth);
+            long elapsed = System.nanoTime() - start;
+            boolean ok = nodes == expected;
+            if (!ok) failures++;
+            System.out.printf("%-4s %s (%s) depth %d: %d nodes, expected %d, %s%n", ok ? "ok" : "FAIL",
+                    entry[0], entry[1], depth, nodes, expected, rate(nodes, elapsed));
+        }
+        return failures;
+    }
+
+    // Formats a nodes per second figure
+    private static String rate(long nodes, long nanos) {
+        return String.format("%.3f s, %.0f nodes/s", nanos / 1e9, nodes / Math.max(nanos / 1e9, 1e-9));
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length >= 1 && args[0].equals("--suite")) {
+            int failures = runSuite(args.length >= 2 ? args[1] : SUITE_FILE);
+            System.exit(failures == 0 ? 0 : 1);
+        }
+        if (args.length < 2) {
+            System.out.println("Usage: Perft <layout> <depth> [--divide] [--board] [--black]");
+            System.out.println("       Perft --suite [suite file]");
+            System.exit(2);
+        }
+        boolean divide = false, onBoard = false, isPlayerWhite = true;
+        for (int i = 2; i < args.length; i++) {
+            if (args[i].equals("--divide")) divide = true;
+            else if (args[i].equals("--board")) onBoard = true;
+            else if (args[i].equals("--black")) isPlayerWhite = false;
+        }
+        Game game = loadGame(args[0], isPlayerWhite);
+        int depth = Integer.parseInt(args[1]);
+        Perft perft = new Perft();
+
+        long start = System.nanoTime();
+        long nodes;
+        if (divide) {
+            nodes = 0;
+            for (String line : perft.divide(game.getPosition(), depth)) {
+                System.out.println(line);
+                nodes += Long.parseLong(line.substring(line.indexOf(": ") + 2));
+            }
+        } else if (onBoard) {
+            nodes = countOnBoard(game, game.getCurrentPlayer(), depth);
+        } else {
+            nodes = perft.count(game.getPosition(), depth);
+        }
+        System.out.println("Nodes: " + nodes + " (" + rate(nodes, System.nanoTime() - start) + ")");
+    }
+}
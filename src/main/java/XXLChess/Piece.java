@@ -111,8 +111,26 @@ public abstract class Piece implements Cloneable {
         return currentTile.getY();
     }
 
-    // Abstract method for updating possible moves
-    public abstract void updatePossibleTargets(Board board) throws IllegalArgumentException;
+    // Gets the square index of the piece, as used by Position and AttackTables
+    public int getSquare() throws IllegalArgumentException {
+        if (currentTile == null)
+            throw new IllegalArgumentException("This piece was already captured");
+        return currentTile.getSquare();
+    }
+
+    /**
+     * Computes the possible moves of the piece on a given board, without changing the cached possible targets.
+     *
+     * @param board the board to compute the moves on
+     * @return the set of tiles the piece could move to
+     * @throws IllegalArgumentException if the current tile is null
+     */
+    public abstract Set<Tile> computePossibleTargets(Board board) throws IllegalArgumentException;
+
+    // Recomputes and caches the possible moves of the piece
+    public void updatePossibleTargets(Board board) throws IllegalArgumentException {
+        possibleTargets = computePossibleTargets(board);
+    }
 
     // Getter methods
     public String getPieceName() {
@@ -178,19 +196,20 @@ class Amazon extends Piece {
     }
 
     /**
-     * Updates the possible moves for this piece on a given board.
+     * Computes the possible moves for this piece on a given board.
      * The Amazon piece can move like a Knight, Bishop, or Rook.
      *
      * @param board the current game board
+     * @return the set of possible destination tiles
      * @throws IllegalArgumentException if the current tile is null
      */
     @Override
-    public void updatePossibleTargets(Board board) throws IllegalArgumentException {
+    public Set<Tile> computePossibleTargets(Board board) throws IllegalArgumentException {
         Set<Tile> tiles = new HashSet<Tile>();
         tiles.addAll(Knight.getPossibleTargetsFromTile(board, getCurrentTile()));
         tiles.addAll(Bishop.getPossibleTargetsFromTile(board, getCurrentTile()));
         tiles.addAll(Rook.getPossibleTargetsFromTile(board, getCurrentTile()));
-        possibleTargets = tiles;
+        return tiles;
     }
 }
 
@@ -205,18 +224,19 @@ class Archbishop extends Piece {
     }
 
     /**
-     * Updates the possible moves for this piece on a given board.
+     * Computes the possible moves for this piece on a given board.
      * The Archbishop piece can move like a Bishop or Knight.
      *
      * @param board the current game board
+     * @return the set of possible destination tiles
      * @throws IllegalArgumentException if the current tile is null
      */
     @Override
-    public void updatePossibleTargets(Board board) throws IllegalArgumentException {
+    public Set<Tile> computePossibleTargets(Board board) throws IllegalArgumentException {
         Set<Tile> tiles = new HashSet<Tile>();
         tiles.addAll(Bishop.getPossibleTargetsFromTile(board, getCurrentTile()));
         tiles.addAll(Knight.getPossibleTargetsFromTile(board, getCurrentTile()));
-        possibleTargets = tiles;
+        return tiles;
     }
 }
 
@@ -239,26 +259,22 @@ class Bishop extends Piece {
      * @throws IllegalArgumentException if the source tile is null
      */
     protected static Set<Tile> getPossibleTargetsFromTile(Board board, Tile source) throws IllegalArgumentException {
-        Set<Tile> tiles = new HashSet<Tile>();
-        tiles.addAll(board.linearMove(source, 1, 1));
-        tiles.addAll(board.linearMove(source, 1, -1));
-        tiles.addAll(board.linearMove(source, -1, -1));
-        tiles.addAll(board.linearMove(source, -1, 1));
-        return tiles;
+        return board.linearMoves(source, 4, 8);
     }
 
     /**
-     * Updates the possible moves for this piece on a given board.
+     * Computes the possible moves for this piece on a given board.
      * The Bishop piece can move diagonally.
      *
      * @param board the current game board
+     * @return the set of possible destination tiles
      * @throws IllegalArgumentException if the current tile is null
      */
     @Override
-    public void updatePossibleTargets(Board board) throws IllegalArgumentException {
+    public Set<Tile> computePossibleTargets(Board board) throws IllegalArgumentException {
         if (getCurrentTile() == null)
             throw new IllegalArgumentException();
-        possibleTargets = getPossibleTargetsFromTile(board, getCurrentTile());
+        return getPossibleTargetsFromTile(board, getCurrentTile());
     }
 }
 
@@ -273,33 +289,16 @@ class Camel extends Piece {
     }
 
     /**
-     * Returns the movement directions for the Camel piece.
-     *
-     * @return an array of coordinate pairs representing the movement directions
-     */
-    protected static int[][] getMovementDirections() {
-        return new int[][]{
-                {3, 1},
-                {3, -1},
-                {-3, 1},
-                {-3, -1},
-                {1, 3},
-                {-1, 3},
-                {1, -3},
-                {-1, -3}
-        };
-    }
-
-    /**
-     * Updates the possible moves for this piece on a given board.
+     * Computes the possible moves for this piece on a given board.
      * The Camel piece has a unique jumping move pattern.
      *
      * @param board the current game board
+     * @return the set of possible destination tiles
      * @throws IllegalArgumentException if the current tile is null
      */
     @Override
-    public void updatePossibleTargets(Board board) throws IllegalArgumentException {
-        possibleTargets = board.jumpingMove(getCurrentTile(), getMovementDirections());
+    public Set<Tile> computePossibleTargets(Board board) throws IllegalArgumentException {
+        return board.jumpingMove(getCurrentTile(), AttackTables.CAMEL[getSquare()]);
     }
 }
 
@@ -314,18 +313,19 @@ class Chancellor extends Piece {
     }
 
     /**
-     * Updates the possible moves for this piece on a given board.
+     * Computes the possible moves for this piece on a given board.
      * The Chancellor piece can move like a Knight or Rook.
      *
      * @param board the current game board
+     * @return the set of possible destination tiles
      * @throws IllegalArgumentException if the current tile is null
      */
     @Override
-    public void updatePossibleTargets(Board board) throws IllegalArgumentException {
+    public Set<Tile> computePossibleTargets(Board board) throws IllegalArgumentException {
         Set<Tile> tiles = new HashSet<Tile>();
         tiles.addAll(Knight.getPossibleTargetsFromTile(board, getCurrentTile()));
         tiles.addAll(Rook.getPossibleTargetsFromTile(board, getCurrentTile()));
-        possibleTargets = tiles;
+        return tiles;
     }
 }
 
@@ -340,22 +340,28 @@ class General extends Piece {
     }
 
     /**
-     * Updates the possible moves for this piece on a given board.
+     * Computes the possible moves for this piece on a given board.
      * The General piece can move like a Knight or King.
      *
      * @param board the current game board
+     * @return the set of possible destination tiles
      * @throws IllegalArgumentException if the current tile is null
      */
     @Override
-    public void updatePossibleTargets(Board board) throws IllegalArgumentException {
-        Set<Tile> tiles = board.jumpingMove(getCurrentTile(), Knight.getDirections());
-        tiles.addAll(board.jumpingMove(getCurrentTile(), King.getDirections()));
-        possibleTargets = tiles;
+    public Set<Tile> computePossibleTargets(Board board) throws IllegalArgumentException {
+        Set<Tile> tiles = board.jumpingMove(getCurrentTile(), AttackTables.KNIGHT[getSquare()]);
+        tiles.addAll(board.jumpingMove(getCurrentTile(), AttackTables.KING[getSquare()]));
+        return tiles;
     }
 }
 
 class King extends Piece {
-    
+    // The offsets of the squares a king castles onto
+    private static final int[][] CASTLING_OFFSETS = {
+            {-2, 0},
+            {2, 0}
+    };
+
     /**
      * Constructs a King piece with the given color.
      *
@@ -365,25 +371,6 @@ class King extends Piece {
         super("king", pieceColor, Double.POSITIVE_INFINITY, 'k');
     }
 
-    /**
-     * Returns the movement directions for the King piece.
-     *
-     * @return an array of coordinate pairs representing the movement directions
-     */
-    protected static int[][] getDirections() {
-        return new int[][]{
-                {-1, -1},
-                {-1, 1},
-                {1, -1},
-                {1, 1},
-                {-1, 0},
-                {1, 0},
-                {0, -1},
-                {0, 1}
-        };
-    }
-
-
     /**
      * Returns the possible moves for a King piece from a given source tile.
      *
@@ -393,28 +380,24 @@ class King extends Piece {
      * @throws IllegalArgumentException if the source tile is null
      */
     protected static Set<Tile> getPossibleTargetsFromTile(Board board, Tile source) throws IllegalArgumentException {
-        return board.jumpingMove(source, getDirections());
+        return board.jumpingMove(source, AttackTables.KING[source.getSquare()]);
     }
 
     /**
-     * Updates the possible moves for this piece on a given board.
+     * Computes the possible moves for this piece on a given board.
      *
      * @param board the current game board
+     * @return the set of possible destination tiles
      * @throws IllegalArgumentException if the current tile is null
      */
     @Override
-    public void updatePossibleTargets(Board board) throws IllegalArgumentException {
-        this.possibleTargets = getPossibleTargetsFromTile(board, getCurrentTile());
+    public Set<Tile> computePossibleTargets(Board board) throws IllegalArgumentException {
+        return getPossibleTargetsFromTile(board, getCurrentTile());
     }
 
     public Set<Movement> getPotentialCastlingMovements(Game ctx) {
         HashSet<Movement> possibleCastlingMovements = new HashSet<>();
-        Set<Tile> targets = ctx.getBoard().jumpingMove(getCurrentTile(), 
-            new int[][] {
-                {-2, 0},
-                {2, 0}
-            }
-        );
+        Set<Tile> targets = ctx.getBoard().jumpingMove(getCurrentTile(), CASTLING_OFFSETS);
         
         for (Tile t : targets) {
             Movement m = new Movement(this,t);
@@ -436,24 +419,6 @@ class Knight extends Piece {
         super("knight", pieceColor, 2.0, 'n');
     }
 
-    /**
-     * Returns the movement directions for the Knight piece.
-     *
-     * @return an array of coordinate pairs representing the movement directions
-     */
-    public static int[][] getDirections() {
-        return new int[][]{
-                {-1, -2},
-                {1, -2},
-                {-1, 2},
-                {1, 2},
-                {-2, -1},
-                {2, -1},
-                {-2, 1},
-                {2, 1}
-        };
-    }
-
     /**
      * Returns the possible moves for a Knight piece from a given source tile.
      *
@@ -463,22 +428,33 @@ class Knight extends Piece {
      * @throws IllegalArgumentException if the source tile is null
      */
     protected static Set<Tile> getPossibleTargetsFromTile(Board board, Tile source) throws IllegalArgumentException {
-        return board.jumpingMove(source, getDirections());
+        return board.jumpingMove(source, AttackTables.KNIGHT[source.getSquare()]);
     }
 
     /**
-     * Updates the possible moves for this piece on a given board.
+     * Computes the possible moves for this piece on a given board.
      *
      * @param board the current game board
+     * @return the set of possible destination tiles
      * @throws IllegalArgumentException if the current tile is null
      */
     @Override
-    public void updatePossibleTargets(Board board) throws IllegalArgumentException {
-        possibleTargets = getPossibleTargetsFromTile(board, getCurrentTile());
+    public Set<Tile> computePossibleTargets(Board board) throws IllegalArgumentException {
+        return getPossibleTargetsFromTile(board, getCurrentTile());
     }
 }
 
 class Pawn extends Piece {
+    // The diagonals a pawn attacks, for pawns moving down (the computer player's) and up the board
+    private static final int[][] DOWN_ATTACKS = {
+            {-1, 1},
+            {1, 1}
+    };
+    private static final int[][] UP_ATTACKS = {
+            {1, -1},
+            {-1, -1}
+    };
+
     /**
      * Constructs a Pawn piece with the given color.
      *
@@ -497,19 +473,8 @@ class Pawn extends Piece {
      * @throws IllegalArgumentException if the current tile is null
      */
     public Set<Tile> getAttackRange(Board board) throws IllegalArgumentException {
-        int[][] attackDirection;
         PlayerAgent agent = board.getAgentByColor(getColor());
-        if (agent instanceof Bot) {
-            attackDirection = new int[][]{
-                    {-1, 1},
-                    {1, 1}
-            };
-        } else {
-            attackDirection = new int[][]{
-                    {1, -1},
-                    {-1, -1}
-            };
-        }
+        int[][] attackDirection = agent instanceof Bot ? DOWN_ATTACKS : UP_ATTACKS;
         Set<Tile> diagonals = board.jumpingMove(getCurrentTile(), attackDirection);
         Set<Tile> possibleTargets = new HashSet<Tile>();
         for (Tile tile : diagonals) {
@@ -523,15 +488,16 @@ class Pawn extends Piece {
     }
 
     /**
-     * Updates the possible moves for this piece on a given board.
+     * Computes the possible moves for this piece on a given board.
      * The Pawn piece can move forward one square or two squares from its initial position,
      * and can capture diagonally.
      *
      * @param board the current game board
+     * @return the set of possible destination tiles
      * @throws IllegalArgumentException if the current tile is null
      */
     @Override
-    public void updatePossibleTargets(Board board) throws IllegalArgumentException {
+    public Set<Tile> computePossibleTargets(Board board) throws IllegalArgumentException {
         // Captures diagonally only.
         Set<Tile> possibleTargets = new HashSet<Tile>();
         possibleTargets.addAll(getAttackRange(board));
@@ -548,7 +514,7 @@ class Pawn extends Piece {
                 possibleTargets.add(tile);
             }
         }
-        this.possibleTargets = possibleTargets;
+        return possibleTargets;
     }
 }
 
@@ -563,18 +529,19 @@ class Queen extends Piece {
     }
 
     /**
-     * Updates the possible moves for this piece on a given board.
+     * Computes the possible moves for this piece on a given board.
      * The Queen piece can move along its rank, file, or diagonal.
      *
      * @param board the current game board
+     * @return the set of possible destination tiles
      * @throws IllegalArgumentException if the current tile is null
      */
     @Override
-    public void updatePossibleTargets(Board board) throws IllegalArgumentException {
+    public Set<Tile> computePossibleTargets(Board board) throws IllegalArgumentException {
         Set<Tile> tiles = new HashSet<Tile>();
         tiles.addAll(Bishop.getPossibleTargetsFromTile(board, getCurrentTile()));
         tiles.addAll(Rook.getPossibleTargetsFromTile(board, getCurrentTile()));
-        possibleTargets = tiles;
+        return tiles;
     }
 }
 
@@ -597,25 +564,21 @@ class Rook extends Piece {
      * @throws IllegalArgumentException if the source tile is null
      */
     protected static Set<Tile> getPossibleTargetsFromTile(Board board, Tile source) throws IllegalArgumentException {
-        Set<Tile> tiles = new HashSet<Tile>();
-        tiles.addAll(board.linearMove(source, 0, 1));
-        tiles.addAll(board.linearMove(source, 0, -1));
-        tiles.addAll(board.linearMove(source, 1, 0));
-        tiles.addAll(board.linearMove(source, -1, 0));
-        return tiles;
+        return board.linearMoves(source, 0, 4);
     }
 
     /**
-     * Updates the possible moves for this piece on a given board.
+     * Computes the possible moves for this piece on a given board.
      * The Rook piece can move any number of squares along its rank or file.
      *
      * @param board the current game board
+     * @return the set of possible destination tiles
      * @throws IllegalArgumentException if the current tile is null
      */
     @Override
-    public void updatePossibleTargets(Board board) throws IllegalArgumentException {
+    public Set<Tile> computePossibleTargets(Board board) throws IllegalArgumentException {
         if (getCurrentTile() == null)
             throw new IllegalArgumentException();
-        possibleTargets = getPossibleTargetsFromTile(board, getCurrentTile());
+        return getPossibleTargetsFromTile(board, getCurrentTile());
     }
 }
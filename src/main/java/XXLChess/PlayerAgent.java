@@ -98,6 +98,17 @@ public abstract class PlayerAgent implements Tickable {
         return (int) timer.getRemainingSecs();
     }
 
+    /**
+     * Get the remaining time for the player in milliseconds.
+     * Returns zero if the timer has ended.
+     */
+    public long getRemainingMillis() {
+        if (timer.isEnded()) {
+            return 0;
+        }
+        return timer.getRemainingMillis();
+    }
+
     /**
      * Tick the player's timer, decreasing the remaining time by 1 second.
      * Throws an IllegalStateException if the timer has ended.
@@ -107,6 +118,16 @@ public abstract class PlayerAgent implements Tickable {
         timer.tick();
     }
 
+    /**
+     * Decrease the player's remaining time by the given number of seconds, rather than by one frame.
+     * This is how the game charges the time that has passed on its {@link TimeSource}.
+     * Throws an IllegalStateException if the timer has ended.
+     */
+    public void elapse(double seconds) {
+        if (isEnded()) throw new IllegalStateException();
+        timer.elapse(seconds);
+    }
+
     /**
      * Check if the player's time has ended.
      * Returns true if the timer has ended, false otherwise.
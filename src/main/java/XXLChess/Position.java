@@ -0,0 +1,763 @@
+package XXLChess;
+
+import java.util.Arrays;
+
+/**
+ * Position is a compact model of the board that does not use Tile or Piece objects.
+ * Squares are numbered {@code y * BOARD_WIDTH + x}. Each square holds a piece code (colour * PIECE_TYPES + type)
+ * in a mailbox, and every piece type of every colour has its own occupancy bitboard (see {@link Bitboard}).
+ * It is intended for the search and validation paths, which only need to know where pieces are and what they attack.
+ */
+public class Position {
+    // The number of squares on the board.
+    public static final int SQUARES = Board.BOARD_WIDTH * Board.BOARD_WIDTH;
+
+    // Colours
+    public static final int WHITE = 0;
+    public static final int BLACK = 1;
+
+    // Piece types, in the same order as the layout characters in TYPE_CHARS
+    public static final int PAWN = 0;
+    public static final int ROOK = 1;
+    public static final int KNIGHT = 2;
+    public static final int BISHOP = 3;
+    public static final int ARCHBISHOP = 4;
+    public static final int CAMEL = 5;
+    public static final int GENERAL = 6;
+    public static final int AMAZON = 7;
+    public static final int KING = 8;
+    public static final int CHANCELLOR = 9;
+    public static final int QUEEN = 10;
+    public static final int PIECE_TYPES = 11;
+
+    // The piece code of an empty square
+    public static final int NO_PIECE = -1;
+
+    // The layout character of each piece type (white pieces are lowercase, black pieces are uppercase)
+    private static final String TYPE_CHARS = "prnbhcgakeq";
+
+    // Movement abilities; each piece type is a combination of these
+    static final int SLIDES_ORTHOGONALLY = 1;
+    static final int SLIDES_DIAGONALLY = 2;
+    static final int LEAPS_KNIGHT = 4;
+    static final int LEAPS_CAMEL = 8;
+    static final int STEPS_KING = 16;
+
+    // The movement abilities of each piece type, indexed by type
+    static final int[] ABILITIES = {
+            0,                                                      // pawn (handled separately)
+            SLIDES_ORTHOGONALLY,                                    // rook
+            LEAPS_KNIGHT,                                           // knight
+            SLIDES_DIAGONALLY,                                      // bishop
+            SLIDES_DIAGONALLY | LEAPS_KNIGHT,                       // archbishop
+            LEAPS_CAMEL,                                            // camel
+            LEAPS_KNIGHT | STEPS_KING,                              // general
+            SLIDES_ORTHOGONALLY | SLIDES_DIAGONALLY | LEAPS_KNIGHT, // amazon
+            STEPS_KING,                                             // king
+            SLIDES_ORTHOGONALLY | LEAPS_KNIGHT,                     // chancellor
+            SLIDES_ORTHOGONALLY | SLIDES_DIAGONALLY                 // queen
+    };
+
+    // Leaper offsets as {dx, dy}
+    static final int[][] KNIGHT_OFFSETS = {{-1, -2}, {1, -2}, {-1, 2}, {1, 2}, {-2, -1}, {2, -1}, {-2, 1}, {2, 1}};
+    static final int[][] CAMEL_OFFSETS = {{3, 1}, {3, -1}, {-3, 1}, {-3, -1}, {1, 3}, {-1, 3}, {1, -3}, {-1, -3}};
+    static final int[][] KING_OFFSETS = {{-1, -1}, {-1, 1}, {1, -1}, {1, 1}, {-1, 0}, {1, 0}, {0, -1}, {0, 1}};
+
+    // Slider directions as {dx, dy}; the first four are orthogonal, the last four are diagonal
+    static final int[][] DIRECTIONS = {{0, 1}, {0, -1}, {1, 0}, {-1, 0}, {1, 1}, {1, -1}, {-1, -1}, {-1, 1}};
+
+    // The piece code on each square, or NO_PIECE
+    private final int[] mailbox = new int[SQUARES];
+
+    // Occupancy of each piece code
+    private final long[][] pieces = new long[2 * PIECE_TYPES][Bitboard.WORDS];
+
+    // Occupancy of each colour
+    private final long[][] colors = new long[2][Bitboard.WORDS];
+
+    // Occupancy of both colours
+    private final long[] occupied = new long[Bitboard.WORDS];
+
+    // Squares whose piece has not moved before (pawn double steps and castling depend on it)
+    private final long[] unmoved = new long[Bitboard.WORDS];
+
+    // The y-offset of a pawn step for each colour
+    private final int[] pawnDirection = {-1, 1};
+
+    // The square of each colour's king, or -1 if there is none
+    private final int[] kingSquare = {-1, -1};
+
+    // The colour whose turn it is
+    private int sideToMove = WHITE;
+
+    // The Zobrist key of the position, see Zobrist
+    private long key;
+
+    // The material and piece-square balance of white over black (see Evaluator)
+    private int score;
+
+    // The fields of one undo entry, see makeMove
+    private static final int UNDO_MOVE = 0;
+    private static final int UNDO_FLAGS = 1;
+    private static final int UNDO_CAPTURED = 2;
+    private static final int UNDO_ROOK_FROM = 3;
+    private static final int UNDO_ROOK_TO = 4;
+    private static final int UNDO_STRIDE = 5;
+
+    // Flags of an undo entry
+    private static final int MOVED_UNMOVED = 1;
+    private static final int CAPTURED_UNMOVED = 2;
+    private static final int ROOK_UNMOVED = 4;
+    private static final int PROMOTED = 8;
+
+    // The undo entries of the moves made so far, UNDO_STRIDE ints each
+    private int[] undoStack = new int[64 * UNDO_STRIDE];
+
+    // The number of moves made so far
+    private int ply;
+
+    /**
+     * Constructs an empty position.
+     */
+    public Position() {
+        for (int i = 0; i < SQUARES; i++) {
+            mailbox[i] = NO_PIECE;
+        }
+    }
+
+    /**
+     * Returns a copy of the position, without the moves made so far, which can no longer be taken back on the copy.
+     *
+     * @return the copy.
+     */
+    public Position copy() {
+        Position copy = new Position();
+        System.arraycopy(mailbox, 0, copy.mailbox, 0, SQUARES);
+        for (int code = 0; code < pieces.length; code++) {
+            System.arraycopy(pieces[code], 0, copy.pieces[code], 0, Bitboard.WORDS);
+        }
+        for (int color = WHITE; color <= BLACK; color++) {
+            System.arraycopy(colors[color], 0, copy.colors[color], 0, Bitboard.WORDS);
+            copy.pawnDirection[color] = pawnDirection[color];
+            copy.kingSquare[color] = kingSquare[color];
+        }
+        System.arraycopy(occupied, 0, copy.occupied, 0, Bitboard.WORDS);
+        System.arraycopy(unmoved, 0, copy.unmoved, 0, Bitboard.WORDS);
+        copy.sideToMove = sideToMove;
+        copy.key = key;
+        copy.score = score;
+        return copy;
+    }
+
+    /**
+     * Returns the square index of the given coordinates.
+     *
+     * @param x the x-coordinate.
+     * @param y the y-coordinate.
+     * @return the square index.
+     */
+    public static int square(int x, int y) {
+        return y * Board.BOARD_WIDTH + x;
+    }
+
+    /**
+     * Returns the x-coordinate of a square.
+     *
+     * @param sq the square index.
+     * @return the x-coordinate.
+     */
+    public static int xOf(int sq) {
+        return sq % Board.BOARD_WIDTH;
+    }
+
+    /**
+     * Returns the y-coordinate of a square.
+     *
+     * @param sq the square index.
+     * @return the y-coordinate.
+     */
+    public static int yOf(int sq) {
+        return sq / Board.BOARD_WIDTH;
+    }
+
+    /**
+     * Checks whether the coordinates are on the board.
+     *
+     * @param x the x-coordinate.
+     * @param y the y-coordinate.
+     * @return true if the coordinates are on the board, false otherwise.
+     */
+    public static boolean onBoard(int x, int y) {
+        return x >= 0 && y >= 0 && x < Board.BOARD_WIDTH && y < Board.BOARD_WIDTH;
+    }
+
+    /**
+     * Returns the piece code of a piece type of a colour.
+     *
+     * @param color the colour.
+     * @param type  the piece type.
+     * @return the piece code.
+     */
+    public static int pieceCode(int color, int type) {
+        return color * PIECE_TYPES + type;
+    }
+
+    /**
+     * Returns the colour of a piece code.
+     *
+     * @param code the piece code.
+     * @return the colour.
+     */
+    public static int colorOf(int code) {
+        return code / PIECE_TYPES;
+    }
+
+    /**
+     * Returns the piece type of a piece code.
+     *
+     * @param code the piece code.
+     * @return the piece type.
+     */
+    public static int typeOf(int code) {
+        return code % PIECE_TYPES;
+    }
+
+    /**
+     * Returns the colour index of a piece colour.
+     *
+     * @param color the piece colour.
+     * @return WHITE or BLACK.
+     */
+    public static int colorIndex(Piece.Color color) {
+        return color == Piece.Color.WHITE ? WHITE : BLACK;
+    }
+
+    /**
+     * Returns the piece colour of a colour index.
+     *
+     * @param color WHITE or BLACK.
+     * @return the piece colour.
+     */
+    public static Piece.Color pieceColor(int color) {
+        return color == WHITE ? Piece.Color.WHITE : Piece.Color.BLACK;
+    }
+
+    /**
+     * Returns the piece code of a layout character (uppercase characters are black pieces).
+     *
+     * @param c the layout character.
+     * @return the piece code, or NO_PIECE if the character is not a piece.
+     */
+    public static int codeOf(char c) {
+        int type = TYPE_CHARS.indexOf(Character.toLowerCase(c));
+        if (type < 0) {
+            return NO_PIECE;
+        }
+        return pieceCode(Character.isUpperCase(c) ? BLACK : WHITE, type);
+    }
+
+    /**
+     * Returns the piece type of a layout character, regardless of its colour.
+     *
+     * @param c the layout character.
+     * @return the piece type, or NO_PIECE if the character is not a piece.
+     */
+    public static int typeOfChar(char c) {
+        return TYPE_CHARS.indexOf(Character.toLowerCase(c));
+    }
+
+    /**
+     * Returns the layout character of a piece code.
+     *
+     * @param code the piece code.
+     * @return the layout character (uppercase for black pieces).
+     */
+    public static char charOf(int code) {
+        char c = TYPE_CHARS.charAt(typeOf(code));
+        return colorOf(code) == BLACK ? Character.toUpperCase(c) : c;
+    }
+
+    /**
+     * Places a piece on an empty square.
+     *
+     * @param sq        the square index.
+     * @param code      the piece code.
+     * @param isUnmoved whether the piece has not moved before.
+     */
+    public void put(int sq, int code, boolean isUnmoved) {
+        if (mailbox[sq] != NO_PIECE) {
+            throw new IllegalArgumentException("Square " + sq + " is already occupied");
+        }
+        mailbox[sq] = code;
+        Bitboard.set(pieces[code], sq);
+        Bitboard.set(colors[colorOf(code)], sq);
+        Bitboard.set(occupied, sq);
+        key ^= Zobrist.PIECES[code][sq];
+        score += pieceSquare(code, sq);
+        if (isUnmoved) {
+            Bitboard.set(unmoved, sq);
+            key ^= Zobrist.UNMOVED[sq];
+        }
+        if (typeOf(code) == KING) {
+            kingSquare[colorOf(code)] = sq;
+        }
+    }
+
+    /**
+     * Removes the piece on a square.
+     *
+     * @param sq the square index.
+     * @return the piece code of the removed piece, or NO_PIECE if the square was empty.
+     */
+    public int remove(int sq) {
+        int code = mailbox[sq];
+        if (code == NO_PIECE) {
+            return NO_PIECE;
+        }
+        mailbox[sq] = NO_PIECE;
+        Bitboard.clear(pieces[code], sq);
+        Bitboard.clear(colors[colorOf(code)], sq);
+        Bitboard.clear(occupied, sq);
+        key ^= Zobrist.PIECES[code][sq];
+        score -= pieceSquare(code, sq);
+        if (isUnmoved(sq)) {
+            Bitboard.clear(unmoved, sq);
+            key ^= Zobrist.UNMOVED[sq];
+        }
+        if (typeOf(code) == KING && kingSquare[colorOf(code)] == sq) {
+            kingSquare[colorOf(code)] = -1;
+        }
+        return code;
+    }
+
+    /**
+     * Returns the piece code on a square.
+     *
+     * @param sq the square index.
+     * @return the piece code, or NO_PIECE if the square is empty.
+     */
+    public int pieceAt(int sq) {
+        return mailbox[sq];
+    }
+
+    /**
+     * Checks whether the piece on a square has not moved before.
+     *
+     * @param sq the square index.
+     * @return true if there is a piece on the square that has not moved before.
+     */
+    public boolean isUnmoved(int sq) {
+        return Bitboard.test(unmoved, sq);
+    }
+
+    /**
+     * Returns the occupancy bitboard of a piece code. The returned array must not be modified.
+     *
+     * @param code the piece code.
+     * @return the squares occupied by pieces with the given code.
+     */
+    public long[] getPieces(int code) {
+        return pieces[code];
+    }
+
+    /**
+     * Returns the occupancy bitboard of a colour. The returned array must not be modified.
+     *
+     * @param color the colour.
+     * @return the squares occupied by pieces of the given colour.
+     */
+    public long[] getColorOccupancy(int color) {
+        return colors[color];
+    }
+
+    /**
+     * Returns the occupancy bitboard of both colours. The returned array must not be modified.
+     *
+     * @return the occupied squares.
+     */
+    public long[] getOccupancy() {
+        return occupied;
+    }
+
+    /**
+     * Returns the square of a colour's king.
+     *
+     * @param color the colour.
+     * @return the king's square, or -1 if the colour has no king.
+     */
+    public int getKingSquare(int color) {
+        return kingSquare[color];
+    }
+
+    /**
+     * Returns the y-offset of a pawn step for a colour.
+     *
+     * @param color the colour.
+     * @return -1 if the colour's pawns move up the board, 1 if they move down.
+     */
+    public int getPawnDirection(int color) {
+        return pawnDirection[color];
+    }
+
+    /**
+     * Sets the y-offset of a pawn step for a colour.
+     *
+     * @param color     the colour.
+     * @param direction -1 if the colour's pawns move up the board, 1 if they move down.
+     */
+    public void setPawnDirection(int color, int direction) {
+        if (direction == pawnDirection[color]) {
+            return;
+        }
+        // The piece-square values depend on the direction, so the colour's pieces are scored again
+        long[] own = colors[color];
+        for (int sq = Bitboard.next(own, 0); sq >= 0; sq = Bitboard.next(own, sq + 1)) {
+            score -= pieceSquare(mailbox[sq], sq);
+        }
+        pawnDirection[color] = direction;
+        for (int sq = Bitboard.next(own, 0); sq >= 0; sq = Bitboard.next(own, sq + 1)) {
+            score += pieceSquare(mailbox[sq], sq);
+        }
+    }
+
+    /**
+     * Returns the colour whose turn it is.
+     *
+     * @return WHITE or BLACK.
+     */
+    public int getSideToMove() {
+        return sideToMove;
+    }
+
+    /**
+     * Sets the colour whose turn it is.
+     *
+     * @param color WHITE or BLACK.
+     */
+    public void setSideToMove(int color) {
+        if (color != sideToMove) {
+            key ^= Zobrist.SIDE;
+        }
+        this.sideToMove = color;
+    }
+
+    /**
+     * Returns the Zobrist key of the position, which covers the pieces, their unmoved flags and the side to move.
+     *
+     * @return the key.
+     */
+    public long getKey() {
+        return key;
+    }
+
+    /**
+     * Returns the material and piece-square balance of the position, which is kept up to date as pieces move.
+     *
+     * @return the balance of white over black in thousandths of a pawn.
+     */
+    public int getScore() {
+        return score;
+    }
+
+    // Returns the material and piece-square value of a piece, negated for black
+    private int pieceSquare(int code, int sq) {
+        int color = colorOf(code);
+        int value = Evaluator.pieceSquare(typeOf(code), sq, pawnDirection[color]);
+        return color == WHITE ? value : -value;
+    }
+
+    /**
+     * Makes a move in place and switches the side to move. The move follows the same rules as
+     * {@link Board#makeMove(Movement)}: the captured piece is removed, an unmoved king moving two squares sideways
+     * brings the last unmoved rook in that direction next to it, and a pawn reaching the promotion row becomes a queen.
+     *
+     * @param move the move, as encoded by {@link MoveGenerator#encode(int, int)}.
+     */
+    public void makeMove(int move) {
+        int from = MoveGenerator.fromOf(move);
+        int to = MoveGenerator.toOf(move);
+        if (undoStack.length < (ply + 1) * UNDO_STRIDE) {
+            undoStack = Arrays.copyOf(undoStack, undoStack.length * 2);
+        }
+        int base = ply * UNDO_STRIDE;
+        int flags = 0;
+        int rookFrom = castlingRook(from, to);
+        int rookTo = -1;
+
+        if (isUnmoved(from)) flags |= MOVED_UNMOVED;
+        if (isUnmoved(to)) flags |= CAPTURED_UNMOVED;
+        int captured = remove(to);
+        int code = remove(from);
+        put(to, code, false);
+
+        if (rookFrom >= 0) {
+            rookTo = square(xOf(to) - Integer.signum(xOf(to) - xOf(from)), yOf(from));
+            if (isUnmoved(rookFrom)) flags |= ROOK_UNMOVED;
+            put(rookTo, remove(rookFrom), false);
+        }
+
+        // A pawn that reaches the promotion row becomes a queen
+        if (typeOf(code) == PAWN && yOf(to) == Board.PROMOTION_ROW) {
+            remove(to);
+            put(to, pieceCode(colorOf(code), QUEEN), false);
+            flags |= PROMOTED;
+        }
+
+        undoStack[base + UNDO_MOVE] = move;
+        undoStack[base + UNDO_FLAGS] = flags;
+        undoStack[base + UNDO_CAPTURED] = captured;
+        undoStack[base + UNDO_ROOK_FROM] = rookFrom;
+        undoStack[base + UNDO_ROOK_TO] = rookTo;
+        ply++;
+        sideToMove = 1 - sideToMove;
+        key ^= Zobrist.SIDE;
+    }
+
+    /**
+     * Takes back the last move made by {@link #makeMove(int)}.
+     */
+    public void unmakeMove() {
+        ply--;
+        sideToMove = 1 - sideToMove;
+        key ^= Zobrist.SIDE;
+        int base = ply * UNDO_STRIDE;
+        int move = undoStack[base + UNDO_MOVE];
+        int flags = undoStack[base + UNDO_FLAGS];
+        int from = MoveGenerator.fromOf(move);
+        int to = MoveGenerator.toOf(move);
+
+        int rookFrom = undoStack[base + UNDO_ROOK_FROM];
+        if (rookFrom >= 0) {
+            int rookTo = undoStack[base + UNDO_ROOK_TO];
+            put(rookFrom, remove(rookTo), (flags & ROOK_UNMOVED) != 0);
+        }
+
+        int code = remove(to);
+        if ((flags & PROMOTED) != 0) {
+            code = pieceCode(colorOf(code), PAWN);
+        }
+        put(from, code, (flags & MOVED_UNMOVED) != 0);
+        int captured = undoStack[base + UNDO_CAPTURED];
+        if (captured != NO_PIECE) {
+            put(to, captured, (flags & CAPTURED_UNMOVED) != 0);
+        }
+    }
+
+    /**
+     * Returns the number of moves made by {@link #makeMove(int)} that have not been taken back.
+     *
+     * @return the number of moves made.
+     */
+    public int getPly() {
+        return ply;
+    }
+
+    /**
+     * Returns the square of the rook that would accompany a move if it were a castling move.
+     * A castling move is an unmoved king moving two squares sideways onto an empty square; the rook is the last
+     * unmoved rook, of either colour, on the way from the king to the edge of the board. The rook lands on the square
+     * the king passed over, which must be empty unless the rook is already there.
+     *
+     * @param from the square the piece moves from.
+     * @param to   the square the piece moves to.
+     * @return the rook's square, or -1 if the move is not a castling move.
+     */
+    public int castlingRook(int from, int to) {
+        int code = mailbox[from];
+        if (code == NO_PIECE || typeOf(code) != KING || !isUnmoved(from) || mailbox[to] != NO_PIECE
+                || yOf(from) != yOf(to) || Math.abs(xOf(to) - xOf(from)) != 2) {
+            return -1;
+        }
+        int direction = Integer.signum(xOf(to) - xOf(from));
+        int rook = -1;
+        for (int x = xOf(from); x >= 0 && x < Board.BOARD_WIDTH; x += direction) {
+            int sq = square(x, yOf(from));
+            if (mailbox[sq] != NO_PIECE && typeOf(mailbox[sq]) == ROOK && isUnmoved(sq)) {
+                rook = sq;
+            }
+        }
+        int landing = from + direction;
+        if (rook >= 0 && landing != rook && mailbox[landing] != NO_PIECE) {
+            return -1;
+        }
+        return rook;
+    }
+
+    /**
+     * Computes the squares attacked by the piece on a square, including squares held by friendly pieces.
+     *
+     * @param sq  the square of the piece.
+     * @param out the bitboard to write the attacked squares into.
+     * @return out, for convenience.
+     */
+    public long[] attacks(int sq, long[] out) {
+        Bitboard.clearAll(out);
+        int code = mailbox[sq];
+        if (code != NO_PIECE) {
+            addAttacks(sq, code, out);
+        }
+        return out;
+    }
+
+    /**
+     * Adds the squares that a piece with the given code would attack from a square.
+     *
+     * @param sq   the square of the piece.
+     * @param code the piece code.
+     * @param out  the bitboard to add the attacked squares to.
+     */
+    public void addAttacks(int sq, int code, long[] out) {
+        int type = typeOf(code);
+        if (type == PAWN) {
+            int x = xOf(sq);
+            int ty = yOf(sq) + pawnDirection[colorOf(code)];
+            if (onBoard(x - 1, ty)) Bitboard.set(out, square(x - 1, ty));
+            if (onBoard(x + 1, ty)) Bitboard.set(out, square(x + 1, ty));
+            return;
+        }
+        int abilities = ABILITIES[type];
+        if ((abilities & LEAPS_KNIGHT) != 0) addLeaps(AttackTables.KNIGHT[sq], out);
+        if ((abilities & LEAPS_CAMEL) != 0) addLeaps(AttackTables.CAMEL[sq], out);
+        if ((abilities & STEPS_KING) != 0) addLeaps(AttackTables.KING[sq], out);
+        int[][] rays = AttackTables.RAYS[sq];
+        if ((abilities & SLIDES_ORTHOGONALLY) != 0) {
+            for (int d = 0; d < 4; d++) addRay(rays[d], out);
+        }
+        if ((abilities & SLIDES_DIAGONALLY) != 0) {
+            for (int d = 4; d < 8; d++) addRay(rays[d], out);
+        }
+    }
+
+    // Adds every leap target
+    private static void addLeaps(int[] targets, long[] out) {
+        for (int target : targets) {
+            Bitboard.set(out, target);
+        }
+    }
+
+    // Adds the squares of a ray up to and including the first occupied square
+    private void addRay(int[] ray, long[] out) {
+        for (int sq : ray) {
+            Bitboard.set(out, sq);
+            if (mailbox[sq] != NO_PIECE) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Checks whether any piece of a colour attacks a square.
+     *
+     * @param sq      the square to check.
+     * @param byColor the attacking colour.
+     * @return true if the square is attacked.
+     */
+    public boolean isAttacked(int sq, int byColor) {
+        return findAttackers(sq, byColor, -1, null);
+    }
+
+    /**
+     * Checks whether any piece of a colour attacks a square if another square were empty.
+     * This is used to test king moves, where the king must not shield the square behind itself.
+     *
+     * @param sq      the square to check.
+     * @param byColor the attacking colour.
+     * @param ignored a square that is treated as empty, or -1.
+     * @return true if the square is attacked.
+     */
+    public boolean isAttacked(int sq, int byColor, int ignored) {
+        return findAttackers(sq, byColor, ignored, null);
+    }
+
+    /**
+     * Collects every piece of a colour that attacks a square.
+     *
+     * @param sq      the square to check.
+     * @param byColor the attacking colour.
+     * @param out     the bitboard to write the squares of the attackers into.
+     * @return out, for convenience.
+     */
+    public long[] attackers(int sq, int byColor, long[] out) {
+        Bitboard.clearAll(out);
+        findAttackers(sq, byColor, -1, out);
+        return out;
+    }
+
+    // Looks outwards from the square for pieces that can reach it. Stops at the first attacker when out is null.
+    private boolean findAttackers(int sq, int byColor, int ignored, long[] out) {
+        int x = xOf(sq);
+        int y = yOf(sq);
+        boolean found = false;
+        // Pawns attack diagonally forwards, so an attacking pawn sits diagonally behind the square
+        int py = y - pawnDirection[byColor];
+        int pawn = pieceCode(byColor, PAWN);
+        for (int dx = -1; dx <= 1; dx += 2) {
+            if (onBoard(x + dx, py) && mailbox[square(x + dx, py)] == pawn) {
+                if (out == null) return true;
+                Bitboard.set(out, square(x + dx, py));
+                found = true;
+            }
+        }
+        // Leaps are symmetric, so a leaper attacking the square stands one of its leaps away from it
+        found |= findLeapers(AttackTables.KNIGHT[sq], byColor, LEAPS_KNIGHT, out);
+        if (found && out == null) return true;
+        found |= findLeapers(AttackTables.CAMEL[sq], byColor, LEAPS_CAMEL, out);
+        if (found && out == null) return true;
+        found |= findLeapers(AttackTables.KING[sq], byColor, STEPS_KING, out);
+        if (found && out == null) return true;
+        int[][] rays = AttackTables.RAYS[sq];
+        long[] own = colors[byColor];
+        for (int d = 0; d < DIRECTIONS.length; d++) {
+            // On a sparse board most rays hold no piece of the attacking colour at all
+            int mask = (sq * DIRECTIONS.length + d) * Bitboard.WORDS;
+            if (((AttackTables.RAY_MASKS[mask] & own[0]) | (AttackTables.RAY_MASKS[mask + 1] & own[1])
+                    | (AttackTables.RAY_MASKS[mask + 2] & own[2]) | (AttackTables.RAY_MASKS[mask + 3] & own[3])) == 0) {
+                continue;
+            }
+            int ability = d < 4 ? SLIDES_ORTHOGONALLY : SLIDES_DIAGONALLY;
+            for (int target : rays[d]) {
+                int code = target == ignored ? NO_PIECE : mailbox[target];
+                if (code != NO_PIECE) {
+                    if (colorOf(code) == byColor && (ABILITIES[typeOf(code)] & ability) != 0) {
+                        if (out == null) return true;
+                        Bitboard.set(out, target);
+                        found = true;
+                    }
+                    break;
+                }
+            }
+        }
+        return found;
+    }
+
+    // Looks for pieces of a colour with the given leaping ability on the given leap squares
+    private boolean findLeapers(int[] squares, int byColor, int ability, long[] out) {
+        boolean found = false;
+        for (int sq : squares) {
+            int code = mailbox[sq];
+            if (code != NO_PIECE && colorOf(code) == byColor && (ABILITIES[typeOf(code)] & ability) != 0) {
+                if (out == null) return true;
+                Bitboard.set(out, sq);
+                found = true;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Returns the position as rows of layout characters, in the same format as the level files.
+     *
+     * @return the layout of the position.
+     */
+    public String toLayout() {
+        StringBuilder sb = new StringBuilder();
+        for (int y = 0; y < Board.BOARD_WIDTH; y++) {
+            for (int x = 0; x < Board.BOARD_WIDTH; x++) {
+                int code = mailbox[square(x, y)];
+                sb.append(code == NO_PIECE ? ' ' : charOf(code));
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,37 @@
+package XXLChess;
+
+/**
+ * A strategy that chooses its move by searching a {@link Position}. Because it only needs a snapshot of the board,
+ * the {@link Bot} can run it on a background thread while the game keeps rendering.
+ */
+public interface SearchStrategy extends BotAIStrategy {
+    /**
+     * Returns the time the search may take for a player's next move.
+     *
+     * @param agent    the player to move.
+     * @param position the position to search.
+     * @return the time manager of the search.
+     */
+    TimeManager budget(PlayerAgent agent, Position position);
+
+    /**
+     * Searches a position for the best move of the side to move.
+     *
+     * @param position the position, which is left unchanged.
+     * @param time     the time manager, which decides when the search stops.
+     * @return the best move found, as generated by {@link MoveGenerator}, or -1 if there is none.
+     */
+    int search(Position position, TimeManager time);
+
+    /**
+     * Asks the running search to return its best move so far. A search that has not started yet is stopped through
+     * its {@link TimeManager} instead. May be called from any thread.
+     */
+    void stop();
+
+    /**
+     * Releases the threads the strategy searches on, once it is no longer used. A search still running finishes, but
+     * with no helpers left to start, later searches run on the calling thread only.
+     */
+    void close();
+}
@@ -0,0 +1,357 @@
+package XXLChess;
+
+import java.io.FileReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import processing.data.JSONObject;
+
+/**
+ * SelfPlay plays the bot against itself without a window, sound or animation frames, and sums up the results.
+ * Every game starts from the same position with white to move. Both sides search with {@link AlphaBetaStrategy}
+ * on the cpu time control of the config, measured in wall-clock time. The first plies of every game are random,
+ * so that the games differ. Games are played in parallel, one per thread of a pool.
+ *
+ * <pre>
+ * SelfPlay &lt;config&gt; [--games N] [--threads N] [--random-plies N] [--max-plies N] [--layout file]
+ * </pre>
+ * The config is in the format of config.json; --layout replaces its "layout".
+ */
+public class SelfPlay {
+    public static final int DEFAULT_GAMES = 100;
+    public static final int DEFAULT_RANDOM_PLIES = 4;
+    public static final int DEFAULT_MAX_PLIES = 400;
+
+    // The winner of a drawn game
+    public static final int DRAW = -1;
+
+    /**
+     * Why a game ended.
+     */
+    public enum Reason {
+        CHECKMATE,             // The side to move is in check and has no legal moves
+        TIMEOUT,               // The side to move ran out of time
+        STALEMATE,             // The side to move is not in check and has no legal moves
+        REPETITION,            // The same position came up three times
+        NO_PROGRESS,           // No capture or pawn move for fifty moves of each side
+        INSUFFICIENT_MATERIAL, // Neither side can mate
+        MOVE_LIMIT             // The game reached the maximum number of plies
+    }
+
+    /**
+     * The result of one game.
+     */
+    public static class Result {
+        public final int winner;       // Position.WHITE, Position.BLACK or DRAW
+        public final Reason reason;
+        public final int plies;
+        public final long nodes;       // The nodes searched by both sides
+        public final long searchNanos; // The time both sides spent searching
+        public final int[] moves;      // The moves of the game in order, random plies included
+
+        public Result(int winner, Reason reason, int plies, long nodes, long searchNanos, int[] moves) {
+            this.winner = winner;
+            this.reason = reason;
+            this.plies = plies;
+            this.nodes = nodes;
+            this.searchNanos = searchNanos;
+            this.moves = moves;
+        }
+    }
+
+    /**
+     * The results of many games, added up.
+     */
+    public static class Summary {
+        private int games;
+        private int whiteWins;
+        private int draws;
+        private int blackWins;
+        private long plies;
+        private long nodes;
+        private long searchNanos;
+        private final Map<Reason, Integer> reasons = new EnumMap<>(Reason.class);
+
+        public synchronized void add(Result result) {
+            games++;
+            if (result.winner == Position.WHITE) whiteWins++;
+            else if (result.winner == Position.BLACK) blackWins++;
+            else draws++;
+            plies += result.plies;
+            nodes += result.nodes;
+            searchNanos += result.searchNanos;
+            reasons.merge(result.reason, 1, Integer::sum);
+        }
+
+        public synchronized int getGames() {
+            return games;
+        }
+
+        public synchronized int getWhiteWins() {
+            return whiteWins;
+        }
+
+        public synchronized int getDraws() {
+            return draws;
+        }
+
+        public synchronized int getBlackWins() {
+            return blackWins;
+        }
+
+        public synchronized int getCount(Reason reason) {
+            return reasons.getOrDefault(reason, 0);
+        }
+
+        public synchronized double getAveragePlies() {
+            return games == 0 ? 0 : (double) plies / games;
+        }
+
+        public synchronized double getNodesPerSecond() {
+            return searchNanos == 0 ? 0 : nodes / (searchNanos / 1e9);
+        }
+
+        @Override
+        public synchronized String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("Games: %d%n", games));
+            sb.append(String.format("White wins: %d, draws: %d, black wins: %d%n", whiteWins, draws, blackWins));
+            for (Reason reason : Reason.values()) {
+                sb.append(String.format("  %s: %d%n", reason, getCount(reason)));
+            }
+            sb.append(String.format("Average length: %.1f plies%n", getAveragePlies()));
+            sb.append(String.format("Nodes: %d (%.0f nodes/s)%n", nodes, getNodesPerSecond()));
+            return sb.toString();
+        }
+    }
+
+    private final Position start;
+    private final long clockMillis;
+    private final long incrementMillis;
+    private final int searchThreads;
+    private int randomPlies = DEFAULT_RANDOM_PLIES;
+    private int maxPlies = DEFAULT_MAX_PLIES;
+
+    /**
+     * Constructs a runner.
+     *
+     * @param start           the starting position, with the side to move set.
+     * @param clockMillis     each side's starting time in milliseconds.
+     * @param incrementMillis the time added to a side's clock after each of its moves.
+     * @param searchThreads   the number of threads each side searches on.
+     */
+    public SelfPlay(Position start, long clockMillis, long incrementMillis, int searchThreads) {
+        this.start = start;
+        this.clockMillis = clockMillis;
+        this.incrementMillis = incrementMillis;
+        this.searchThreads = searchThreads;
+    }
+
+    public void setRandomPlies(int randomPlies) {
+        this.randomPlies = randomPlies;
+    }
+
+    public void setMaxPlies(int maxPlies) {
+        this.maxPlies = maxPlies;
+    }
+
+    public int getRandomPlies() {
+        return randomPlies;
+    }
+
+    /**
+     * Returns the position every game starts from.
+     *
+     * @return a copy of the starting position.
+     */
+    public Position getStart() {
+        return start.copy();
+    }
+
+    /**
+     * Plays one game.
+     *
+     * @param seed the seed of the random opening plies.
+     * @return the result of the game.
+     */
+    public Result playGame(long seed) {
+        Random random = new Random(seed);
+        Position position = start.copy();
+        MoveGenerator generator = new MoveGenerator();
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        AlphaBetaStrategy[] engines = new AlphaBetaStrategy[2];
+        long[] clocks = {clockMillis, clockMillis};
+        int[] record = new int[maxPlies];
+        long nodes = 0;
+        long searchNanos = 0;
+        DrawDetector draws = new DrawDetector(position.getKey());
+
+        try {
+            for (int ply = 0; ; ply++) {
+                int us = position.getSideToMove();
+                int count = generator.generate(position, moves);
+                if (count == 0) {
+                    return MoveGenerator.isInCheck(position)
+                            ? new Result(1 - us, Reason.CHECKMATE, ply, nodes, searchNanos, Arrays.copyOf(record, ply))
+                            : new Result(DRAW, Reason.STALEMATE, ply, nodes, searchNanos, Arrays.copyOf(record, ply));
+                }
+                DrawDetector.Reason draw = draws.check(position);
+                if (draw != null) {
+                    return new Result(DRAW, reasonOf(draw), ply, nodes, searchNanos, Arrays.copyOf(record, ply));
+                }
+                if (ply >= maxPlies) {
+                    return new Result(DRAW, Reason.MOVE_LIMIT, ply, nodes, searchNanos, Arrays.copyOf(record, ply));
+                }
+                int move;
+                if (ply < randomPlies) {
+                    move = moves[random.nextInt(count)];
+                } else {
+                    if (engines[us] == null) {
+                        engines[us] = new AlphaBetaStrategy(AlphaBetaStrategy.MAX_MILLIS, searchThreads);
+                    }
+                    long begin = System.nanoTime();
+                    move = engines[us].search(position, engines[us].budget(clocks[us], incrementMillis, position));
+                    long elapsed = System.nanoTime() - begin;
+                    nodes += engines[us].getNodes();
+                    searchNanos += elapsed;
+                    clocks[us] -= elapsed / 1000000;
+                    if (clocks[us] <= 0) {
+                        return new Result(1 - us, Reason.TIMEOUT, ply, nodes, searchNanos, Arrays.copyOf(record, ply));
+                    }
+                    clocks[us] += incrementMillis;
+                }
+                record[ply] = move;
+                boolean progress = position.pieceAt(MoveGenerator.toOf(move)) != Position.NO_PIECE
+                        || Position.typeOf(position.pieceAt(MoveGenerator.fromOf(move))) == Position.PAWN;
+                position.makeMove(move);
+                draws.push(position.getKey(), progress);
+            }
+        } finally {
+            // The engines live for one game; their helper threads would otherwise outlive it
+            for (AlphaBetaStrategy engine : engines) {
+                if (engine != null) {
+                    engine.close();
+                }
+            }
+        }
+    }
+
+    // Returns the reason a game ended for a draw by rule
+    private static Reason reasonOf(DrawDetector.Reason draw) {
+        switch (draw) {
+            case REPETITION:
+                return Reason.REPETITION;
+            case NO_PROGRESS:
+                return Reason.NO_PROGRESS;
+            default:
+                return Reason.INSUFFICIENT_MATERIAL;
+        }
+    }
+
+    /**
+     * Plays games in parallel and adds up their results. Game i uses seed i for its random opening plies.
+     *
+     * @param games   the number of games.
+     * @param threads the number of games played at once.
+     * @return the summary of the results.
+     * @throws Exception if a game fails.
+     */
+    public Summary run(int games, int threads) throws Exception {
+        return run(games, threads, result -> {
+        });
+    }
+
+    /**
+     * Plays games in parallel and adds up their results, passing each result on as its game ends.
+     * Game i uses seed i for its random opening plies.
+     *
+     * @param games    the number of games.
+     * @param threads  the number of games played at once.
+     * @param finished called with the result of each game, from the thread that played it.
+     * @return the summary of the results.
+     * @throws Exception if a game fails.
+     */
+    public Summary run(int games, int threads, Consumer<Result> finished) throws Exception {
+        Summary summary = new Summary();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> running = new ArrayList<>();
+            for (int i = 0; i < games; i++) {
+                long seed = i;
+                running.add(pool.submit(() -> {
+                    Result result = playGame(seed);
+                    summary.add(result);
+                    finished.accept(result);
+                }));
+            }
+            for (Future<?> f : running) {
+                f.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return summary;
+    }
+
+    /**
+     * Creates a runner from a config file in the format of config.json, without starting Processing.
+     * The player colour decides the pawn directions, as in the game, and the cpu time control is used for both sides.
+     *
+     * @param configPath     the config file.
+     * @param layoutFilename the level file, or null to use the "layout" of the config.
+     * @return the runner.
+     * @throws Exception if the config or the level cannot be loaded.
+     */
+    public static SelfPlay fromConfig(String configPath, String layoutFilename) throws Exception {
+        JSONObject conf;
+        try (Reader reader = new FileReader(configPath)) {
+            conf = new JSONObject(reader);
+        }
+        JSONObject cpuTimeControl = conf.getJSONObject("time_controls").getJSONObject("cpu");
+        if (layoutFilename == null) {
+            layoutFilename = conf.getString("layout");
+        }
+        Game game = Perft.loadGame(layoutFilename, conf.getString("player_colour").equals("white"));
+        return new SelfPlay(
+                game.getPosition(),
+                cpuTimeControl.getInt("seconds") * 1000L,
+                cpuTimeControl.getInt("increment") * 1000L,
+                conf.getInt("search_threads", 1));
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.out.println("Usage: SelfPlay <config> [--games N] [--threads N] [--random-plies N] "
+                    + "[--max-plies N] [--layout file]");
+            System.exit(2);
+        }
+        int games = DEFAULT_GAMES;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int randomPlies = DEFAULT_RANDOM_PLIES;
+        int maxPlies = DEFAULT_MAX_PLIES;
+        String layout = null;
+        for (int i = 1; i + 1 < args.length; i += 2) {
+            if (args[i].equals("--games")) games = Integer.parseInt(args[i + 1]);
+            else if (args[i].equals("--threads")) threads = Integer.parseInt(args[i + 1]);
+            else if (args[i].equals("--random-plies")) randomPlies = Integer.parseInt(args[i + 1]);
+            else if (args[i].equals("--max-plies")) maxPlies = Integer.parseInt(args[i + 1]);
+            else if (args[i].equals("--layout")) layout = args[i + 1];
+        }
+        SelfPlay selfPlay = fromConfig(args[0], layout);
+        selfPlay.setRandomPlies(randomPlies);
+        selfPlay.setMaxPlies(maxPlies);
+
+        long begin = System.nanoTime();
+        Summary summary = selfPlay.run(games, threads);
+        System.out.print(summary);
+        System.out.printf("Wall time: %.1f s%n", (System.nanoTime() - begin) / 1e9);
+    }
+}
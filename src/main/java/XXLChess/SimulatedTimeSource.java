@@ -0,0 +1,36 @@
+package XXLChess;
+
+/**
+ * A time source that stands still until it is advanced, so that a test or a simulation decides how much time
+ * passes between two ticks, and can fast-forward a game without waiting.
+ */
+public class SimulatedTimeSource implements TimeSource {
+    private long nanos;
+
+    @Override
+    public synchronized long nanoTime() {
+        return nanos;
+    }
+
+    /**
+     * Moves the time forward.
+     *
+     * @param nanos the time to add in nanoseconds.
+     * @throws IllegalArgumentException if the time is negative, since time never runs back.
+     */
+    public synchronized void advance(long nanos) {
+        if (nanos < 0) {
+            throw new IllegalArgumentException("Time cannot run back");
+        }
+        this.nanos += nanos;
+    }
+
+    /**
+     * Moves the time forward.
+     *
+     * @param seconds the time to add in seconds.
+     */
+    public void advanceSecs(double seconds) {
+        advance(Math.round(seconds * 1e9));
+    }
+}
@@ -1,95 +1,107 @@
 package XXLChess;
 
+import java.awt.GraphicsEnvironment;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.net.URL;
-import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.sound.sampled.AudioInputStream;
 import javax.sound.sampled.AudioSystem;
-import javax.sound.sampled.Clip;
-import javax.sound.sampled.LineUnavailableException;
 import javax.sound.sampled.UnsupportedAudioFileException;
 
 /**
- * A class that plays sound clips in a separate thread.
+ * A class that plays the game's sound effects. The sounds are decoded once, when they are preloaded, and played by
+ * an {@link AudioBackend}: an {@link AudioMixer} on a single thread, or nothing at all when there is no sound
+ * device or the JVM runs headless. Playing a sound only hands its samples to the backend, and starts no thread.
  */
-public class SoundPlayer implements Runnable {
-    private static HashMap<String, Clip> soundClips = new HashMap<String, Clip>();
-    private static HashMap<String, Clip> backupSoundClips = new HashMap<String, Clip>();
-    private Clip soundClip;
-    private Clip backupClip;
-    
-    /**
-   * Plays the specified sound file.
-   *
-   * @param fileName the name of the sound file to be played
-   */
-  public static void playSound(String fileName) {
-    Clip c = soundClips.get(fileName);
-    Clip c2 = backupSoundClips.get(fileName);
-    if (c == null || c2 == null) return;
-    new Thread(new SoundPlayer(c, c2)).start();
-  }
+public class SoundPlayer {
+    // The decoded sounds by file name, as interleaved samples in the mixer's format
+    private static final Map<String, short[]> sounds = new ConcurrentHashMap<>();
+
+    // Opened on first use
+    private static AudioBackend backend;
 
-  /**
-   * Preloads a sound effect file for later use.
-   *
-   * @param fileName the name of the sound file to be preloaded
-   */
-  public static void preloadSoundEffect(String fileName) {
-    try {
-      // Get the folder containing sound effects
-      URL soundEffectsFolder = App.class.getClassLoader().getResource("XXLChess/sounds");
+    private SoundPlayer() {
+    }
 
-      // Construct the URL of the sound file
-      URL soundFileURL = new URL(soundEffectsFolder.toExternalForm() + "/" + fileName);
+    /**
+     * Plays the specified sound file, if it has been preloaded.
+     *
+     * @param fileName the name of the sound file to be played
+     */
+    public static void playSound(String fileName) {
+        short[] samples = sounds.get(fileName);
+        if (samples == null) return;
+        getBackend().play(samples);
+    }
 
-      // Open an audio input stream for the sound file
-      AudioInputStream audioIn = AudioSystem.getAudioInputStream(soundFileURL);
+    /**
+     * Preloads a sound effect file for later use, decoding it to the mixer's format. The backend is opened along
+     * with the first sound, so that the first sound played does not wait for it.
+     *
+     * @param fileName the name of the sound file to be preloaded
+     */
+    public static void preloadSoundEffect(String fileName) {
+        try {
+            // Get the folder containing sound effects
+            URL soundEffectsFolder = App.class.getClassLoader().getResource("XXLChess/sounds");
 
-      // Open a clip to play the sound file
-      Clip clip = AudioSystem.getClip();
-      clip.open(audioIn);
-      audioIn.close();
+            // Construct the URL of the sound file
+            URL soundFileURL = new URL(soundEffectsFolder.toExternalForm() + "/" + fileName);
 
-      // Open another audio input stream for backup clip
-      AudioInputStream audioIn2 = AudioSystem.getAudioInputStream(soundFileURL);
+            // Decode the whole file to samples in the mixer's format
+            try (AudioInputStream source = AudioSystem.getAudioInputStream(soundFileURL);
+                 AudioInputStream audioIn = AudioSystem.getAudioInputStream(AudioMixer.FORMAT, source)) {
+                sounds.put(fileName, toSamples(readAll(audioIn)));
+            }
+        } catch (UnsupportedAudioFileException | IOException | IllegalArgumentException e) {
+            e.printStackTrace();
+        }
+        getBackend();
+    }
 
-      // Store the main clip and backup clip in the respective maps
-      soundClips.put(fileName, clip);
+    /**
+     * Returns the backend that plays the sounds, opening the mixer on first use.
+     *
+     * @return the backend.
+     */
+    public static synchronized AudioBackend getBackend() {
+        if (backend == null) {
+            backend = GraphicsEnvironment.isHeadless() ? AudioBackend.NONE : AudioMixer.open();
+        }
+        return backend;
+    }
 
-      // Open a backup clip to avoid resource conflicts
-      Clip clip2 = AudioSystem.getClip();
-      clip2.open(audioIn2);
-      audioIn.close();
-      backupSoundClips.put(fileName, clip2);
-    } catch (UnsupportedAudioFileException | IOException | LineUnavailableException e) {
-      e.printStackTrace();
+    /**
+     * Replaces the backend that plays the sounds, closing the previous one.
+     *
+     * @param newBackend the backend, such as {@link AudioBackend#NONE} to play nothing.
+     */
+    public static synchronized void setBackend(AudioBackend newBackend) {
+        if (backend != null && backend != newBackend) {
+            backend.close();
+        }
+        backend = newBackend;
     }
-  }
 
-  /**
-   * Constructs a SoundPlayer object with the specified sound clips.
-   *
-   * @param soundClip   the main sound clip to be played
-   * @param backupClip  the backup sound clip to be played if the main clip is already running
-   */
-  public SoundPlayer(Clip soundClip, Clip backupClip) {
-    this.soundClip = soundClip;
-    this.backupClip = backupClip;
-  }
+    private static byte[] readAll(AudioInputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) > 0) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
 
-  /**
-   * Starts playing the sound clips.
-   */
-  public void run() {
-    Clip c = soundClip;
-    if (c.isRunning()) {
-      c = backupClip;
+    // Converts 16-bit little-endian samples to shorts
+    private static short[] toSamples(byte[] bytes) {
+        short[] samples = new short[bytes.length / 2];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = (short) ((bytes[2 * i] & 0xff) | (bytes[2 * i + 1] << 8));
+        }
+        return samples;
     }
-    c.setFramePosition(0);
-    c.start();
-    c.drain();
-  }
 }
-
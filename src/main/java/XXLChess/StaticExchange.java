@@ -0,0 +1,102 @@
+package XXLChess;
+
+/**
+ * StaticExchange works out what a capture wins once both sides have made every recapture on the target square,
+ * each side capturing with its least valuable piece first and stopping when recapturing would lose material.
+ * Pieces behind an attacker that has captured, such as a rook behind a rook, join in. Pins and promotions are
+ * not considered. The piece values are those of the {@link Evaluator}, with the king worth more than any other piece.
+ * Each instance has its own buffers, so a search thread needs its own.
+ */
+public class StaticExchange {
+    // The value of a king when it takes part in an exchange: it may only capture last
+    private static final int KING_VALUE = 1000000;
+
+    // The most captures in one exchange: every piece of both sides attacking the square
+    private static final int MAX_CAPTURES = 64;
+
+    private final long[] attackers = new long[Bitboard.WORDS];
+    private final int[] gain = new int[MAX_CAPTURES];
+
+    // The pieces taken off the board while resolving the exchange, to be put back afterwards
+    private final int[] removedSquares = new int[MAX_CAPTURES];
+    private final int[] removedCodes = new int[MAX_CAPTURES];
+    private final boolean[] removedUnmoved = new boolean[MAX_CAPTURES];
+    private int removedCount;
+
+    /**
+     * Evaluates the material outcome of a move for the side making it.
+     *
+     * @param position the position, which is left unchanged.
+     * @param move     the move, as encoded by {@link MoveGenerator#encode(int, int)}.
+     * @return the material won in thousandths of a pawn, negative if the move loses material, or 0 for a quiet move.
+     */
+    public int evaluate(Position position, int move) {
+        int from = MoveGenerator.fromOf(move);
+        int to = MoveGenerator.toOf(move);
+        int victim = position.pieceAt(to);
+        if (victim == Position.NO_PIECE) {
+            return 0;
+        }
+        removedCount = 0;
+        int mover = position.pieceAt(from);
+        gain[0] = value(victim);
+        int onSquare = value(mover);
+        takeOff(position, from);
+
+        int depth = 0;
+        int color = 1 - Position.colorOf(mover);
+        while (depth + 1 < MAX_CAPTURES) {
+            int sq = leastValuableAttacker(position, to, color);
+            if (sq < 0) break;
+            int code = position.pieceAt(sq);
+            takeOff(position, sq);
+            // A king may not capture onto a square the other side still attacks
+            if (Position.typeOf(code) == Position.KING
+                    && !Bitboard.isEmpty(position.attackers(to, 1 - color, attackers))) {
+                break;
+            }
+            depth++;
+            gain[depth] = onSquare - gain[depth - 1];
+            onSquare = value(code);
+            color = 1 - color;
+        }
+        // Either side may stop recapturing when that is better for it
+        while (depth > 0) {
+            gain[depth - 1] = -Math.max(-gain[depth - 1], gain[depth]);
+            depth--;
+        }
+
+        for (int i = removedCount - 1; i >= 0; i--) {
+            position.put(removedSquares[i], removedCodes[i], removedUnmoved[i]);
+        }
+        return gain[0];
+    }
+
+    // Returns the square of the cheapest piece of a colour that attacks a square, or -1 if there is none
+    private int leastValuableAttacker(Position position, int sq, int color) {
+        position.attackers(sq, color, attackers);
+        int best = -1;
+        int bestValue = Integer.MAX_VALUE;
+        for (int from = Bitboard.next(attackers, 0); from >= 0; from = Bitboard.next(attackers, from + 1)) {
+            int value = value(position.pieceAt(from));
+            if (value < bestValue) {
+                best = from;
+                bestValue = value;
+            }
+        }
+        return best;
+    }
+
+    // Removes a piece for the rest of the exchange, remembering it
+    private void takeOff(Position position, int sq) {
+        removedSquares[removedCount] = sq;
+        removedUnmoved[removedCount] = position.isUnmoved(sq);
+        removedCodes[removedCount] = position.remove(sq);
+        removedCount++;
+    }
+
+    private static int value(int code) {
+        int type = Position.typeOf(code);
+        return type == Position.KING ? KING_VALUE : Evaluator.VALUES[type];
+    }
+}
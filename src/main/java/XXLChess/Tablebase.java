@@ -0,0 +1,479 @@
+package XXLChess;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Tablebase holds the exact result of every position of one endgame, such as king and amazon against king, with
+ * the distance to mate. Tables are made by the {@link TablebaseGenerator} and looked up through {@link Tablebases}.
+ * <p>
+ * A table is named by the pieces of each side, white first, in the layout letters of {@link Position} written in
+ * upper case: "KAvK" is white king and amazon against the black king. Tables hold no pawns, so the eight rotations
+ * and reflections of the board give the same result; positions are stored with the first white piece, the king,
+ * in the triangle x &lt;= y &lt;= 6. Castling is not considered.
+ * <p>
+ * The file is a header of {@link #MAGIC}, {@link #VERSION}, the number of pieces and their codes (all ints,
+ * big-endian), followed by one byte per position for white to move and then one per position for black to move.
+ * A position's index lists the square of each piece in table order, the white king's as its triangle index.
+ * The byte is {@link #DRAW}, {@link #INVALID}, or the distance to mate in plies plus one: the side to move wins
+ * if the distance is odd and is mated if it is even. The reader maps the file into memory.
+ */
+public class Tablebase {
+    // "XXLT", at the start of every table file
+    public static final int MAGIC = 0x58584C54;
+    public static final int VERSION = 1;
+
+    // The most pieces in a table, kings included: one more multiplies the table size by the 196 squares
+    public static final int MAX_PIECES = 4;
+
+    // The value of a drawn position, and of a position that cannot occur, such as one with two pieces on a square
+    public static final int DRAW = 0;
+    public static final int INVALID = 255;
+
+    // The longest distance to mate a value can hold
+    public static final int MAX_DISTANCE = 253;
+
+    // The squares with x <= y <= 6, one of which each stored white king is on
+    static final int[] TRIANGLE;
+    static final int[] TRIANGLE_INDEX = new int[Position.SQUARES];
+
+    // The eight rotations and reflections of the board, as maps from square to square; the first is the identity
+    static final int[][] TRANSFORMS = new int[8][Position.SQUARES];
+
+    static {
+        int last = Board.BOARD_WIDTH - 1;
+        int[] triangle = new int[Position.SQUARES];
+        int count = 0;
+        for (int sq = 0; sq < Position.SQUARES; sq++) {
+            int x = Position.xOf(sq);
+            int y = Position.yOf(sq);
+            TRIANGLE_INDEX[sq] = -1;
+            if (x <= y && 2 * y < last) {
+                TRIANGLE_INDEX[sq] = count;
+                triangle[count++] = sq;
+            }
+            TRANSFORMS[0][sq] = sq;
+            TRANSFORMS[1][sq] = Position.square(last - x, y);
+            TRANSFORMS[2][sq] = Position.square(x, last - y);
+            TRANSFORMS[3][sq] = Position.square(last - x, last - y);
+            TRANSFORMS[4][sq] = Position.square(y, x);
+            TRANSFORMS[5][sq] = Position.square(last - y, x);
+            TRANSFORMS[6][sq] = Position.square(y, last - x);
+            TRANSFORMS[7][sq] = Position.square(last - y, last - x);
+        }
+        TRIANGLE = Arrays.copyOf(triangle, count);
+    }
+
+    private final String name;
+    private final int[] codes;
+    private final int size;
+    private final ByteBuffer values;
+
+    /**
+     * Reads a table from a buffer holding a table file.
+     *
+     * @param buffer the contents of the file, from its header on.
+     * @throws IOException if the buffer does not hold a table.
+     */
+    public Tablebase(ByteBuffer buffer) throws IOException {
+        int start = buffer.position();
+        if (buffer.remaining() < 12 || buffer.getInt(start) != MAGIC) {
+            throw new IOException("Not a tablebase");
+        }
+        if (buffer.getInt(start + 4) != VERSION) {
+            throw new IOException("Unsupported tablebase version " + buffer.getInt(start + 4));
+        }
+        int pieces = buffer.getInt(start + 8);
+        if (pieces < 2 || pieces > MAX_PIECES || buffer.remaining() < headerBytes(pieces)) {
+            throw new IOException("Bad tablebase header");
+        }
+        codes = new int[pieces];
+        for (int i = 0; i < pieces; i++) {
+            codes[i] = buffer.getInt(start + 12 + 4 * i);
+        }
+        try {
+            name = nameOf(codes);
+            validate(codes);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Bad tablebase pieces: " + e.getMessage());
+        }
+        size = sizeOf(pieces);
+        ByteBuffer duplicate = buffer.duplicate();
+        duplicate.position(start + headerBytes(pieces));
+        values = duplicate.slice();
+        if (values.remaining() < 2L * size) {
+            throw new IOException("Truncated tablebase " + name);
+        }
+    }
+
+    /**
+     * Opens a table file by mapping it into memory.
+     *
+     * @param path the table file.
+     * @return the table.
+     * @throws IOException if the file cannot be read or is not a table.
+     */
+    public static Tablebase open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            return new Tablebase(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Writes the table to a file, replacing it if it exists.
+     *
+     * @param path the table file.
+     * @throws IOException if the file cannot be written.
+     */
+    public void write(Path path) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(headerBytes(codes.length));
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(codes.length);
+        for (int code : codes) {
+            buffer.putInt(code);
+        }
+        buffer.flip();
+        ByteBuffer body = values.duplicate();
+        body.position(0).limit(2 * size);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            while (body.hasRemaining()) {
+                channel.write(body);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of bytes in front of the values of a table file.
+     *
+     * @param pieces the number of pieces in the table.
+     * @return the header size.
+     */
+    static int headerBytes(int pieces) {
+        return 12 + 4 * pieces;
+    }
+
+    /**
+     * Returns the number of positions of a table for one side to move.
+     *
+     * @param pieces the number of pieces in the table.
+     * @return the number of indexes.
+     */
+    static int sizeOf(int pieces) {
+        int size = TRIANGLE.length;
+        for (int i = 1; i < pieces; i++) {
+            size *= Position.SQUARES;
+        }
+        return size;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the pieces of the table in table order: the white king, the other white pieces, the black king and
+     * the other black pieces.
+     *
+     * @return a copy of the piece codes.
+     */
+    public int[] getCodes() {
+        return codes.clone();
+    }
+
+    /**
+     * Returns the number of positions of the table for one side to move.
+     *
+     * @return the number of indexes.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns a stored value.
+     *
+     * @param side  the side to move.
+     * @param index the index of the position.
+     * @return the value.
+     */
+    public int valueAt(int side, int index) {
+        return values.get(side * size + index) & 0xFF;
+    }
+
+    /**
+     * Looks up the value of a position with the pieces of this table, for either colour.
+     *
+     * @param position the position.
+     * @return the value, for the side to move.
+     * @throws IllegalArgumentException if the position does not have the pieces of the table.
+     */
+    public int valueOf(Position position) throws IllegalArgumentException {
+        String material = nameOf(position);
+        boolean flipped;
+        if (name.equals(material)) {
+            flipped = false;
+        } else if (name.equals(flip(material))) {
+            flipped = true;
+        } else {
+            throw new IllegalArgumentException("Position has " + material + ", not " + name);
+        }
+        int[] squares = new int[codes.length];
+        // Pieces of the same code are listed in square order, which indexOf sorts out
+        int slot = 0;
+        while (slot < codes.length) {
+            int code = flipped ? flipColor(codes[slot]) : codes[slot];
+            long[] pieces = position.getPieces(code);
+            for (int sq = Bitboard.next(pieces, 0); sq >= 0; sq = Bitboard.next(pieces, sq + 1)) {
+                squares[slot++] = sq;
+            }
+        }
+        int side = flipped ? 1 - position.getSideToMove() : position.getSideToMove();
+        return valueAt(side, indexOf(codes, squares));
+    }
+
+    /**
+     * Computes the index of a position from the squares of its pieces, moving the white king into the triangle.
+     *
+     * @param codes   the piece codes in table order.
+     * @param squares the square of each piece, which is overwritten with the squares of the stored position.
+     * @return the index.
+     */
+    static int indexOf(int[] codes, int[] squares) {
+        int[] transform = TRANSFORMS[0];
+        for (int[] t : TRANSFORMS) {
+            if (TRIANGLE_INDEX[t[squares[0]]] >= 0) {
+                transform = t;
+                break;
+            }
+        }
+        for (int i = 0; i < squares.length; i++) {
+            squares[i] = transform[squares[i]];
+        }
+        // Pieces of the same code can swap squares, so they are stored in square order
+        for (int i = 1; i < squares.length; i++) {
+            for (int j = i; j > 0 && codes[j - 1] == codes[j] && squares[j - 1] > squares[j]; j--) {
+                int swap = squares[j];
+                squares[j] = squares[j - 1];
+                squares[j - 1] = swap;
+            }
+        }
+        int index = TRIANGLE_INDEX[squares[0]];
+        for (int i = 1; i < squares.length; i++) {
+            index = index * Position.SQUARES + squares[i];
+        }
+        return index;
+    }
+
+    /**
+     * Lists the squares of the pieces of a stored position.
+     *
+     * @param index   the index.
+     * @param squares the array to write the square of each piece into, in table order.
+     */
+    static void squaresOf(int index, int[] squares) {
+        for (int i = squares.length - 1; i > 0; i--) {
+            squares[i] = index % Position.SQUARES;
+            index /= Position.SQUARES;
+        }
+        squares[0] = TRIANGLE[index];
+    }
+
+    /**
+     * Checks whether the side to move wins a position.
+     *
+     * @param value the value of the position.
+     * @return true if the side to move mates in {@link #distanceOf(int)} plies.
+     */
+    public static boolean isWin(int value) {
+        return value != DRAW && value != INVALID && (value - 1) % 2 == 1;
+    }
+
+    /**
+     * Checks whether the side to move loses a position.
+     *
+     * @param value the value of the position.
+     * @return true if the side to move is mated in {@link #distanceOf(int)} plies.
+     */
+    public static boolean isLoss(int value) {
+        return value != DRAW && value != INVALID && (value - 1) % 2 == 0;
+    }
+
+    /**
+     * Returns the distance to mate of a won or lost position.
+     *
+     * @param value the value of the position.
+     * @return the number of plies until the side to move mates or is mated.
+     */
+    public static int distanceOf(int value) {
+        return value - 1;
+    }
+
+    /**
+     * Returns the value of a won or lost position.
+     *
+     * @param distance the number of plies to mate, odd if the side to move wins.
+     * @return the value.
+     * @throws IllegalArgumentException if the distance is too long to store.
+     */
+    public static int valueOfDistance(int distance) throws IllegalArgumentException {
+        if (distance > MAX_DISTANCE) {
+            throw new IllegalArgumentException("Distance to mate " + distance + " is too long");
+        }
+        return distance + 1;
+    }
+
+    /**
+     * Returns the name of the pieces of a position, white first, such as "KAvK".
+     *
+     * @param position the position.
+     * @return the name; it is the name of a table only if the position meets {@link #validate(int[])}.
+     */
+    public static String nameOf(Position position) {
+        StringBuilder sb = new StringBuilder();
+        for (int color = Position.WHITE; color <= Position.BLACK; color++) {
+            if (color == Position.BLACK) {
+                sb.append('v');
+            }
+            // Kings first, then the other pieces by type
+            appendPieces(sb, position, Position.pieceCode(color, Position.KING));
+            for (int type = 0; type < Position.PIECE_TYPES; type++) {
+                if (type != Position.KING) {
+                    appendPieces(sb, position, Position.pieceCode(color, type));
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    private static void appendPieces(StringBuilder sb, Position position, int code) {
+        int count = Bitboard.count(position.getPieces(code));
+        for (int i = 0; i < count; i++) {
+            sb.append(Character.toUpperCase(Position.charOf(code)));
+        }
+    }
+
+    /**
+     * Returns the name of the pieces in table order.
+     *
+     * @param codes the piece codes in table order.
+     * @return the name.
+     */
+    static String nameOf(int[] codes) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < codes.length; i++) {
+            if (i > 0 && Position.colorOf(codes[i]) != Position.colorOf(codes[i - 1])) {
+                sb.append('v');
+            }
+            sb.append(Character.toUpperCase(Position.charOf(codes[i])));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Returns the pieces of a table name in table order.
+     *
+     * @param name the name, such as "KAvK"; the pieces of each side may come in any order.
+     * @return the piece codes.
+     * @throws IllegalArgumentException if the name is not that of a table.
+     */
+    public static int[] parse(String name) throws IllegalArgumentException {
+        String[] sides = name.toLowerCase().split("v", -1);
+        if (sides.length != 2) {
+            throw new IllegalArgumentException("Table name " + name + " needs one 'v' between the sides");
+        }
+        int[] codes = new int[sides[0].length() + sides[1].length()];
+        int count = 0;
+        for (int color = Position.WHITE; color <= Position.BLACK; color++) {
+            String side = sides[color];
+            if (side.indexOf('k') < 0) {
+                throw new IllegalArgumentException("Each side of " + name + " needs a king");
+            }
+            codes[count++] = Position.pieceCode(color, Position.KING);
+            for (int type = 0; type < Position.PIECE_TYPES; type++) {
+                if (type == Position.KING) continue;
+                for (char c : side.toCharArray()) {
+                    if (Position.typeOfChar(c) == type) {
+                        codes[count++] = Position.pieceCode(color, type);
+                    }
+                }
+            }
+        }
+        if (count != codes.length) {
+            throw new IllegalArgumentException("Table name " + name + " has an unknown piece");
+        }
+        validate(codes);
+        return codes;
+    }
+
+    /**
+     * Checks that pieces in table order can make a table: one king on each side, no pawns, and at most
+     * {@link #MAX_PIECES} pieces.
+     *
+     * @param codes the piece codes in table order.
+     * @throws IllegalArgumentException if they cannot.
+     */
+    static void validate(int[] codes) throws IllegalArgumentException {
+        if (codes.length > MAX_PIECES) {
+            throw new IllegalArgumentException("Tables hold at most " + MAX_PIECES + " pieces");
+        }
+        int[] kings = new int[2];
+        for (int i = 0; i < codes.length; i++) {
+            if (i > 0 && Position.colorOf(codes[i]) < Position.colorOf(codes[i - 1])) {
+                throw new IllegalArgumentException("White pieces come first");
+            }
+            if (Position.typeOf(codes[i]) == Position.PAWN) {
+                throw new IllegalArgumentException("Tables hold no pawns");
+            }
+            if (Position.typeOf(codes[i]) == Position.KING) {
+                kings[Position.colorOf(codes[i])]++;
+            }
+        }
+        if (kings[0] != 1 || kings[1] != 1 || Position.typeOf(codes[0]) != Position.KING) {
+            throw new IllegalArgumentException("Each side needs one king, listed first");
+        }
+    }
+
+    /**
+     * Returns the name of the same pieces with the colours swapped.
+     *
+     * @param name the name, such as "KAvK".
+     * @return the swapped name, such as "KvKA".
+     */
+    public static String flip(String name) {
+        int v = name.indexOf('v');
+        return name.substring(v + 1) + "v" + name.substring(0, v);
+    }
+
+    /**
+     * Returns the name a table for some pieces is made under: the side with more material is white.
+     *
+     * @param name the name in either colour order.
+     * @return the name or its flip.
+     */
+    public static String canonicalName(String name) {
+        int[] codes = parse(name);
+        int balance = 0;
+        for (int code : codes) {
+            int value = Evaluator.VALUES[Position.typeOf(code)];
+            balance += Position.colorOf(code) == Position.WHITE ? value : -value;
+        }
+        String ordered = nameOf(codes);
+        String flipped = flip(ordered);
+        if (balance > 0 || balance == 0 && ordered.compareTo(flipped) <= 0) {
+            return ordered;
+        }
+        return flipped;
+    }
+
+    static int flipColor(int code) {
+        return Position.pieceCode(1 - Position.colorOf(code), Position.typeOf(code));
+    }
+}
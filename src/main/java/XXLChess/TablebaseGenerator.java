@@ -0,0 +1,465 @@
+package XXLChess;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * TablebaseGenerator makes {@link Tablebase}s by retrograde analysis. It first marks the positions decided in one
+ * move: checkmates, stalemates, and captures into smaller tables, which it makes first if they are missing. Then it
+ * works back from the mates one ply at a time: a position is won in n plies if a move leads to a position lost in
+ * n - 1, and lost in n plies once every move leads to a position won in at most n - 1. What is left is drawn.
+ * The work of each ply is split among threads by ranges of positions.
+ *
+ * <pre>
+ * TablebaseGenerator &lt;directory&gt; &lt;name&gt;... [--threads N]
+ * </pre>
+ * Every named table, such as KAvK or KEvKR, is written to the directory with the smaller tables it needs.
+ */
+public class TablebaseGenerator {
+    // The ranges of positions handed to the threads, per thread
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private final Tablebases tables;
+    private final int threads;
+
+    /**
+     * Constructs a generator.
+     *
+     * @param tables  the tables already made; the tables this generator makes are added to them.
+     * @param threads the number of threads to work on.
+     */
+    public TablebaseGenerator(Tablebases tables, int threads) {
+        this.tables = tables;
+        this.threads = threads;
+    }
+
+    /**
+     * Makes a table, unless it is already there, together with the smaller tables its captures lead to.
+     *
+     * @param name the name of the table, such as "KAvK".
+     * @return the table.
+     * @throws Exception if a thread fails.
+     */
+    public Tablebase generate(String name) throws Exception {
+        int[] codes = Tablebase.parse(name);
+        Tablebase existing = tables.get(Tablebase.nameOf(codes));
+        if (existing != null) {
+            return existing;
+        }
+        for (int i = 0; i < codes.length; i++) {
+            if (Position.typeOf(codes[i]) != Position.KING) {
+                int[] captured = new int[codes.length - 1];
+                System.arraycopy(codes, 0, captured, 0, i);
+                System.arraycopy(codes, i + 1, captured, i, captured.length - i);
+                String smaller = Tablebase.nameOf(captured);
+                if (!smaller.equals("KvK")) {
+                    generate(Tablebase.canonicalName(smaller));
+                }
+            }
+        }
+        Tablebase table = new Job(codes).run();
+        tables.add(table);
+        return table;
+    }
+
+    /**
+     * The state of making one table.
+     */
+    private class Job {
+        private final int[] codes;
+        private final int size;
+        private final int header;
+        // The whole table file, whose values are filled in as they are found
+        private final byte[] data;
+
+        Job(int[] codes) {
+            this.codes = codes;
+            size = Tablebase.sizeOf(codes.length);
+            header = Tablebase.headerBytes(codes.length);
+            data = new byte[header + 2 * size];
+        }
+
+        int valueAt(int side, int index) {
+            return data[header + side * size + index] & 0xFF;
+        }
+
+        void setValue(int side, int index, int value) {
+            data[header + side * size + index] = (byte) value;
+        }
+
+        Tablebase run() throws Exception {
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            try {
+                int maxDistance = 0;
+                List<int[]> initialized = forEachChunk(pool, Worker::initialize);
+                for (int[] found : initialized) {
+                    for (int distance : found) {
+                        maxDistance = Math.max(maxDistance, distance);
+                    }
+                }
+                for (int n = 1; n <= maxDistance + 1; n++) {
+                    int ply = n;
+                    if ((n - 1) % 2 == 0) {
+                        // Every position with a move to a position lost in n - 1 plies is won in n
+                        List<int[]> wins = forEachChunk(pool,
+                                (worker, from, to, out) -> worker.wins(from, to, ply, out));
+                        for (int[] found : wins) {
+                            for (int entry : found) {
+                                int side = entry / size;
+                                int index = entry % size;
+                                int value = valueAt(side, index);
+                                if (value == Tablebase.DRAW || Tablebase.distanceOf(value) > ply) {
+                                    setValue(side, index, Tablebase.valueOfDistance(ply));
+                                    maxDistance = Math.max(maxDistance, ply);
+                                }
+                            }
+                        }
+                    } else {
+                        // Positions with a move to a position won in n - 1 plies are lost if every other move is too
+                        List<int[]> losses = forEachChunk(pool,
+                                (worker, from, to, out) -> worker.losses(from, to, ply, out));
+                        for (int[] found : losses) {
+                            for (int i = 0; i < found.length; i += 2) {
+                                int side = found[i] / size;
+                                int index = found[i] % size;
+                                if (valueAt(side, index) == Tablebase.DRAW) {
+                                    setValue(side, index, Tablebase.valueOfDistance(found[i + 1]));
+                                    maxDistance = Math.max(maxDistance, found[i + 1]);
+                                }
+                            }
+                        }
+                    }
+                }
+            } finally {
+                pool.shutdownNow();
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            buffer.putInt(Tablebase.MAGIC).putInt(Tablebase.VERSION).putInt(codes.length);
+            for (int code : codes) {
+                buffer.putInt(code);
+            }
+            buffer.rewind();
+            return new Tablebase(buffer);
+        }
+
+        // Runs a step on ranges of positions of both sides to move, one range per task, and collects what they find
+        private List<int[]> forEachChunk(ExecutorService pool, Step step) throws Exception {
+            int total = 2 * size;
+            int chunks = threads * CHUNKS_PER_THREAD;
+            int chunkSize = (total + chunks - 1) / chunks;
+            List<Future<int[]>> running = new ArrayList<>();
+            for (int from = 0; from < total; from += chunkSize) {
+                int start = from;
+                int end = Math.min(total, from + chunkSize);
+                running.add(pool.submit(() -> {
+                    IntList out = new IntList();
+                    step.run(new Worker(this), start, end, out);
+                    return out.toArray();
+                }));
+            }
+            List<int[]> results = new ArrayList<>();
+            for (Future<int[]> f : running) {
+                results.add(f.get());
+            }
+            return results;
+        }
+    }
+
+    private interface Step {
+        // Works on the positions from one entry up to another, where an entry is side * size + index
+        void run(Worker worker, int from, int to, IntList out);
+    }
+
+    /**
+     * A growable list of ints, to collect the results of a step without boxing.
+     */
+    private static class IntList {
+        private int[] values = new int[64];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, 2 * size);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    /**
+     * The buffers of one thread. Apart from initialize, which fills in its own range, a step only reads the table,
+     * and the job writes what the steps found once they are done.
+     */
+    private class Worker {
+        private final Job job;
+        private final int[] codes;
+        private final Position position = new Position();
+        private final MoveGenerator generator = new MoveGenerator();
+        private final int[] moves = new int[MoveGenerator.MAX_MOVES];
+        private final int[] squares;
+        private final int[] moved;
+        private final long[] targets = Bitboard.create();
+
+        Worker(Job job) {
+            this.job = job;
+            codes = job.codes;
+            squares = new int[codes.length];
+            moved = new int[codes.length];
+        }
+
+        // Sets up the position of an entry, returning false if it cannot occur
+        private boolean setUp(int entry) {
+            int side = entry / job.size;
+            Tablebase.squaresOf(entry % job.size, squares);
+            for (int i = 0; i < squares.length; i++) {
+                for (int j = 0; j < i; j++) {
+                    // Pieces on one square, or pieces of the same code out of the order indexOf stores them in
+                    if (squares[i] == squares[j] || codes[i] == codes[j] && squares[i] < squares[j]) {
+                        return false;
+                    }
+                }
+            }
+            for (int i = 0; i < squares.length; i++) {
+                position.put(squares[i], codes[i], false);
+            }
+            position.setSideToMove(side);
+            // The side to move may not be able to take the other king
+            if (position.isAttacked(position.getKingSquare(1 - side), side)) {
+                clear();
+                return false;
+            }
+            return true;
+        }
+
+        private void clear() {
+            for (int sq : squares) {
+                position.remove(sq);
+            }
+        }
+
+        // Returns the index of the set up position with the piece of one slot on another square
+        private int indexAfter(int slot, int sq) {
+            System.arraycopy(squares, 0, moved, 0, squares.length);
+            moved[slot] = sq;
+            return Tablebase.indexOf(codes, moved);
+        }
+
+        // Returns the slot of the piece on a square of the set up position
+        private int slotOf(int sq) {
+            int slot = 0;
+            while (squares[slot] != sq) {
+                slot++;
+            }
+            return slot;
+        }
+
+        // Looks up the value of the current position after a capture, in a smaller table
+        private int captureValue() {
+            int value = tables.probe(position);
+            if (value == Tablebases.UNKNOWN) {
+                throw new IllegalStateException("Missing table " + Tablebase.nameOf(position));
+            }
+            return value;
+        }
+
+        /**
+         * Marks invalid positions, mates and stalemates, and the positions decided by captures alone. Returns the
+         * distances found, so that the job knows how far to go.
+         */
+        void initialize(int from, int to, IntList out) {
+            for (int entry = from; entry < to; entry++) {
+                int side = entry / job.size;
+                int index = entry % job.size;
+                if (!setUp(entry)) {
+                    job.setValue(side, index, Tablebase.INVALID);
+                    continue;
+                }
+                int count = generator.generate(position, moves);
+                int value = Tablebase.DRAW;
+                if (count == 0) {
+                    if (MoveGenerator.isInCheck(position)) {
+                        value = Tablebase.valueOfDistance(0);
+                    }
+                } else {
+                    int quickestWin = Integer.MAX_VALUE;
+                    int longestLoss = 0;
+                    boolean open = false;
+                    for (int i = 0; i < count; i++) {
+                        if (!MoveGenerator.isCapture(moves[i])) {
+                            open = true;
+                            continue;
+                        }
+                        position.makeMove(moves[i]);
+                        int reply = captureValue();
+                        position.unmakeMove();
+                        if (Tablebase.isLoss(reply)) {
+                            quickestWin = Math.min(quickestWin, Tablebase.distanceOf(reply) + 1);
+                        } else if (Tablebase.isWin(reply)) {
+                            longestLoss = Math.max(longestLoss, Tablebase.distanceOf(reply) + 1);
+                        } else {
+                            open = true;
+                        }
+                    }
+                    // A capture win may still be beaten by a quicker mate found later
+                    if (quickestWin != Integer.MAX_VALUE) {
+                        value = Tablebase.valueOfDistance(quickestWin);
+                    } else if (!open) {
+                        value = Tablebase.valueOfDistance(longestLoss);
+                    }
+                }
+                if (value != Tablebase.DRAW) {
+                    out.add(Tablebase.distanceOf(value));
+                }
+                job.setValue(side, index, value);
+                clear();
+            }
+        }
+
+        // Collects the undecided positions with a move into a position lost in n - 1 plies
+        void wins(int from, int to, int n, IntList out) {
+            int lost = Tablebase.valueOfDistance(n - 1);
+            for (int entry = from; entry < to; entry++) {
+                if (job.valueAt(entry / job.size, entry % job.size) == lost && setUp(entry)) {
+                    collectPredecessors(entry / job.size, out);
+                    clear();
+                }
+            }
+        }
+
+        // Collects the undecided positions with a move into a position won in n - 1 plies whose every move loses
+        void losses(int from, int to, int n, IntList out) {
+            int won = Tablebase.valueOfDistance(n - 1);
+            IntList candidates = new IntList();
+            for (int entry = from; entry < to; entry++) {
+                if (job.valueAt(entry / job.size, entry % job.size) == won && setUp(entry)) {
+                    collectPredecessors(entry / job.size, candidates);
+                    clear();
+                }
+            }
+            // A position is often reached from several won ones, but needs checking once
+            int[] sorted = candidates.toArray();
+            Arrays.sort(sorted);
+            for (int i = 0; i < sorted.length; i++) {
+                int candidate = sorted[i];
+                if (i > 0 && candidate == sorted[i - 1]) continue;
+                if (job.valueAt(candidate / job.size, candidate % job.size) == Tablebase.DRAW && setUp(candidate)) {
+                    int distance = lossDistance(n);
+                    clear();
+                    if (distance >= 0) {
+                        out.add(candidate);
+                        out.add(distance);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Adds the undecided positions from which the other side moved into the set up one without capturing.
+         * The pieces move the same way back and forth, so a piece came from any empty square it attacks.
+         * Positions where the mover could have taken the other king are {@link Tablebase#INVALID}, and are skipped
+         * with the decided ones.
+         */
+        private void collectPredecessors(int side, IntList out) {
+            int mover = 1 - side;
+            for (int i = 0; i < codes.length; i++) {
+                if (Position.colorOf(codes[i]) != mover) continue;
+                position.attacks(squares[i], targets);
+                for (int sq = Bitboard.next(targets, 0); sq >= 0; sq = Bitboard.next(targets, sq + 1)) {
+                    if (position.pieceAt(sq) != Position.NO_PIECE) continue;
+                    int index = indexAfter(i, sq);
+                    int value = job.valueAt(mover, index);
+                    if (value == Tablebase.DRAW || Tablebase.isWin(value)) {
+                        out.add(mover * job.size + index);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Checks whether every move of the current position leads to a position won for the other side, quiet moves
+         * within n - 1 plies.
+         *
+         * @return the distance of the loss, or -1 if the position is not lost yet.
+         */
+        private int lossDistance(int n) {
+            int side = position.getSideToMove();
+            int count = generator.generate(position, moves);
+            int longest = 0;
+            for (int i = 0; i < count; i++) {
+                int move = moves[i];
+                boolean quiet = !MoveGenerator.isCapture(move);
+                int reply;
+                if (quiet) {
+                    reply = job.valueAt(1 - side, indexAfter(slotOf(MoveGenerator.fromOf(move)),
+                            MoveGenerator.toOf(move)));
+                } else {
+                    position.makeMove(move);
+                    reply = captureValue();
+                    position.unmakeMove();
+                }
+                if (!Tablebase.isWin(reply) || quiet && Tablebase.distanceOf(reply) > n - 1) {
+                    return -1;
+                }
+                longest = Math.max(longest, Tablebase.distanceOf(reply) + 1);
+            }
+            return longest;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.out.println("Usage: TablebaseGenerator <directory> <name>... [--threads N]");
+            System.exit(2);
+        }
+        int threads = Runtime.getRuntime().availableProcessors();
+        List<String> names = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("--threads") && i + 1 < args.length) threads = Integer.parseInt(args[++i]);
+            else names.add(args[i]);
+        }
+        Path directory = Paths.get(args[0]);
+        Tablebases tables = Tablebases.load(directory);
+        TablebaseGenerator generator = new TablebaseGenerator(tables, threads);
+        for (String name : names) {
+            long begin = System.nanoTime();
+            Tablebase table = generator.generate(name);
+            System.out.printf("%s: %d positions in %.1f s%n", table.getName(), 2L * table.size(),
+                    (System.nanoTime() - begin) / 1e9);
+        }
+        for (String name : names) {
+            writeAll(tables, directory, Tablebase.parse(name));
+        }
+    }
+
+    // Writes a table and the smaller tables it needs, unless their files exist
+    private static void writeAll(Tablebases tables, Path directory, int[] codes) throws IOException {
+        Tablebase table = tables.get(Tablebase.nameOf(codes));
+        if (table == null) {
+            return;
+        }
+        Path file = directory.resolve(table.getName() + Tablebases.EXTENSION);
+        if (!file.toFile().exists()) {
+            table.write(file);
+            System.out.println("Wrote " + file);
+        }
+        for (int i = 0; i < codes.length; i++) {
+            if (Position.typeOf(codes[i]) != Position.KING) {
+                int[] captured = new int[codes.length - 1];
+                System.arraycopy(codes, 0, captured, 0, i);
+                System.arraycopy(codes, i + 1, captured, i, captured.length - i);
+                writeAll(tables, directory, captured);
+            }
+        }
+    }
+}
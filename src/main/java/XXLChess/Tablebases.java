@@ -0,0 +1,141 @@
+package XXLChess;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tablebases finds the {@link Tablebase} for a position by its pieces, in either colour, and picks the moves that
+ * keep the best result: the quickest mate when winning, the longest defence when losing, and a drawing move when
+ * drawn. Positions with only the two kings are drawn without a table. Tables may be added from several threads.
+ */
+public class Tablebases {
+    // The file name ending of table files
+    public static final String EXTENSION = ".tb";
+
+    // The value of a position no table covers
+    public static final int UNKNOWN = -1;
+
+    private final Map<String, Tablebase> tables = new ConcurrentHashMap<>();
+
+    /**
+     * Loads every table file in a directory.
+     *
+     * @param directory the directory.
+     * @return the tables.
+     * @throws IOException if a file cannot be read or is not a table.
+     */
+    public static Tablebases load(Path directory) throws IOException {
+        Tablebases tablebases = new Tablebases();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + EXTENSION)) {
+            for (Path file : files) {
+                tablebases.add(Tablebase.open(file));
+            }
+        }
+        return tablebases;
+    }
+
+    public void add(Tablebase table) {
+        tables.put(table.getName(), table);
+    }
+
+    /**
+     * Returns the table for some pieces.
+     *
+     * @param name the name of the pieces in either colour order, such as "KAvK" or "KvKA".
+     * @return the table, or null if there is none.
+     */
+    public Tablebase get(String name) {
+        Tablebase table = tables.get(name);
+        return table != null ? table : tables.get(Tablebase.flip(name));
+    }
+
+    public int size() {
+        return tables.size();
+    }
+
+    /**
+     * Looks up the value of a position.
+     *
+     * @param position the position.
+     * @return the value for the side to move, as stored in a {@link Tablebase}, or {@link #UNKNOWN} if no table
+     *         covers the position or a side may still castle.
+     */
+    public int probe(Position position) {
+        if (Bitboard.count(position.getOccupancy()) > Tablebase.MAX_PIECES
+                || mayCastle(position, Position.WHITE) || mayCastle(position, Position.BLACK)) {
+            return UNKNOWN;
+        }
+        String name = Tablebase.nameOf(position);
+        if (name.equals("KvK")) {
+            return Tablebase.DRAW;
+        }
+        Tablebase table = get(name);
+        return table == null ? UNKNOWN : table.valueOf(position);
+    }
+
+    // The tables leave castling out, so positions where it may still happen are not looked up. Like
+    // Position.castlingRook, an unmoved king may castle with any unmoved rook on its row, whatever its colour.
+    static boolean mayCastle(Position position, int color) {
+        int king = position.getKingSquare(color);
+        if (king < 0 || !position.isUnmoved(king)) {
+            return false;
+        }
+        int y = Position.yOf(king);
+        for (int x = 0; x < Board.BOARD_WIDTH; x++) {
+            int sq = Position.square(x, y);
+            int code = position.pieceAt(sq);
+            if (code != Position.NO_PIECE && Position.typeOf(code) == Position.ROOK && position.isUnmoved(sq)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Picks the move that keeps the result of a position: the quickest mate, the longest defence or a draw.
+     *
+     * @param position the position, which is left unchanged.
+     * @return the move as generated by {@link MoveGenerator}, or -1 if no table covers the position.
+     */
+    public int bestMove(Position position) {
+        int value = probe(position);
+        if (value == UNKNOWN || value == Tablebase.INVALID) {
+            return -1;
+        }
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int count = new MoveGenerator().generate(position, moves);
+        int best = -1;
+        int bestRank = Integer.MIN_VALUE;
+        for (int i = 0; i < count; i++) {
+            position.makeMove(moves[i]);
+            int reply = probe(position);
+            position.unmakeMove();
+            if (reply == UNKNOWN) {
+                continue;
+            }
+            int rank = rank(reply);
+            if (rank > bestRank) {
+                best = moves[i];
+                bestRank = rank;
+            }
+        }
+        return best;
+    }
+
+    // Ranks the value of the position after a move for the side that made it, higher being better
+    private static int rank(int reply) {
+        if (Tablebase.isLoss(reply)) {
+            // The opponent is mated: the sooner the better
+            return 2 * Tablebase.MAX_DISTANCE - Tablebase.distanceOf(reply);
+        }
+        if (Tablebase.isWin(reply)) {
+            // The opponent mates: the later the better
+            return Tablebase.distanceOf(reply) - 2 * Tablebase.MAX_DISTANCE;
+        }
+        return 0;
+    }
+}
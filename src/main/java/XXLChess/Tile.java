@@ -41,6 +41,11 @@ public class Tile {
         return y * CELLSIZE;
     }
 
+    // Gets the square index of the tile, y * BOARD_WIDTH + x, as used by Position and AttackTables
+    public int getSquare() {
+        return Position.square(x, y);
+    }
+
     public Piece getCurrentPiece() {
         return currentPiece;
     }
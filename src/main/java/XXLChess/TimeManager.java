@@ -0,0 +1,157 @@
+package XXLChess;
+
+/**
+ * TimeManager decides how long the search for one move may take, from the player's clock.
+ * <p>
+ * The remaining time is shared over the moves expected to be left, which are estimated from the material on the
+ * board, and most of the increment is spent as it comes in. Past the soft limit the search does not start another
+ * iteration; at the hard limit it stops in the middle of one. While the best move keeps changing between
+ * iterations the soft limit stretches, up to the hard limit, so that an unclear position gets more time. With only
+ * a few seconds left the manager panics: it spends little more than the increment, so that the clock never runs out.
+ * A manager is made for one search and is used by its main thread only, except for {@link #stop()}, which also
+ * stops a search that has not started yet.
+ */
+public class TimeManager {
+    // The fewest and most moves the remaining time is shared over, for a bare board and a full one
+    public static final int MIN_MOVES_TO_GO = 15;
+    public static final int MAX_MOVES_TO_GO = 40;
+
+    // The remaining time below which the manager panics
+    public static final long PANIC_MILLIS = 5000;
+
+    // Kept back on every move for the time between the end of the search and the move on the board
+    public static final long OVERHEAD_MILLIS = 50;
+
+    // The hard limit is at most this many times the soft limit, and at most this share of the remaining time
+    private static final int HARD_FACTOR = 4;
+    private static final int HARD_SHARE = 4;
+
+    // The material of both sides at the start of level1.txt, when the most moves are left
+    static final int OPENING_MATERIAL = 2 * (14 * Evaluator.VALUES[Position.PAWN]
+            + 2 * Evaluator.VALUES[Position.ROOK] + 2 * Evaluator.VALUES[Position.KNIGHT]
+            + 2 * Evaluator.VALUES[Position.BISHOP] + Evaluator.VALUES[Position.ARCHBISHOP]
+            + 2 * Evaluator.VALUES[Position.CAMEL] + 2 * Evaluator.VALUES[Position.GENERAL]
+            + Evaluator.VALUES[Position.AMAZON] + Evaluator.VALUES[Position.CHANCELLOR]);
+
+    private final long softMillis;
+    private final long hardMillis;
+    private final boolean panic;
+
+    // How often the best move changed lately, halved after every iteration
+    private double instability;
+
+    // Set by stop, possibly from another thread
+    private volatile boolean stopped;
+
+    /**
+     * Constructs a manager with given limits.
+     *
+     * @param softMillis the time after which no new iteration starts, unless the best move is unstable.
+     * @param hardMillis the time at which the search stops.
+     */
+    public TimeManager(long softMillis, long hardMillis) {
+        this(softMillis, hardMillis, false);
+    }
+
+    private TimeManager(long softMillis, long hardMillis, boolean panic) {
+        this.hardMillis = Math.max(1, hardMillis);
+        this.softMillis = Math.max(1, Math.min(softMillis, this.hardMillis));
+        this.panic = panic;
+    }
+
+    /**
+     * Makes a manager that searches for a fixed time, deepening for as long as it can.
+     *
+     * @param millis the time of the search.
+     * @return the manager.
+     */
+    public static TimeManager fixed(long millis) {
+        return new TimeManager(millis, millis);
+    }
+
+    /**
+     * Makes a manager for a player's next move.
+     *
+     * @param remainingMillis the player's remaining time.
+     * @param incrementMillis the time added to the player's clock after each of its moves.
+     * @param movesToGo       the number of moves the remaining time is shared over, see {@link #movesToGo(Position)}.
+     * @param maxMillis       the longest search allowed, whatever the clock.
+     * @return the manager.
+     */
+    public static TimeManager forMove(long remainingMillis, long incrementMillis, int movesToGo, long maxMillis) {
+        long usable = Math.max(1, remainingMillis - OVERHEAD_MILLIS);
+        boolean panic = remainingMillis < PANIC_MILLIS;
+        long soft;
+        long hard;
+        if (panic) {
+            // Live off the increment, and touch the rest of the clock as little as possible
+            soft = usable / (2 * movesToGo) + incrementMillis / 2;
+            hard = Math.min(2 * soft, usable / (2 * HARD_SHARE) + incrementMillis / 2);
+        } else {
+            soft = usable / movesToGo + incrementMillis * 3 / 4;
+            hard = Math.min(HARD_FACTOR * soft, usable / HARD_SHARE);
+        }
+        hard = Math.min(hard, maxMillis);
+        return new TimeManager(Math.min(soft, hard), hard, panic);
+    }
+
+    /**
+     * Estimates the number of moves left in the game for one side from the material on the board: the fewer
+     * pieces are left, the sooner the game tends to end.
+     *
+     * @param position the position.
+     * @return a number from {@link #MIN_MOVES_TO_GO} to {@link #MAX_MOVES_TO_GO}.
+     */
+    public static int movesToGo(Position position) {
+        long material = 0;
+        for (int code = 0; code < 2 * Position.PIECE_TYPES; code++) {
+            material += (long) Bitboard.count(position.getPieces(code)) * Evaluator.VALUES[Position.typeOf(code)];
+        }
+        double phase = Math.min(1.0, (double) material / OPENING_MATERIAL);
+        return MIN_MOVES_TO_GO + (int) Math.round((MAX_MOVES_TO_GO - MIN_MOVES_TO_GO) * phase);
+    }
+
+    public long getSoftMillis() {
+        return softMillis;
+    }
+
+    public long getHardMillis() {
+        return hardMillis;
+    }
+
+    public boolean isPanic() {
+        return panic;
+    }
+
+    /**
+     * Asks the search to return its best move so far. May be called from any thread, before the search starts.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    public boolean isStopped() {
+        return stopped;
+    }
+
+    /**
+     * Records a finished iteration and decides whether to start the next one.
+     *
+     * @param bestMoveChanged whether the iteration chose a different best move than the one before.
+     * @param elapsedMillis   the time the search has taken so far.
+     * @return true if the next iteration may start.
+     */
+    public boolean iterationFinished(boolean bestMoveChanged, long elapsedMillis) {
+        instability = instability / 2 + (bestMoveChanged ? 1 : 0);
+        return elapsedMillis < getExtendedMillis();
+    }
+
+    /**
+     * Returns the soft limit stretched by how often the best move changed lately, but at most the hard limit.
+     *
+     * @return the time after which no new iteration starts.
+     */
+    public long getExtendedMillis() {
+        return Math.min(hardMillis, (long) (softMillis * (1 + instability)));
+    }
+}
@@ -0,0 +1,17 @@
+package XXLChess;
+
+/**
+ * A source of monotonic time for the game clocks. The game reads the system clock; tests and simulations can
+ * use a {@link SimulatedTimeSource} instead, which only moves when told to.
+ */
+public interface TimeSource {
+    // The system's monotonic clock
+    TimeSource SYSTEM = System::nanoTime;
+
+    /**
+     * Returns the current time. Only differences between two readings are meaningful.
+     *
+     * @return the time in nanoseconds.
+     */
+    long nanoTime();
+}
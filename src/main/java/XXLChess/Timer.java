@@ -1,14 +1,18 @@
 package XXLChess;
 
 /**
- * The Timer class represents a countdown timer that counts down frame by frame.
+ * The Timer class represents a countdown timer, kept in nanoseconds so that no time is lost to rounding.
  * It implements the Tickable interface to allow its state to be updated on each "tick" of the game's main loop
- * and to check if the countdown has ended.
+ * and to check if the countdown has ended. A tick counts down one frame; {@link #elapse(double)} counts down
+ * the time that has actually passed, as measured by a {@link WallClock}.
  */
 public class Timer implements Tickable {
 
-    // The number of frames remaining for the countdown
-    private int remainingFrames;
+    // The duration of one frame in nanoseconds
+    private static final long FRAME_NANOS = 1000000000L / App.FPS;
+
+    // The time remaining for the countdown, in nanoseconds
+    private long remainingNanos;
 
     /**
      * Constructs a new Timer with a specified amount of time.
@@ -16,7 +20,7 @@ public class Timer implements Tickable {
      * @param remainingSecs The amount of time in seconds for the countdown
      */
     public Timer(float remainingSecs) {
-        this.remainingFrames = (int) (remainingSecs * App.FPS);
+        this.remainingNanos = toNanos(remainingSecs);
     }
 
     /**
@@ -25,7 +29,17 @@ public class Timer implements Tickable {
      * @return The remaining time in seconds
      */
     public float getRemainingSecs() {
-        return remainingFrames / App.FPS;
+        return remainingNanos / 1e9f;
+    }
+
+    /**
+     * Retrieves the remaining time in milliseconds, which is finer than {@link #getRemainingSecs()} for the
+     * bot's time management.
+     *
+     * @return The remaining time in milliseconds
+     */
+    public long getRemainingMillis() {
+        return remainingNanos / 1000000L;
     }
 
     /**
@@ -34,7 +48,7 @@ public class Timer implements Tickable {
      * @param remainingSecs The amount of time in seconds to add
      */
     public void addRemainingSecs(float remainingSecs) {
-        this.remainingFrames += (float) (remainingSecs * App.FPS);
+        this.remainingNanos += toNanos(remainingSecs);
     }
 
     /**
@@ -43,8 +57,28 @@ public class Timer implements Tickable {
      * @throws IllegalStateException if the countdown has already ended
      */
     public void tick() {
+        elapseNanos(FRAME_NANOS);
+    }
+
+    /**
+     * Decreases the remaining time by a number of seconds, whatever the frame rate.
+     *
+     * @param seconds The amount of time in seconds that has elapsed
+     * @throws IllegalStateException if the countdown has already ended
+     */
+    public void elapse(double seconds) {
+        elapseNanos(toNanos(seconds));
+    }
+
+    /**
+     * Decreases the remaining time by a number of nanoseconds.
+     *
+     * @param nanos The amount of time in nanoseconds that has elapsed
+     * @throws IllegalStateException if the countdown has already ended
+     */
+    public void elapseNanos(long nanos) {
         if (isEnded()) throw new IllegalStateException();
-        remainingFrames -= 1;
+        remainingNanos -= nanos;
     }
 
     /**
@@ -54,6 +88,10 @@ public class Timer implements Tickable {
      */
     @Override
     public boolean isEnded() {
-        return remainingFrames <= 0;
+        return remainingNanos <= 0;
+    }
+
+    private static long toNanos(double seconds) {
+        return Math.round(seconds * 1e9);
     }
 }
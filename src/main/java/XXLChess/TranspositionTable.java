@@ -0,0 +1,115 @@
+package XXLChess;
+
+/**
+ * TranspositionTable remembers search results by Zobrist key, so that a search can reuse the work of earlier
+ * iterations and earlier turns. It has a fixed number of slots, one entry each, and an entry is replaced
+ * by a deeper search of any position or by any search of a newer generation.
+ * Each entry is packed into a long; the key is stored XORed with it, so a torn write reads as a miss.
+ */
+public class TranspositionTable {
+    // The bound of a stored score: exact, at least (the search failed high) or at most (it failed low).
+    // An entry of 0 is empty, so no bound is 0.
+    public static final int EXACT = 1;
+    public static final int LOWER = 2;
+    public static final int UPPER = 3;
+
+    // Entry layout: move squares (16 bits, without the move flags), depth (8 bits), bound (2 bits), generation (8 bits), score (the top 30 bits)
+    private static final int DEPTH_SHIFT = 16;
+    private static final int BOUND_SHIFT = 24;
+    private static final int GENERATION_SHIFT = 26;
+    private static final int SCORE_SHIFT = 34;
+
+    private final long[] keys;
+    private final long[] entries;
+    private final int mask;
+    private int generation;
+
+    /**
+     * Constructs an empty table.
+     *
+     * @param sizeBits the base 2 logarithm of the number of slots.
+     */
+    public TranspositionTable(int sizeBits) {
+        keys = new long[1 << sizeBits];
+        entries = new long[1 << sizeBits];
+        mask = (1 << sizeBits) - 1;
+    }
+
+    /**
+     * Starts a new search. Entries of earlier searches are kept, but any new entry may replace them.
+     */
+    public void newSearch() {
+        generation = (generation + 1) & 0xFF;
+    }
+
+    /**
+     * Looks up a position.
+     *
+     * @param key the Zobrist key of the position.
+     * @return the entry, or 0 if the position is not in the table.
+     */
+    public long probe(long key) {
+        int slot = (int) key & mask;
+        long entry = entries[slot];
+        return (keys[slot] ^ entry) == key ? entry : 0;
+    }
+
+    /**
+     * Stores a search result, unless the slot holds a deeper result of the current search for another position.
+     *
+     * @param key   the Zobrist key of the position.
+     * @param move  the best move, or 0 if there is none; only its squares are kept.
+     * @param score the score.
+     * @param depth the depth searched, from 0 to 255.
+     * @param bound EXACT, LOWER or UPPER.
+     */
+    public void store(long key, int move, int score, int depth, int bound) {
+        int slot = (int) key & mask;
+        long old = entries[slot];
+        boolean sameKey = (keys[slot] ^ old) == key;
+        if (old != 0 && !sameKey && generationOf(old) == generation && depthOf(old) > depth) {
+            return;
+        }
+        // Keep the old best move when a shallower search of the same position found none
+        if (move == 0 && sameKey) {
+            move = moveOf(old);
+        }
+        long entry = (long) MoveGenerator.squaresOf(move)
+                | (long) depth << DEPTH_SHIFT
+                | (long) bound << BOUND_SHIFT
+                | (long) generation << GENERATION_SHIFT
+                | (long) score << SCORE_SHIFT;
+        entries[slot] = entry;
+        keys[slot] = key ^ entry;
+    }
+
+    /**
+     * Empties the table.
+     */
+    public void clear() {
+        for (int i = 0; i <= mask; i++) {
+            keys[i] = 0;
+            entries[i] = 0;
+        }
+    }
+
+    public static int moveOf(long entry) {
+        return (int) (entry & 0xFFFF);
+    }
+
+    public static int depthOf(long entry) {
+        return (int) (entry >>> DEPTH_SHIFT) & 0xFF;
+    }
+
+    public static int boundOf(long entry) {
+        return (int) (entry >>> BOUND_SHIFT) & 0x3;
+    }
+
+    public static int scoreOf(long entry) {
+        return (int) (entry >> SCORE_SHIFT);
+    }
+
+    private static int generationOf(long entry) {
+        return (int) (entry >>> GENERATION_SHIFT) & 0xFF;
+    }
+}
@@ -0,0 +1,80 @@
+package XXLChess;
+
+/**
+ * This class records everything that Board.makeMove changed, so that Board.unmakeMove can restore the previous state.
+ * It covers the captured piece, the moved piece's hasMovedBefore flag, the rook of a castling move and pawn promotion.
+ */
+public class UndoRecord {
+    private final Movement movement;  // The move that was made
+    private final boolean movedBefore;  // Whether the moved piece had moved before
+    private final Piece capturedPiece;  // The piece captured by the move, if any
+    private final int capturedIndex;  // The index of the captured piece in its owner's piece list
+    private final Movement castlingMovement;  // The rook movement of a castling move, if any
+    private final boolean rookMovedBefore;  // Whether the castling rook had moved before
+    private Piece promotedPiece;  // The piece that replaced a promoted pawn, if any
+    private int promotedIndex;  // The index of the promoted pawn in its owner's piece list
+
+    /**
+     * Constructs an undo record.
+     *
+     * @param movement         the move that was made.
+     * @param movedBefore      whether the moved piece had moved before.
+     * @param capturedPiece    the captured piece, or null.
+     * @param capturedIndex    the index of the captured piece in its owner's piece list, or -1.
+     * @param castlingMovement the rook movement of a castling move, or null.
+     * @param rookMovedBefore  whether the castling rook had moved before.
+     */
+    public UndoRecord(Movement movement, boolean movedBefore, Piece capturedPiece, int capturedIndex,
+                      Movement castlingMovement, boolean rookMovedBefore) {
+        this.movement = movement;
+        this.movedBefore = movedBefore;
+        this.capturedPiece = capturedPiece;
+        this.capturedIndex = capturedIndex;
+        this.castlingMovement = castlingMovement;
+        this.rookMovedBefore = rookMovedBefore;
+        this.promotedIndex = -1;
+    }
+
+    /**
+     * Records a pawn promotion.
+     *
+     * @param promotedPiece the piece that replaced the pawn.
+     * @param promotedIndex the index of the pawn in its owner's piece list, or -1.
+     */
+    public void setPromotion(Piece promotedPiece, int promotedIndex) {
+        this.promotedPiece = promotedPiece;
+        this.promotedIndex = promotedIndex;
+    }
+
+    public Movement getMovement() {
+        return movement;
+    }
+
+    public boolean getMovedBefore() {
+        return movedBefore;
+    }
+
+    public Piece getCapturedPiece() {
+        return capturedPiece;
+    }
+
+    public int getCapturedIndex() {
+        return capturedIndex;
+    }
+
+    public Movement getCastlingMovement() {
+        return castlingMovement;
+    }
+
+    public boolean getRookMovedBefore() {
+        return rookMovedBefore;
+    }
+
+    public Piece getPromotedPiece() {
+        return promotedPiece;
+    }
+
+    public int getPromotedIndex() {
+        return promotedIndex;
+    }
+}
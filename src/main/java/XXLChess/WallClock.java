@@ -0,0 +1,59 @@
+package XXLChess;
+
+/**
+ * The WallClock measures the time between two ticks of the game's main loop on a {@link TimeSource}, so that the
+ * player clocks are charged the time that has actually passed, however many frames it took. It implements the
+ * Tickable interface: each tick takes a reading, and the time since the previous reading is kept until the next
+ * tick. A wall clock never ends.
+ */
+public class WallClock implements Tickable {
+    private final TimeSource source;
+
+    // The reading of the previous tick, and whether there has been one since the last reset
+    private long lastNanos;
+    private boolean started;
+
+    // The time between the last two ticks in nanoseconds
+    private long elapsedNanos;
+
+    public WallClock(TimeSource source) {
+        this.source = source;
+    }
+
+    public TimeSource getSource() {
+        return source;
+    }
+
+    /**
+     * Takes a reading, and keeps the time since the previous one. The first tick after a reset measures nothing.
+     */
+    @Override
+    public void tick() {
+        long now = source.nanoTime();
+        elapsedNanos = started ? Math.max(0, now - lastNanos) : 0;
+        lastNanos = now;
+        started = true;
+    }
+
+    /**
+     * Forgets the previous reading, so that the time until the next tick is not measured.
+     */
+    public void reset() {
+        started = false;
+        elapsedNanos = 0;
+    }
+
+    /**
+     * Returns the time between the last two ticks.
+     *
+     * @return the time in nanoseconds.
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    @Override
+    public boolean isEnded() {
+        return false;
+    }
+}
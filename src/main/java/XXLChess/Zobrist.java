@@ -0,0 +1,56 @@
+package XXLChess;
+
+import java.util.Random;
+
+/**
+ * Zobrist keys for the 196 squares of the 14x14 board.
+ * The key of a position is the XOR of one random number per piece on its square, one per unmoved piece
+ * (castling and pawn double steps depend on it), and one more when black is to move.
+ * {@link Position} updates its key as pieces are put and removed, so making and unmaking a move keeps it current.
+ */
+public final class Zobrist {
+    // One key per piece code and square
+    static final long[][] PIECES = new long[2 * Position.PIECE_TYPES][Position.SQUARES];
+
+    // One key per square whose piece has not moved before
+    static final long[] UNMOVED = new long[Position.SQUARES];
+
+    // The key of black to move
+    static final long SIDE;
+
+    static {
+        // A fixed seed gives the same keys on every run, so the keys can be compared across games
+        Random random = new Random(0x7A0B217L);
+        for (long[] keys : PIECES) {
+            for (int sq = 0; sq < Position.SQUARES; sq++) {
+                keys[sq] = random.nextLong();
+            }
+        }
+        for (int sq = 0; sq < Position.SQUARES; sq++) {
+            UNMOVED[sq] = random.nextLong();
+        }
+        SIDE = random.nextLong();
+    }
+
+    private Zobrist() {
+    }
+
+    /**
+     * Computes the key of a position from scratch.
+     *
+     * @param position the position.
+     * @return the key, which equals {@link Position#getKey()} when the incremental updates are correct.
+     */
+    public static long compute(Position position) {
+        long key = position.getSideToMove() == Position.BLACK ? SIDE : 0;
+        for (int sq = 0; sq < Position.SQUARES; sq++) {
+            int code = position.pieceAt(sq);
+            if (code == Position.NO_PIECE) continue;
+            key ^= PIECES[code][sq];
+            if (position.isUnmoved(sq)) {
+                key ^= UNMOVED[sq];
+            }
+        }
+        return key;
+    }
+}
@@ -0,0 +1,162 @@
+package XXLChess;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+public class AlphaBetaStrategyTest {
+    private Game game;
+
+    @Test
+    public void testCapturesHangingPiece() {
+        Position position = TestGames.kingsOnly();
+        position.put(Position.square(3, 10), Position.pieceCode(Position.WHITE, Position.ROOK), false);
+        position.put(Position.square(3, 3), Position.pieceCode(Position.BLACK, Position.QUEEN), false);
+        String layout = position.toLayout();
+        int move = new AlphaBetaStrategy().search(position, 1000);
+        assertEquals(MoveGenerator.encode(Position.square(3, 10), Position.square(3, 3)), MoveGenerator.squaresOf(move));
+        assertEquals(layout, position.toLayout());
+    }
+
+    @Test
+    public void testFindsMateInOne() {
+        Position position = TestGames.kingsOnly();
+        position.put(Position.square(5, 1), Position.pieceCode(Position.WHITE, Position.ROOK), false);
+        position.put(Position.square(6, 5), Position.pieceCode(Position.WHITE, Position.ROOK), false);
+        int move = new AlphaBetaStrategy().search(position, 1000);
+        assertEquals(MoveGenerator.encode(Position.square(6, 5), Position.square(6, 0)), MoveGenerator.squaresOf(move));
+    }
+
+    @Test
+    public void testParallelSearch() {
+        Position position = TestGames.kingsOnly();
+        position.put(Position.square(5, 1), Position.pieceCode(Position.WHITE, Position.ROOK), false);
+        position.put(Position.square(6, 5), Position.pieceCode(Position.WHITE, Position.ROOK), false);
+        String layout = position.toLayout();
+        AlphaBetaStrategy strategy = new AlphaBetaStrategy(AlphaBetaStrategy.MAX_MILLIS, 4);
+        int move = strategy.search(position, 1000);
+        assertEquals(MoveGenerator.encode(Position.square(6, 5), Position.square(6, 0)), MoveGenerator.squaresOf(move));
+        assertEquals(layout, position.toLayout());
+        assertTrue(strategy.getNodes() > 0);
+    }
+
+    @Test
+    public void testStopOnlyStopsItsOwnSearch() {
+        Position position = TestGames.kingsOnly();
+        position.put(Position.square(3, 10), Position.pieceCode(Position.WHITE, Position.ROOK), false);
+        position.put(Position.square(3, 3), Position.pieceCode(Position.BLACK, Position.QUEEN), false);
+        AlphaBetaStrategy strategy = new AlphaBetaStrategy();
+
+        // A search stopped before it started quits at its first check of the clock
+        TimeManager stopped = TimeManager.fixed(1000);
+        stopped.stop();
+        strategy.search(position, stopped);
+        assertTrue(strategy.getNodes() <= 256, strategy.getNodes() + " nodes");
+
+        // but the next search is not stopped, nor is one that follows a stop sent while nothing was running
+        strategy.stop();
+        int move = strategy.search(position, 200);
+        assertTrue(strategy.getNodes() > 256, strategy.getNodes() + " nodes");
+        assertEquals(MoveGenerator.encode(Position.square(3, 10), Position.square(3, 3)), MoveGenerator.squaresOf(move));
+    }
+
+    @Test
+    public void testBotStaysWithinBudget() throws Exception {
+        game = TestGames.load("normal");
+        game.getBotAgent().setStrategy(new AlphaBetaStrategy(AlphaBetaStrategy.FRAME_MILLIS));
+        game.setCurrentPlayer(game.getBotAgent());
+        long start = System.nanoTime();
+        Movement m = game.getBotAgent().makeDecision(game);
+        long elapsedMillis = (System.nanoTime() - start) / 1000000;
+        // Movement has no hashCode, so the safe moves are compared with equals
+        assertTrue(game.getSafeMovements(game.getAllLegalMovements(game.getBotAgent())).stream().anyMatch(m::equals));
+        // Converting the board and checking the moves add a little on top of the search itself
+        assertTrue(elapsedMillis < AlphaBetaStrategy.FRAME_MILLIS + 50, elapsedMillis + " ms");
+    }
+
+    @Test
+    public void testBotThinksInBackground() throws Exception {
+        game = TestGames.load("normal");
+        Bot bot = game.getBotAgent();
+        game.setCurrentPlayer(bot);
+        long start = System.nanoTime();
+        bot.think(game);
+        // The search takes seconds, but starting it does not wait for it
+        assertFalse(bot.hasDecision());
+        assertTrue((System.nanoTime() - start) / 1000000 < 1000);
+        bot.stopThinking();
+        Movement m = bot.takeDecision(game);
+        assertTrue(bot.hasDecision());
+        assertTrue(game.getSafeMovements(game.getAllLegalMovements(bot)).stream().anyMatch(m::equals));
+    }
+
+    @Test
+    public void testFailedSearchFallsBackToDecision() throws Exception {
+        game = TestGames.load("normal");
+        Bot bot = game.getBotAgent();
+        game.setCurrentPlayer(bot);
+        AtomicBoolean decided = new AtomicBoolean();
+        bot.setStrategy(new SearchStrategy() {
+            public TimeManager budget(PlayerAgent agent, Position position) {
+                return TimeManager.fixed(1);
+            }
+
+            public int search(Position position, TimeManager time) {
+                throw new IllegalStateException("search failed");
+            }
+
+            public void stop() {
+            }
+
+            public void close() {
+            }
+
+            public Movement choose(Set<Movement> availableMovements) {
+                return null;
+            }
+
+            @Override
+            public Movement choose(Game ctx, PlayerAgent agent, Set<Movement> availableMovements) {
+                decided.set(true);
+                return availableMovements.iterator().next();
+            }
+        });
+        bot.think(game);
+        // The failure is reported, and the bot decides again rather than picking a random move
+        PrintStream err = System.err;
+        System.setErr(new PrintStream(new ByteArrayOutputStream()));
+        Movement m;
+        try {
+            m = bot.takeDecision(game);
+        } finally {
+            System.setErr(err);
+        }
+        assertTrue(decided.get());
+        assertTrue(game.getSafeMovements(bot).contains(m));
+    }
+
+    @Test
+    public void testGameKeepsTickingWhileBotThinks() throws Exception {
+        game = TestGames.load("normal");
+        Bot bot = game.getBotAgent();
+        game.setCurrentPlayer(bot);
+        game.tick();
+        assertEquals(Game.GameStatus.COMPUTER_TURN, game.getGameStatus());
+        assertFalse(bot.hasDecision());
+        bot.stopThinking();
+        while (game.getGameStatus() == Game.GameStatus.COMPUTER_TURN) {
+            // Ticks are paced like frames, so the bot's clock does not run out before a cold search can stop
+            Thread.sleep(1);
+            game.tick();
+        }
+        assertTrue(bot.hasDecision());
+        assertEquals(game.getHumanAgent(), game.getCurrentPlayer());
+    }
+}
@@ -0,0 +1,147 @@
+package XXLChess;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class BoardTest {
+    private Game game;
+    private Board board;
+
+    public void loadGame(String configFolder) throws Exception {
+        game = TestGames.load(configFolder);
+        board = game.getBoard();
+    }
+
+    // Describes everything that makeMove may change, so that it can be compared after unmakeMove
+    public String snapshot() {
+        StringBuilder sb = new StringBuilder(board.toPosition(Piece.Color.WHITE).toLayout());
+        for (int x = 0; x < Board.BOARD_WIDTH; x++) {
+            for (int y = 0; y < Board.BOARD_WIDTH; y++) {
+                Piece p = board.getPiece(x, y);
+                if (p != null) {
+                    sb.append(p.getHasMovedBefore() ? 'm' : '-');
+                    assertSame(board.getTile(x, y), p.getCurrentTile());
+                }
+            }
+        }
+        for (Piece.Color color : Piece.Color.values()) {
+            for (Piece p : board.getAgentByColor(color).getPieces()) {
+                sb.append(System.identityHashCode(p)).append(',');
+            }
+        }
+        return sb.toString();
+    }
+
+    public void assertEveryMoveIsReversible(PlayerAgent agent) {
+        String before = snapshot();
+        List<Movement> moves = new ArrayList<>(game.getAllLegalMovements(agent));
+        assertFalse(moves.isEmpty());
+        for (Movement m : moves) {
+            UndoRecord undo = board.makeMove(m);
+            assertSame(m.getSourcePiece().getColor(), m.getTargetTile().getCurrentPiece().getColor());
+            board.unmakeMove(undo);
+            assertEquals(before, snapshot());
+        }
+    }
+
+    @Test
+    public void testMakeUnmakeRestoresBoard() throws Exception {
+        String[] layouts = {"normal", "castling", "checkmate", "royal_defense", "pawn_promotion"};
+        for (String layout : layouts) {
+            loadGame(layout);
+            assertEveryMoveIsReversible(game.getHumanAgent());
+            assertEveryMoveIsReversible(game.getBotAgent());
+        }
+    }
+
+    // Checks that the incrementally updated attack map matches one built from scratch
+    public void assertAttackMapIsFresh() {
+        Board fresh = Board.fromPosition(board.toPosition(Piece.Color.WHITE),
+                board.getAgentByColor(Piece.Color.WHITE), board.getAgentByColor(Piece.Color.BLACK));
+        fresh.getAttackMap().rebuild();
+        for (int x = 0; x < Board.BOARD_WIDTH; x++) {
+            for (int y = 0; y < Board.BOARD_WIDTH; y++) {
+                Piece p = board.getPiece(x, y);
+                if (p != null) {
+                    assertEquals(p.computePossibleTargets(board), p.getPossibleTargets(), p.getPieceName() + " at " + x + "," + y);
+                }
+                for (Piece.Color color : Piece.Color.values()) {
+                    assertEquals(fresh.getAttackMap().getAttackerCount(fresh.getTile(x, y), color),
+                            board.getAttackMap().getAttackerCount(board.getTile(x, y), color), "attackers of " + x + "," + y);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testAttackMapStaysFresh() throws Exception {
+        String[] layouts = {"normal", "castling", "checkmate", "royal_defense", "pawn_promotion"};
+        for (String layout : layouts) {
+            loadGame(layout);
+            for (PlayerAgent agent : new PlayerAgent[]{game.getHumanAgent(), game.getBotAgent()}) {
+                for (Movement m : new ArrayList<>(game.getAllLegalMovements(agent))) {
+                    UndoRecord undo = board.makeMove(m);
+                    assertAttackMapIsFresh();
+                    board.unmakeMove(undo);
+                    assertAttackMapIsFresh();
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testCapture() throws Exception {
+        loadGame("royal_defense");
+        Piece rook = board.getPiece(1, 4);
+        Piece victim = board.getPiece(10, 4);
+        assertNotNull(victim);
+        int pieces = game.getHumanAgent().getPieces().size();
+        UndoRecord undo = board.makeMove(new Movement(rook, board.getTile(10, 4)));
+        assertSame(victim, undo.getCapturedPiece());
+        assertTrue(victim.isCaptured());
+        assertEquals(pieces - 1, game.getHumanAgent().getPieces().size());
+        board.unmakeMove(undo);
+        assertSame(victim, board.getPiece(10, 4));
+        assertEquals(pieces, game.getHumanAgent().getPieces().size());
+        assertFalse(rook.getHasMovedBefore());
+    }
+
+    @Test
+    public void testCastling() throws Exception {
+        loadGame("castling");
+        King king = game.getHumanAgent().getKing();
+        Piece rook = board.getPiece(0, 13);
+        UndoRecord undo = board.makeMove(new Movement(king, board.getTile(5, 13)));
+        assertNotNull(undo.getCastlingMovement());
+        assertSame(rook, board.getPiece(6, 13));
+        assertNull(board.getPiece(0, 13));
+        board.unmakeMove(undo);
+        assertSame(rook, board.getPiece(0, 13));
+        assertSame(king, board.getPiece(7, 13));
+        assertFalse(rook.getHasMovedBefore());
+        assertFalse(king.getHasMovedBefore());
+    }
+
+    @Test
+    public void testPromotion() throws Exception {
+        loadGame("pawn_promotion");
+        Piece pawn = board.getPiece(6, 8);
+        UndoRecord undo = board.makeMove(new Movement(pawn, board.getTile(6, 7)));
+        assertTrue(board.getPiece(6, 7) instanceof Queen);
+        assertTrue(game.getHumanAgent().getPieces().contains(board.getPiece(6, 7)));
+        assertFalse(game.getHumanAgent().getPieces().contains(pawn));
+        board.unmakeMove(undo);
+        assertSame(pawn, board.getPiece(6, 8));
+        assertNull(board.getPiece(6, 7));
+        assertTrue(game.getHumanAgent().getPieces().contains(pawn));
+    }
+}
@@ -0,0 +1,124 @@
+package XXLChess;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class DrawDetectorTest {
+    private Position position(int... squaresAndCodes) {
+        Position position = new Position();
+        for (int i = 0; i < squaresAndCodes.length; i += 2) {
+            position.put(squaresAndCodes[i], squaresAndCodes[i + 1], false);
+        }
+        position.setSideToMove(Position.WHITE);
+        return position;
+    }
+
+    // Kings in opposite corners and a rook each, so that no side lacks material
+    private Position rooks() {
+        return position(
+                Position.square(13, 13), Position.pieceCode(Position.WHITE, Position.KING),
+                Position.square(0, 0), Position.pieceCode(Position.BLACK, Position.KING),
+                Position.square(13, 7), Position.pieceCode(Position.WHITE, Position.ROOK),
+                Position.square(0, 7), Position.pieceCode(Position.BLACK, Position.ROOK));
+    }
+
+    private void play(Position position, DrawDetector draws, int from, int to) {
+        boolean progress = position.pieceAt(to) != Position.NO_PIECE
+                || Position.typeOf(position.pieceAt(from)) == Position.PAWN;
+        position.makeMove(MoveGenerator.encode(from, to));
+        draws.push(position.getKey(), progress);
+    }
+
+    @Test
+    public void testRepetition() {
+        Position position = rooks();
+        DrawDetector draws = new DrawDetector(position.getKey());
+        for (int round = 1; round < DrawDetector.REPETITIONS; round++) {
+            assertNull(draws.check(position));
+            // Both rooks step away and back
+            play(position, draws, Position.square(13, 7), Position.square(12, 7));
+            play(position, draws, Position.square(0, 7), Position.square(1, 7));
+            play(position, draws, Position.square(12, 7), Position.square(13, 7));
+            play(position, draws, Position.square(1, 7), Position.square(0, 7));
+            assertEquals(round + 1, draws.getRepetitions());
+        }
+        assertEquals(DrawDetector.Reason.REPETITION, draws.check(position));
+
+        // Taking the last move back takes the repetition back too
+        draws.pop();
+        position.unmakeMove();
+        assertNull(draws.check(position));
+    }
+
+    // A path of adjacent squares through rows 1 to 12, going back and forth from column x0 in steps of dx
+    private int[] snake(int x0, int dx, int length) {
+        int[] path = new int[length];
+        for (int i = 0; i < length; i++) {
+            int column = i / 12;
+            int row = column % 2 == 0 ? 1 + i % 12 : 12 - i % 12;
+            path[i] = Position.square(x0 + dx * column, row);
+        }
+        return path;
+    }
+
+    @Test
+    public void testNoProgress() {
+        Position position = rooks();
+        position.remove(Position.square(13, 7));
+        position.remove(Position.square(0, 7));
+        position.put(Position.square(13, 1), Position.pieceCode(Position.WHITE, Position.ROOK), false);
+        position.put(Position.square(0, 1), Position.pieceCode(Position.BLACK, Position.ROOK), false);
+        DrawDetector draws = new DrawDetector(position.getKey());
+        // The rooks walk on separate halves of the board, never repeating a position
+        int moves = DrawDetector.NO_PROGRESS_PLIES / 2;
+        int[] white = snake(13, -1, moves + 1);
+        int[] black = snake(0, 1, moves + 1);
+        for (int i = 0; i < moves; i++) {
+            assertNull(draws.check(position));
+            play(position, draws, white[i], white[i + 1]);
+            assertNull(draws.check(position));
+            play(position, draws, black[i], black[i + 1]);
+            assertEquals(1, draws.getRepetitions());
+        }
+        assertEquals(DrawDetector.NO_PROGRESS_PLIES, draws.getQuietPlies());
+        assertEquals(DrawDetector.Reason.NO_PROGRESS, draws.check(position));
+    }
+
+    @Test
+    public void testCaptureResetsCount() {
+        Position position = rooks();
+        position.put(Position.square(13, 3), Position.pieceCode(Position.BLACK, Position.PAWN), false);
+        DrawDetector draws = new DrawDetector(position.getKey());
+        play(position, draws, Position.square(13, 7), Position.square(13, 6));
+        play(position, draws, Position.square(0, 7), Position.square(0, 6));
+        assertEquals(2, draws.getQuietPlies());
+        play(position, draws, Position.square(13, 6), Position.square(13, 3));
+        assertEquals(0, draws.getQuietPlies());
+    }
+
+    @Test
+    public void testInsufficientMaterial() {
+        int whiteKing = Position.pieceCode(Position.WHITE, Position.KING);
+        int blackKing = Position.pieceCode(Position.BLACK, Position.KING);
+        Position kings = position(Position.square(13, 13), whiteKing, Position.square(0, 0), blackKing);
+        assertTrue(DrawDetector.isInsufficientMaterial(kings));
+        for (int type : new int[]{Position.KNIGHT, Position.BISHOP, Position.CAMEL}) {
+            Position minor = kings.copy();
+            minor.put(Position.square(6, 6), Position.pieceCode(Position.BLACK, type), false);
+            assertTrue(DrawDetector.isInsufficientMaterial(minor));
+            assertEquals(DrawDetector.Reason.INSUFFICIENT_MATERIAL, new DrawDetector(minor.getKey()).check(minor));
+            // Two minor pieces may still mate
+            minor.put(Position.square(7, 7), Position.pieceCode(Position.WHITE, type), false);
+            assertFalse(DrawDetector.isInsufficientMaterial(minor));
+        }
+        for (int type : new int[]{Position.PAWN, Position.ROOK, Position.GENERAL, Position.ARCHBISHOP}) {
+            Position major = kings.copy();
+            major.put(Position.square(6, 6), Position.pieceCode(Position.WHITE, type), false);
+            assertFalse(DrawDetector.isInsufficientMaterial(major));
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package XXLChess;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class EvaluatorTest {
+    private Game game;
+
+    @Test
+    public void testPieceValues() {
+        assertEquals(12000, Evaluator.VALUES[Position.AMAZON]);
+        assertEquals(3625, Evaluator.VALUES[Position.BISHOP]);
+        assertEquals(0, Evaluator.VALUES[Position.KING]);
+    }
+
+    @Test
+    public void testOpeningIsBalanced() throws Exception {
+        game = TestGames.load("normal");
+        assertEquals(0, Evaluator.evaluate(game.getPosition()));
+    }
+
+    @Test
+    public void testScoreFollowsMoves() throws Exception {
+        game = TestGames.load("castling");
+        Position position = game.getPosition();
+        int start = position.getScore();
+        assertEquals(Evaluator.computeScore(position), start);
+        MoveGenerator generator = new MoveGenerator();
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int[] replies = new int[MoveGenerator.MAX_MOVES];
+        int count = generator.generate(position, moves);
+        for (int i = 0; i < count; i++) {
+            position.makeMove(moves[i]);
+            assertEquals(Evaluator.computeScore(position), position.getScore());
+            int replyCount = generator.generate(position, replies);
+            for (int j = 0; j < replyCount; j++) {
+                position.makeMove(replies[j]);
+                assertEquals(Evaluator.computeScore(position), position.getScore());
+                position.unmakeMove();
+            }
+            position.unmakeMove();
+            assertEquals(start, position.getScore());
+        }
+    }
+
+    @Test
+    public void testPawnDirection() throws Exception {
+        game = TestGames.load("black_player");
+        Position position = game.getPosition();
+        position.setPawnDirection(Position.WHITE, -position.getPawnDirection(Position.WHITE));
+        assertEquals(Evaluator.computeScore(position), position.getScore());
+    }
+
+    @Test
+    public void testPieceSquares() {
+        int knight = Position.KNIGHT;
+        // Central squares are worth more than the corners, and advanced pawns more than pawns at home
+        assertTrue(Evaluator.pieceSquare(knight, Position.square(6, 6), -1)
+                > Evaluator.pieceSquare(knight, Position.square(0, 0), -1));
+        assertTrue(Evaluator.pieceSquare(Position.PAWN, Position.square(6, 8), -1)
+                > Evaluator.pieceSquare(Position.PAWN, Position.square(6, 12), -1));
+        // A side whose pawns move down the board sees the board mirrored
+        assertEquals(Evaluator.pieceSquare(Position.PAWN, Position.square(6, 10), -1),
+                Evaluator.pieceSquare(Position.PAWN, Position.square(6, 3), 1));
+    }
+
+    @Test
+    public void testKingSafety() {
+        Position position = new Position();
+        position.put(Position.square(7, 13), Position.pieceCode(Position.WHITE, Position.KING), false);
+        position.put(Position.square(0, 0), Position.pieceCode(Position.BLACK, Position.KING), false);
+        int bare = Evaluator.kingSafety(position, Position.WHITE);
+        position.put(Position.square(7, 12), Position.pieceCode(Position.WHITE, Position.PAWN), false);
+        int sheltered = Evaluator.kingSafety(position, Position.WHITE);
+        position.put(Position.square(8, 11), Position.pieceCode(Position.BLACK, Position.QUEEN), false);
+        int pressed = Evaluator.kingSafety(position, Position.WHITE);
+        assertTrue(sheltered > bare);
+        assertTrue(pressed < sheltered);
+    }
+
+    @Test
+    public void testMobility() {
+        // A rook in the middle of an empty board reaches every square of its row and column
+        Position position = TestGames.kingsOnly();
+        position.put(Position.square(6, 6), Position.pieceCode(Position.WHITE, Position.ROOK), false);
+        assertEquals(26 * 5, Evaluator.mobility(position, Position.WHITE));
+        // Kings and pawns do not count
+        assertEquals(0, Evaluator.mobility(position, Position.BLACK));
+
+        // An enemy piece stops the rook on its square, a friendly one before it
+        position.put(Position.square(6, 3), Position.pieceCode(Position.BLACK, Position.PAWN), false);
+        assertEquals(23 * 5, Evaluator.mobility(position, Position.WHITE));
+        position.remove(Position.square(6, 3));
+        position.put(Position.square(6, 3), Position.pieceCode(Position.WHITE, Position.PAWN), false);
+        assertEquals(22 * 5, Evaluator.mobility(position, Position.WHITE));
+
+        // The search sees it: the side with the free rook is better off
+        assertTrue(Evaluator.evaluate(position) > position.getScore()
+                + Evaluator.kingSafety(position, Position.WHITE) - Evaluator.kingSafety(position, Position.BLACK));
+    }
+}
@@ -0,0 +1,144 @@
+package XXLChess;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+public class GameEventBusTest {
+    // White to move can take the black rook with the queen, which also checks the black king
+    private Game captureWithCheck(boolean instant) throws Exception {
+        char[][] rows = new char[Board.BOARD_WIDTH][Board.BOARD_WIDTH];
+        for (char[] row : rows) {
+            Arrays.fill(row, ' ');
+        }
+        rows[0][13] = 'K';
+        rows[5][13] = 'R';
+        rows[13][5] = 'q';
+        rows[13][0] = 'k';
+        Path layout = Files.createTempFile("xxlchess", ".txt");
+        try {
+            StringBuilder sb = new StringBuilder();
+            for (char[] row : rows) {
+                sb.append(row).append('\n');
+            }
+            Files.write(layout, sb.toString().getBytes());
+            Game game = new Game(true, 60, 60, 0, 0, 1, 1);
+            game.setInstant(instant);
+            game.loadLevel(layout.toString());
+            return game;
+        } finally {
+            Files.delete(layout);
+        }
+    }
+
+    private Movement takeRook(Game game) {
+        Board board = game.getBoard();
+        return new Movement(board.getPiece(5, 13), board.getTile(13, 5));
+    }
+
+    @Test
+    public void testFiltering() {
+        GameEventBus bus = new GameEventBus();
+        assertFalse(bus.hasListeners(GameEvent.Type.MOVE.mask()));
+
+        List<GameEvent> moves = new ArrayList<>();
+        List<GameEvent> castles = new ArrayList<>();
+        GameEventListener castleListener = castles::add;
+        bus.subscribe(moves::add, GameEvent.Type.MOVE);
+        bus.subscribe(castleListener, GameEvent.Type.CASTLE, GameEvent.Type.MOVE);
+        assertTrue(bus.hasListeners(GameEvent.Type.CASTLE.mask()));
+        assertFalse(bus.hasListeners(GameEvent.Type.GAME_END.mask()));
+
+        // A castling move is handed once to each listener, however many of its types they want
+        int types = GameEvent.Type.MOVE.mask() | GameEvent.Type.CASTLE.mask();
+        GameEvent castle = GameEvent.move(null, types, null, null, null, null);
+        bus.publish(castle);
+        assertEquals(1, moves.size());
+        assertEquals(1, castles.size());
+        assertSame(castle, castles.get(0));
+
+        bus.publish(GameEvent.gameEnd(null, null));
+        assertEquals(1, moves.size());
+
+        bus.unsubscribe(castleListener);
+        assertFalse(bus.hasListeners(GameEvent.Type.CASTLE.mask()));
+        bus.publish(castle);
+        assertEquals(2, moves.size());
+        assertEquals(1, castles.size());
+    }
+
+    @Test
+    public void testAsyncDelivery() throws Exception {
+        GameEventBus bus = new GameEventBus();
+        CountDownLatch delivered = new CountDownLatch(1);
+        AtomicReference<Thread> thread = new AtomicReference<>();
+        bus.subscribeAsync(event -> {
+            thread.set(Thread.currentThread());
+            delivered.countDown();
+        }, GameEvent.Type.GAME_END);
+        bus.publish(GameEvent.gameEnd(null, null));
+        assertTrue(delivered.await(5, TimeUnit.SECONDS));
+        assertEquals("game-events", thread.get().getName());
+    }
+
+    @Test
+    public void testGamePublishesMove() throws Exception {
+        Game game = captureWithCheck(true);
+        List<GameEvent> events = new ArrayList<>();
+        game.getEventBus().subscribe(events::add, GameEvent.Type.MOVE, GameEvent.Type.GAME_END);
+        Piece rook = game.getBoard().getPiece(13, 5);
+        Movement m = takeRook(game);
+        game.movePiece(m);
+
+        assertEquals(1, events.size());
+        GameEvent event = events.get(0);
+        assertTrue(event.is(GameEvent.Type.CAPTURE));
+        assertTrue(event.is(GameEvent.Type.CHECK));
+        assertFalse(event.is(GameEvent.Type.CASTLE));
+        assertSame(m, event.getMove());
+        assertSame(rook, event.getCaptured());
+        assertEquals("white f1n9 capture check", GameEventLogger.describe(event));
+
+        // The end is published once, when the report is first set
+        game.setReport(new GameReport(game, GameReport.EndReason.PLAYER_RESIGNED));
+        game.setReport(new GameReport(game, GameReport.EndReason.PLAYER_RESIGNED));
+        assertEquals(2, events.size());
+        assertTrue(events.get(1).is(GameEvent.Type.GAME_END));
+        assertEquals("end PLAYER_RESIGNED", GameEventLogger.describe(events.get(1)));
+    }
+
+    @Test
+    public void testEffects() throws Exception {
+        // Without listeners, a game only applies the rules
+        Game headless = captureWithCheck(false);
+        headless.movePiece(takeRook(headless));
+        assertNull(headless.getAnimation());
+
+        // The effects animate the move, with the captured rook under the queen
+        Game game = captureWithCheck(false);
+        GameEffects.attach(game);
+        game.movePiece(takeRook(game));
+        assertNotNull(game.getAnimation());
+        assertNull(game.getRookAnimation());
+
+        // but not in instant mode
+        Game instant = captureWithCheck(true);
+        GameEffects.attach(instant);
+        instant.movePiece(takeRook(instant));
+        assertNull(instant.getAnimation());
+    }
+}
@@ -0,0 +1,157 @@
+package XXLChess;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+public class MoveGeneratorTest {
+    private Game game;
+    private Board board;
+
+    public void loadGame(String configFolder) throws Exception {
+        game = TestGames.load(configFolder);
+        board = game.getBoard();
+    }
+
+    // The legal moves of an agent, found by trying every pseudo-legal move on the board
+    public Set<Integer> legacyLegalMoves(PlayerAgent agent) {
+        game.setInCheck(game.detectInCheck(agent));
+        Set<Integer> moves = new HashSet<>();
+        for (Movement m : game.getAllLegalMovements(agent)) {
+            if (game.predictInCheck(agent, m) == null) {
+                moves.add(encode(m));
+            }
+        }
+        return moves;
+    }
+
+    public Set<Integer> generatedMoves(PlayerAgent agent) {
+        Position position = board.toPosition(agent.getColor());
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int count = new MoveGenerator().generate(position, moves);
+        Set<Integer> result = new HashSet<>();
+        for (int i = 0; i < count; i++) {
+            assertTrue(result.add(MoveGenerator.squaresOf(moves[i])), "duplicate move");
+        }
+        assertEquals(board.toPosition(agent.getColor()).toLayout(), position.toLayout());
+        return result;
+    }
+
+    public static int encode(Movement m) {
+        return MoveGenerator.encode(Position.square(m.getSourceTile().getX(), m.getSourceTile().getY()),
+                Position.square(m.getTargetX(), m.getTargetY()));
+    }
+
+    // Compares both generators on the current board, and on every board one move away
+    public void assertMatchesLegacy(PlayerAgent agent) {
+        assertEquals(legacyLegalMoves(agent), generatedMoves(agent));
+        for (Movement m : new ArrayList<>(game.getAllLegalMovements(agent))) {
+            UndoRecord undo = board.makeMove(m);
+            PlayerAgent opponent = agent.getOpponent();
+            if (!opponent.getKing().isCaptured()) {
+                assertEquals(legacyLegalMoves(opponent), generatedMoves(opponent), "after " + encode(m));
+            }
+            board.unmakeMove(undo);
+        }
+    }
+
+    @Test
+    public void testMatchesLegacyGeneration() throws Exception {
+        String[] layouts = {"normal", "castling", "checkmate", "royal_defense", "pawn_promotion", "black_player"};
+        for (String layout : layouts) {
+            loadGame(layout);
+            assertMatchesLegacy(game.getHumanAgent());
+            assertMatchesLegacy(game.getBotAgent());
+        }
+    }
+
+    @Test
+    public void testPositionMakeMoveMatchesBoard() throws Exception {
+        String[] layouts = {"normal", "castling", "royal_defense", "pawn_promotion"};
+        for (String layout : layouts) {
+            loadGame(layout);
+            for (PlayerAgent agent : new PlayerAgent[]{game.getHumanAgent(), game.getBotAgent()}) {
+                Position position = board.toPosition(agent.getColor());
+                String before = position.toLayout();
+                List<Movement> moves = new ArrayList<>(game.getAllLegalMovements(agent));
+                for (Movement m : moves) {
+                    position.makeMove(encode(m));
+                    UndoRecord undo = board.makeMove(m);
+                    assertEquals(board.toPosition(agent.getColor()).toLayout(), position.toLayout());
+                    board.unmakeMove(undo);
+                    position.unmakeMove();
+                    assertEquals(before, position.toLayout());
+                    assertEquals(0, position.getPly());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSolveIncident() throws Exception {
+        loadGame("royal_defense");
+        Human human = game.getHumanAgent();
+        InCheckIncident incident = game.detectInCheck(human);
+        Set<Integer> solutions = new HashSet<>();
+        for (Movement m : game.solveIncident(incident)) {
+            solutions.add(encode(m));
+        }
+        assertEquals(legacyLegalMoves(human), solutions);
+    }
+    @Test
+    public void testMoveFlags() throws Exception {
+        String[] layouts = {"normal", "castling", "pawn_promotion"};
+        for (String layout : layouts) {
+            loadGame(layout);
+            for (PlayerAgent agent : new PlayerAgent[]{game.getHumanAgent(), game.getBotAgent()}) {
+                Position position = board.toPosition(agent.getColor());
+                MoveList list = new MoveList();
+                new MoveGenerator().generate(position, list);
+                for (int i = 0; i < list.size(); i++) {
+                    int move = list.get(i);
+                    int from = MoveGenerator.fromOf(move);
+                    int to = MoveGenerator.toOf(move);
+                    assertEquals(position.pieceAt(to) != Position.NO_PIECE, MoveGenerator.isCapture(move));
+                    assertEquals(position.castlingRook(from, to) >= 0, MoveGenerator.isCastle(move));
+                    assertEquals(Position.typeOf(position.pieceAt(from)) == Position.PAWN
+                            && Position.yOf(to) == Board.PROMOTION_ROW, MoveGenerator.isPromotion(move));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testMoveList() throws Exception {
+        loadGame("normal");
+        Position position = board.toPosition(Piece.Color.WHITE);
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int count = new MoveGenerator().generate(position, moves);
+        MoveList list = new MoveList();
+        assertEquals(count, new MoveGenerator().generate(position, list));
+        for (int i = 0; i < count; i++) {
+            assertEquals(moves[i], list.get(i));
+        }
+        int last = list.get(count - 1);
+        list.moveToFront(MoveGenerator.squaresOf(last));
+        assertEquals(last, list.get(0));
+        assertEquals(moves[0], list.get(1));
+        assertTrue(list.contains(moves[0]));
+    }
+
+    @Test
+    public void testMovementsInHashSet() throws Exception {
+        loadGame("castling");
+        PlayerAgent agent = game.getHumanAgent();
+        Set<Movement> movements = game.getAllLegalMovements(agent);
+        for (Movement m : movements) {
+            // An equal movement made from the encoded move is found, not just the same object
+            assertTrue(movements.contains(board.toMovement(encode(m))));
+        }
+    }
+}
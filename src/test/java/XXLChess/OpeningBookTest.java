@@ -0,0 +1,128 @@
+package XXLChess;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class OpeningBookTest {
+    private Game game;
+
+    // Plays random moves from a position and returns them
+    private int[] randomGame(Position start, int plies, long seed) {
+        Random random = new Random(seed);
+        Position position = start.copy();
+        MoveGenerator generator = new MoveGenerator();
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int[] record = new int[plies];
+        for (int ply = 0; ply < plies; ply++) {
+            int count = generator.generate(position, moves);
+            record[ply] = moves[random.nextInt(count)];
+            position.makeMove(record[ply]);
+        }
+        return record;
+    }
+
+    @Test
+    public void testWeights() throws Exception {
+        Position start = Perft.loadGame("level1.txt", true).getPosition();
+        int[] won = randomGame(start, 6, 1);
+        int[] drawn = randomGame(start, 6, 2);
+        OpeningBook.Builder builder = new OpeningBook.Builder(4);
+        builder.addGame(start, won, Position.WHITE);
+        builder.addGame(start, won, Position.WHITE);
+        builder.addGame(start, drawn, SelfPlay.DRAW);
+        OpeningBook book = builder.build();
+
+        long key = start.getKey();
+        assertEquals(2 * OpeningBook.Builder.WIN_WEIGHT + (won[0] == drawn[0] ? OpeningBook.Builder.DRAW_WEIGHT : 0),
+                book.weightOf(key, won[0]));
+        // Black lost the won games, so its replies there only count from the draw
+        Position afterFirst = start.copy();
+        afterFirst.makeMove(won[0]);
+        int reply = book.weightOf(afterFirst.getKey(), won[1]);
+        assertTrue(reply == 0 || reply == OpeningBook.Builder.DRAW_WEIGHT);
+        // Only the first four plies go into the book
+        Position afterFour = start.copy();
+        for (int ply = 0; ply < 4; ply++) {
+            afterFour.makeMove(won[ply]);
+        }
+        assertEquals(0, book.weightOf(afterFour.getKey(), won[4]));
+
+        // Random opening plies are skipped, but the engine's replies to them count
+        OpeningBook.Builder skipping = new OpeningBook.Builder(4);
+        skipping.addGame(start, won, Position.WHITE, 2);
+        OpeningBook skipped = skipping.build();
+        assertEquals(0, skipped.weightOf(key, won[0]));
+        Position afterTwo = start.copy();
+        afterTwo.makeMove(won[0]);
+        afterTwo.makeMove(won[1]);
+        assertEquals(OpeningBook.Builder.WIN_WEIGHT, skipped.weightOf(afterTwo.getKey(), won[2]));
+    }
+
+    @Test
+    public void testFileRoundTrip() throws Exception {
+        Position start = Perft.loadGame("level1.txt", true).getPosition();
+        OpeningBook.Builder builder = new OpeningBook.Builder(OpeningBook.DEFAULT_PLIES);
+        for (long seed = 0; seed < 8; seed++) {
+            builder.addGame(start, randomGame(start, 10, seed), seed % 2 == 0 ? Position.WHITE : SelfPlay.DRAW);
+        }
+        Path path = Files.createTempFile("xxlchess", ".book");
+        try {
+            builder.write(path);
+            OpeningBook book = OpeningBook.open(path);
+            assertEquals(builder.build().size(), book.size());
+            assertTrue(book.size() > 0);
+
+            // Every probe of the starting position picks one of the book's moves, as a legal move
+            MoveList legal = new MoveList();
+            new MoveGenerator().generate(start, legal);
+            Random random = new Random(0);
+            for (int i = 0; i < 20; i++) {
+                int move = book.probe(start, random);
+                assertTrue(legal.contains(move));
+                assertTrue(book.weightOf(start.getKey(), move) > 0);
+            }
+            // A position the games never reached is not in the book
+            Position other = Perft.loadGame("testcases/castling/castling.txt", true).getPosition();
+            assertEquals(-1, book.probe(other, random));
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    public void testNotABook() {
+        ByteBuffer buffer = ByteBuffer.allocate(16);
+        buffer.putInt(0, 0x12345678);
+        assertThrows(IOException.class, () -> new OpeningBook(buffer));
+        buffer.putInt(0, OpeningBook.MAGIC).putInt(4, OpeningBook.VERSION).putInt(8, 1);
+        // The header promises one entry, but there is no room for it
+        assertThrows(IOException.class, () -> new OpeningBook(buffer));
+    }
+
+    @Test
+    public void testBotPlaysBookMove() throws Exception {
+        game = TestGames.load("normal");
+        Bot bot = game.getBotAgent();
+        game.setCurrentPlayer(bot);
+        Position position = game.getBoard().toPosition(bot.getColor());
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        new MoveGenerator().generate(position, moves);
+        OpeningBook.Builder builder = new OpeningBook.Builder(1);
+        builder.addGame(position, new int[]{moves[0]}, position.getSideToMove());
+        bot.setOpeningBook(builder.build());
+
+        // The book move is ready as soon as the bot starts thinking
+        bot.think(game);
+        assertTrue(bot.hasDecision());
+        assertEquals(game.getBoard().toMovement(moves[0]), bot.takeDecision(game));
+    }
+}
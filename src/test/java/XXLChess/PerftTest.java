@@ -0,0 +1,48 @@
+package XXLChess;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class PerftTest {
+    // Deeper suite entries take seconds each and are left to "Perft --suite"
+    private static final int MAX_TEST_DEPTH = 3;
+
+    @Test
+    public void testSuite() throws Exception {
+        Perft perft = new Perft();
+        for (String[] entry : Perft.loadSuite(Perft.SUITE_FILE)) {
+            int depth = Integer.parseInt(entry[2]);
+            if (depth > MAX_TEST_DEPTH) continue;
+            Game game = Perft.loadGame(entry[0], entry[1].equals("white"));
+            assertEquals(Long.parseLong(entry[3]), perft.count(game.getPosition(), depth),
+                    entry[0] + " depth " + depth);
+        }
+    }
+
+    @Test
+    public void testBoardMatchesPosition() throws Exception {
+        String[] layouts = {"testcases/castling/castling.txt", "testcases/pawn_promotion/level1.txt",
+                "testcases/royal_defense/level1.txt"};
+        for (String layout : layouts) {
+            Game game = Perft.loadGame(layout, true);
+            long expected = new Perft().count(game.getPosition(), 2);
+            assertEquals(expected, Perft.countOnBoard(game, game.getCurrentPlayer(), 2), layout);
+        }
+    }
+
+    @Test
+    public void testDivideAddsUp() throws Exception {
+        Game game = Perft.loadGame("testcases/castling/castling.txt", true);
+        Perft perft = new Perft();
+        List<String> lines = perft.divide(game.getPosition(), 2);
+        long total = 0;
+        for (String line : lines) {
+            total += Long.parseLong(line.substring(line.indexOf(": ") + 2));
+        }
+        assertEquals(perft.count(game.getPosition(), 2), total);
+        assertEquals(perft.count(game.getPosition(), 1), lines.size());
+    }
+}
@@ -0,0 +1,153 @@
+package XXLChess;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+public class PositionTest {
+    private Game game;
+
+    // Checks that the attacks of every piece match the targets computed on the Tile board
+    public void assertAttacksMatchBoard() {
+        Board board = game.getBoard();
+        Position position = game.getPosition();
+        long[] attacks = Bitboard.create();
+        for (int x = 0; x < Board.BOARD_WIDTH; x++) {
+            for (int y = 0; y < Board.BOARD_WIDTH; y++) {
+                Piece piece = board.getPiece(x, y);
+                if (piece == null) continue;
+                int color = Position.colorIndex(piece.getColor());
+                position.attacks(Position.square(x, y), attacks);
+                Set<Tile> expected = piece instanceof Pawn ? ((Pawn) piece).getAttackRange(board) : piece.getPossibleTargets();
+                Set<Tile> actual = new HashSet<>();
+                for (int sq = Bitboard.next(attacks, 0); sq >= 0; sq = Bitboard.next(attacks, sq + 1)) {
+                    int code = position.pieceAt(sq);
+                    boolean friendly = code != Position.NO_PIECE && Position.colorOf(code) == color;
+                    boolean capturable = code != Position.NO_PIECE && !friendly;
+                    if (piece instanceof Pawn ? capturable : !friendly) {
+                        actual.add(board.getTile(Position.xOf(sq), Position.yOf(sq)));
+                    }
+                }
+                assertEquals(expected, actual, piece.getPieceName() + " at " + x + "," + y);
+            }
+        }
+    }
+
+    @Test
+    public void testAttacksMatchBoard() throws Exception {
+        String[] layouts = {"normal", "castling", "checkmate", "royal_defense", "pawn_promotion", "black_player"};
+        for (String layout : layouts) {
+            game = TestGames.load(layout);
+            assertAttacksMatchBoard();
+        }
+    }
+
+    @Test
+    public void testKingAttacked() throws Exception {
+        game = TestGames.load("royal_defense");
+        Position position = game.getPosition();
+        int king = position.getKingSquare(Position.colorIndex(game.getHumanAgent().getColor()));
+        int enemy = Position.colorIndex(game.getBotAgent().getColor());
+        assertTrue(position.isAttacked(king, enemy));
+        assertEquals(game.detectThreats(game.getBoard(), game.getHumanAgent().getKing()).size(),
+                Bitboard.count(position.attackers(king, enemy, Bitboard.create())));
+        assertTrue(game.isThreatened(game.getBoard(), game.getHumanAgent().getKing()));
+        assertFalse(game.isThreatened(game.getBoard(), game.getBotAgent().getKing()));
+        assertTrue(game.detectThreats(game.getBoard(), game.getBotAgent().getKing()).isEmpty());
+    }
+
+    @Test
+    public void testOpeningPosition() throws Exception {
+        game = TestGames.load("normal");
+        Position position = game.getPosition();
+        assertEquals(56, Bitboard.count(position.getOccupancy()));
+        assertEquals(28, Bitboard.count(position.getColorOccupancy(Position.WHITE)));
+        assertEquals(14, Bitboard.count(position.getPieces(Position.pieceCode(Position.BLACK, Position.PAWN))));
+        assertEquals(Position.square(7, 13), position.getKingSquare(Position.WHITE));
+        assertEquals(-1, position.getPawnDirection(Position.WHITE));
+        assertEquals(1, position.getPawnDirection(Position.BLACK));
+        assertFalse(position.isAttacked(Position.square(7, 7), Position.BLACK));
+    }
+
+    @Test
+    public void testKeyFollowsMoves() throws Exception {
+        game = TestGames.load("castling");
+        Position position = game.getPosition();
+        long start = position.getKey();
+        assertEquals(Zobrist.compute(position), start);
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int count = new MoveGenerator().generate(position, moves);
+        Set<Long> keys = new HashSet<>();
+        for (int i = 0; i < count; i++) {
+            position.makeMove(moves[i]);
+            assertEquals(Zobrist.compute(position), position.getKey());
+            keys.add(position.getKey());
+            position.unmakeMove();
+            assertEquals(start, position.getKey());
+        }
+        // Every move leads to a different position
+        assertEquals(count, keys.size());
+    }
+
+    @Test
+    public void testCopy() throws Exception {
+        game = TestGames.load("castling");
+        Position position = game.getPosition();
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        new MoveGenerator().generate(position, moves);
+        position.makeMove(moves[0]);
+        Position copy = position.copy();
+        assertEquals(position.toLayout(), copy.toLayout());
+        assertEquals(position.getKey(), copy.getKey());
+        assertEquals(position.getSideToMove(), copy.getSideToMove());
+        // The copy is independent of the original
+        position.unmakeMove();
+        assertEquals(Zobrist.compute(copy), copy.getKey());
+        assertFalse(position.toLayout().equals(copy.toLayout()));
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        game = TestGames.load("castling");
+        Position position = game.getPosition();
+        Board converted = Board.fromPosition(position, game.getBoard().getAgentByColor(Piece.Color.WHITE),
+                game.getBoard().getAgentByColor(Piece.Color.BLACK));
+        Position again = converted.toPosition(Piece.Color.WHITE);
+        assertEquals(position.toLayout(), again.toLayout());
+        for (int sq = 0; sq < Position.SQUARES; sq++) {
+            assertEquals(position.isUnmoved(sq), again.isUnmoved(sq));
+        }
+    }
+
+    @Test
+    public void testAttackTables() {
+        // A knight in the corner has two moves, and in the centre eight
+        assertEquals(2, AttackTables.KNIGHT[Position.square(0, 0)].length);
+        assertEquals(8, AttackTables.KNIGHT[Position.square(6, 6)].length);
+        assertEquals(8, AttackTables.CAMEL[Position.square(6, 6)].length);
+        assertEquals(3, AttackTables.KING[Position.square(13, 13)].length);
+        for (int sq = 0; sq < Position.SQUARES; sq++) {
+            int orthogonal = 0;
+            for (int d = 0; d < 4; d++) {
+                orthogonal += AttackTables.RAYS[sq][d].length;
+            }
+            // A rook sees the rest of its row and column from any square
+            assertEquals(2 * (Board.BOARD_WIDTH - 1), orthogonal);
+            for (int d = 0; d < Position.DIRECTIONS.length; d++) {
+                int[] ray = AttackTables.RAYS[sq][d];
+                // Rays start next to the square and step one direction at a time
+                int previous = sq;
+                for (int to : ray) {
+                    assertEquals(Position.xOf(previous) + Position.DIRECTIONS[d][0], Position.xOf(to));
+                    assertEquals(Position.yOf(previous) + Position.DIRECTIONS[d][1], Position.yOf(to));
+                    previous = to;
+                }
+            }
+        }
+    }
+}
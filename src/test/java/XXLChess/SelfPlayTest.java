@@ -0,0 +1,46 @@
+package XXLChess;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class SelfPlayTest {
+    @Test
+    public void testMateInOne() {
+        Position position = new Position();
+        position.put(Position.square(13, 13), Position.pieceCode(Position.WHITE, Position.KING), false);
+        position.put(Position.square(0, 0), Position.pieceCode(Position.BLACK, Position.KING), false);
+        position.put(Position.square(5, 1), Position.pieceCode(Position.WHITE, Position.ROOK), false);
+        position.put(Position.square(6, 5), Position.pieceCode(Position.WHITE, Position.ROOK), false);
+        SelfPlay selfPlay = new SelfPlay(position, 10000, 0, 1);
+        selfPlay.setRandomPlies(0);
+        SelfPlay.Result result = selfPlay.playGame(0);
+        assertEquals(Position.WHITE, result.winner);
+        assertEquals(SelfPlay.Reason.CHECKMATE, result.reason);
+        assertEquals(1, result.plies);
+    }
+
+    @Test
+    public void testBatch() throws Exception {
+        Position start = Perft.loadGame("level1.txt", true).getPosition();
+        SelfPlay selfPlay = new SelfPlay(start, 1000, 0, 1);
+        selfPlay.setMaxPlies(12);
+        SelfPlay.Summary summary = selfPlay.run(4, 2);
+        assertEquals(4, summary.getGames());
+        assertEquals(4, summary.getWhiteWins() + summary.getDraws() + summary.getBlackWins());
+        assertTrue(summary.getAveragePlies() <= 12);
+        assertTrue(summary.getNodesPerSecond() > 0);
+    }
+
+    @Test
+    public void testFromConfig() throws Exception {
+        SelfPlay selfPlay = SelfPlay.fromConfig("testcases/normal/config.json", null);
+        // Random plies only, so the 180 second clocks of the config are not used
+        selfPlay.setMaxPlies(SelfPlay.DEFAULT_RANDOM_PLIES);
+        SelfPlay.Result result = selfPlay.playGame(0);
+        assertEquals(SelfPlay.DRAW, result.winner);
+        assertEquals(SelfPlay.Reason.MOVE_LIMIT, result.reason);
+        assertEquals(0, result.nodes);
+    }
+}
@@ -0,0 +1,90 @@
+package XXLChess;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class SoundPlayerTest {
+    // A backend that records what it is asked to play
+    private static class RecordingBackend implements AudioBackend {
+        final List<short[]> played = new ArrayList<>();
+        boolean closed;
+
+        @Override
+        public void play(short[] samples) {
+            played.add(samples);
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    @Test
+    public void testPlaysPreloadedSounds() {
+        RecordingBackend backend = new RecordingBackend();
+        SoundPlayer.setBackend(backend);
+        try {
+            SoundPlayer.preloadSoundEffect("move-self.wav");
+            int threads = Thread.activeCount();
+            SoundPlayer.playSound("move-self.wav");
+            SoundPlayer.playSound("move-self.wav");
+            SoundPlayer.playSound("missing.wav");
+            assertEquals(threads, Thread.activeCount());
+            assertEquals(2, backend.played.size());
+            // move-self.wav holds 7386 stereo frames
+            assertEquals(7386 * 2, backend.played.get(0).length);
+        } finally {
+            SoundPlayer.setBackend(AudioBackend.NONE);
+        }
+        assertTrue(backend.closed);
+        SoundPlayer.playSound("move-self.wav");
+    }
+
+    @Test
+    public void testMix() {
+        short[][] voices = new short[AudioMixer.MAX_VOICES][];
+        int[] positions = new int[AudioMixer.MAX_VOICES];
+        AudioMixer.addVoice(voices, positions, new short[]{1000, -1000, 30000, 30000});
+        AudioMixer.addVoice(voices, positions, new short[]{500, 500, 30000, -30000, 7, 7});
+        byte[] out = new byte[8];
+        assertEquals(1, AudioMixer.mix(voices, positions, out));
+        // The voices are summed, and clipped to 16 bits
+        assertEquals(1500, sample(out, 0));
+        assertEquals(-500, sample(out, 1));
+        assertEquals(Short.MAX_VALUE, sample(out, 2));
+        assertEquals(0, sample(out, 3));
+        // The shorter voice has ended; the rest of the next chunk is silent
+        assertNull(voices[0]);
+        assertEquals(0, AudioMixer.mix(voices, positions, out));
+        assertEquals(7, sample(out, 0));
+        assertEquals(7, sample(out, 1));
+        assertEquals(0, sample(out, 2));
+    }
+
+    @Test
+    public void testVoiceStealing() {
+        short[][] voices = new short[2][];
+        int[] positions = new int[2];
+        short[] longer = new short[100];
+        short[] shorter = new short[10];
+        AudioMixer.addVoice(voices, positions, longer);
+        AudioMixer.addVoice(voices, positions, shorter);
+        // With every voice busy, the one closest to its end makes way
+        short[] next = new short[50];
+        AudioMixer.addVoice(voices, positions, next);
+        assertEquals(longer, voices[0]);
+        assertEquals(next, voices[1]);
+        assertEquals(0, positions[1]);
+    }
+
+    private static int sample(byte[] out, int i) {
+        return (short) ((out[2 * i] & 0xff) | (out[2 * i + 1] << 8));
+    }
+}
@@ -0,0 +1,80 @@
+package XXLChess;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+public class StaticExchangeTest {
+    private final StaticExchange exchange = new StaticExchange();
+
+    private void put(Position position, int x, int y, int color, int type) {
+        position.put(Position.square(x, y), Position.pieceCode(color, type), false);
+    }
+
+    private int evaluate(Position position, int fromX, int fromY, int toX, int toY) {
+        String layout = position.toLayout();
+        long key = position.getKey();
+        int score = position.getScore();
+        int result = exchange.evaluate(position,
+                MoveGenerator.encode(Position.square(fromX, fromY), Position.square(toX, toY)));
+        // The position is restored afterwards
+        assertEquals(layout, position.toLayout());
+        assertEquals(key, position.getKey());
+        assertEquals(score, position.getScore());
+        return result;
+    }
+
+    @Test
+    public void testUndefendedPiece() {
+        Position position = TestGames.kingsOnly();
+        put(position, 3, 10, Position.WHITE, Position.ROOK);
+        put(position, 3, 3, Position.BLACK, Position.KNIGHT);
+        assertEquals(Evaluator.VALUES[Position.KNIGHT], evaluate(position, 3, 10, 3, 3));
+    }
+
+    @Test
+    public void testDefendedPawn() {
+        Position position = TestGames.kingsOnly();
+        put(position, 3, 10, Position.WHITE, Position.QUEEN);
+        put(position, 3, 5, Position.BLACK, Position.PAWN);
+        // Black pawns move down the board, so this pawn defends the square diagonally below it
+        put(position, 2, 4, Position.BLACK, Position.PAWN);
+        assertEquals(Evaluator.VALUES[Position.PAWN] - Evaluator.VALUES[Position.QUEEN],
+                evaluate(position, 3, 10, 3, 5));
+    }
+
+    @Test
+    public void testPieceBehindJoinsIn() {
+        Position position = TestGames.kingsOnly();
+        put(position, 3, 10, Position.WHITE, Position.ROOK);
+        put(position, 3, 11, Position.WHITE, Position.ROOK);
+        put(position, 3, 3, Position.BLACK, Position.KNIGHT);
+        put(position, 3, 1, Position.BLACK, Position.ROOK);
+        // RxN, RxR, RxR: white wins a knight for nothing
+        assertEquals(Evaluator.VALUES[Position.KNIGHT], evaluate(position, 3, 10, 3, 3));
+        // Without the second white rook, white gives up the rook for the knight
+        position.remove(Position.square(3, 11));
+        assertEquals(Evaluator.VALUES[Position.KNIGHT] - Evaluator.VALUES[Position.ROOK],
+                evaluate(position, 3, 10, 3, 3));
+    }
+
+    @Test
+    public void testKingRecapturesOnlyUndefended() {
+        Position position = TestGames.kingsOnly();
+        put(position, 1, 1, Position.BLACK, Position.KNIGHT);
+        put(position, 1, 8, Position.WHITE, Position.ROOK);
+        // The black king takes the rook back
+        assertEquals(Evaluator.VALUES[Position.KNIGHT] - Evaluator.VALUES[Position.ROOK],
+                evaluate(position, 1, 8, 1, 1));
+        // Unless another white rook defends the square
+        put(position, 1, 9, Position.WHITE, Position.ROOK);
+        assertEquals(Evaluator.VALUES[Position.KNIGHT], evaluate(position, 1, 8, 1, 1));
+    }
+
+    @Test
+    public void testQuietMove() {
+        Position position = TestGames.kingsOnly();
+        put(position, 3, 10, Position.WHITE, Position.ROOK);
+        assertEquals(0, evaluate(position, 3, 10, 3, 5));
+    }
+}
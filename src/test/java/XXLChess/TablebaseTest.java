@@ -0,0 +1,282 @@
+package XXLChess;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+public class TablebaseTest {
+    // Generated once: the king and amazon table takes a few seconds
+    private static Tablebases tables;
+
+    private static synchronized Tablebases kingAndAmazon() throws Exception {
+        if (tables == null) {
+            tables = new Tablebases();
+            new TablebaseGenerator(tables, 4).generate("KAvK");
+        }
+        return tables;
+    }
+
+    private Position position(int side, int... squaresAndCodes) {
+        Position position = new Position();
+        for (int i = 0; i < squaresAndCodes.length; i += 2) {
+            position.put(squaresAndCodes[i], squaresAndCodes[i + 1], false);
+        }
+        position.setSideToMove(side);
+        return position;
+    }
+
+    @Test
+    public void testGeometry() {
+        assertEquals(28, Tablebase.TRIANGLE.length);
+        for (int[] transform : Tablebase.TRANSFORMS) {
+            Set<Integer> images = new HashSet<>();
+            for (int sq = 0; sq < Position.SQUARES; sq++) {
+                images.add(transform[sq]);
+            }
+            assertEquals(Position.SQUARES, images.size());
+        }
+        // Every square can be moved into the triangle
+        for (int sq = 0; sq < Position.SQUARES; sq++) {
+            int[] squares = {sq, 0};
+            Tablebase.indexOf(new int[]{0, 1}, squares);
+            assertTrue(Tablebase.TRIANGLE_INDEX[squares[0]] >= 0);
+        }
+    }
+
+    @Test
+    public void testNames() {
+        int[] codes = Tablebase.parse("KEvKR");
+        assertEquals("KEvKR", Tablebase.nameOf(codes));
+        assertEquals("KRvKE", Tablebase.flip("KEvKR"));
+        assertEquals("KEvKR", Tablebase.canonicalName("KRvKE"));
+        assertEquals("KAvK", Tablebase.canonicalName("KvKA"));
+        assertThrows(IllegalArgumentException.class, () -> Tablebase.parse("KAvKP"));
+        assertThrows(IllegalArgumentException.class, () -> Tablebase.parse("KAAvKA"));
+        assertThrows(IllegalArgumentException.class, () -> Tablebase.parse("KA"));
+
+        Position position = position(Position.WHITE,
+                Position.square(0, 0), Position.pieceCode(Position.WHITE, Position.KING),
+                Position.square(5, 5), Position.pieceCode(Position.BLACK, Position.AMAZON),
+                Position.square(9, 9), Position.pieceCode(Position.BLACK, Position.KING));
+        assertEquals("KvKA", Tablebase.nameOf(position));
+    }
+
+    @Test
+    public void testKingAndAmazon() throws Exception {
+        Tablebases tables = kingAndAmazon();
+        int king = Position.pieceCode(Position.WHITE, Position.KING);
+        int amazon = Position.pieceCode(Position.WHITE, Position.AMAZON);
+        int blackKing = Position.pieceCode(Position.BLACK, Position.KING);
+
+        // The black king in the corner is mated by the amazon a knight's move away, guarded by the king
+        Position mated = position(Position.BLACK,
+                Position.square(0, 0), blackKing,
+                Position.square(2, 1), amazon,
+                Position.square(2, 2), king);
+        assertEquals(0, new MoveGenerator().generate(mated, new int[MoveGenerator.MAX_MOVES]));
+        assertTrue(Tablebase.isLoss(tables.probe(mated)));
+        assertEquals(0, Tablebase.distanceOf(tables.probe(mated)));
+
+        // With white to move, the amazon mates in one by moving there
+        Position mateInOne = position(Position.WHITE,
+                Position.square(0, 0), blackKing,
+                Position.square(5, 1), amazon,
+                Position.square(2, 2), king);
+        assertTrue(Tablebase.isWin(tables.probe(mateInOne)));
+        assertEquals(1, Tablebase.distanceOf(tables.probe(mateInOne)));
+        int move = tables.bestMove(mateInOne);
+        mateInOne.makeMove(move);
+        assertEquals(0, new MoveGenerator().generate(mateInOne, new int[MoveGenerator.MAX_MOVES]));
+        assertTrue(MoveGenerator.isInCheck(mateInOne));
+
+        // The black king takes an undefended amazon next to it, which leaves a draw
+        Position hanging = position(Position.BLACK,
+                Position.square(0, 0), blackKing,
+                Position.square(1, 1), amazon,
+                Position.square(13, 13), king);
+        assertEquals(Tablebase.DRAW, tables.probe(hanging));
+
+        // The same position with the colours swapped is found in the same table
+        Position swapped = position(Position.WHITE,
+                Position.square(0, 0), Tablebase.flipColor(blackKing),
+                Position.square(1, 1), Tablebase.flipColor(amazon),
+                Position.square(13, 13), Tablebase.flipColor(king));
+        assertEquals(Tablebase.DRAW, tables.probe(swapped));
+    }
+
+    @Test
+    public void testValuesAreConsistent() throws Exception {
+        Tablebases tables = kingAndAmazon();
+        Tablebase table = tables.get("KAvK");
+        int[] codes = table.getCodes();
+        int[] squares = new int[codes.length];
+        MoveGenerator generator = new MoveGenerator();
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        Random random = new Random(0);
+        int checked = 0;
+        while (checked < 300) {
+            // Rebuild the position of a random index and check its value against those of its moves
+            int side = random.nextInt(2);
+            Tablebase.squaresOf(random.nextInt(table.size()), squares);
+            Position position = new Position();
+            boolean valid = true;
+            for (int i = 0; i < codes.length && valid; i++) {
+                valid = position.pieceAt(squares[i]) == Position.NO_PIECE;
+                if (valid) position.put(squares[i], codes[i], false);
+            }
+            position.setSideToMove(side);
+            if (!valid || position.isAttacked(position.getKingSquare(1 - side), side)) continue;
+            int value = tables.probe(position);
+            int count = generator.generate(position, moves);
+            int bestWin = Integer.MAX_VALUE;
+            int longestLoss = -1;
+            boolean draw = false;
+            for (int i = 0; i < count; i++) {
+                position.makeMove(moves[i]);
+                int reply = tables.probe(position);
+                position.unmakeMove();
+                if (Tablebase.isLoss(reply)) bestWin = Math.min(bestWin, Tablebase.distanceOf(reply) + 1);
+                else if (Tablebase.isWin(reply)) longestLoss = Math.max(longestLoss, Tablebase.distanceOf(reply) + 1);
+                else draw = true;
+            }
+            if (bestWin != Integer.MAX_VALUE) {
+                assertEquals(Tablebase.valueOfDistance(bestWin), value);
+            } else if (count > 0 && !draw) {
+                assertEquals(Tablebase.valueOfDistance(longestLoss), value);
+            } else if (count == 0 && MoveGenerator.isInCheck(position)) {
+                assertEquals(Tablebase.valueOfDistance(0), value);
+            } else {
+                assertEquals(Tablebase.DRAW, value);
+            }
+            checked++;
+        }
+    }
+
+    @Test
+    public void testCastlingLeavesTables() {
+        // An unmoved king may castle with an unmoved rook of either colour on its row
+        Position position = new Position();
+        position.put(Position.square(6, 13), Position.pieceCode(Position.WHITE, Position.KING), true);
+        position.put(Position.square(13, 13), Position.pieceCode(Position.BLACK, Position.ROOK), true);
+        position.put(Position.square(6, 0), Position.pieceCode(Position.BLACK, Position.KING), false);
+        assertTrue(Tablebases.mayCastle(position, Position.WHITE));
+        assertFalse(Tablebases.mayCastle(position, Position.BLACK));
+        assertEquals(Tablebases.UNKNOWN, new Tablebases().probe(position));
+
+        // A moved rook, or one on another row, does not castle
+        position.remove(Position.square(13, 13));
+        position.put(Position.square(13, 13), Position.pieceCode(Position.BLACK, Position.ROOK), false);
+        assertFalse(Tablebases.mayCastle(position, Position.WHITE));
+        position.remove(Position.square(13, 13));
+        position.put(Position.square(13, 12), Position.pieceCode(Position.BLACK, Position.ROOK), true);
+        assertFalse(Tablebases.mayCastle(position, Position.WHITE));
+    }
+
+    @Test
+    public void testFileRoundTrip() throws Exception {
+        Tablebase table = kingAndAmazon().get("KAvK");
+        Path directory = Files.createTempDirectory("xxlchess");
+        Path file = directory.resolve("KAvK" + Tablebases.EXTENSION);
+        try {
+            table.write(file);
+            Tablebases loaded = Tablebases.load(directory);
+            assertEquals(1, loaded.size());
+            Tablebase read = loaded.get("KAvK");
+            Random random = new Random(1);
+            for (int i = 0; i < 1000; i++) {
+                int side = random.nextInt(2);
+                int index = random.nextInt(table.size());
+                assertEquals(table.valueAt(side, index), read.valueAt(side, index));
+            }
+        } finally {
+            Files.deleteIfExists(file);
+            Files.delete(directory);
+        }
+    }
+
+    @Test
+    public void testBotPlaysTablebaseMove() throws Exception {
+        // The bot is black, with king and amazon against the human's king
+        char[][] rows = new char[Board.BOARD_WIDTH][Board.BOARD_WIDTH];
+        for (char[] row : rows) {
+            Arrays.fill(row, ' ');
+        }
+        rows[0][0] = 'k';
+        rows[1][5] = 'A';
+        rows[2][2] = 'K';
+        Path layout = Files.createTempFile("xxlchess", ".txt");
+        try {
+            StringBuilder sb = new StringBuilder();
+            for (char[] row : rows) {
+                sb.append(row).append('\n');
+            }
+            Files.write(layout, sb.toString().getBytes());
+            Game game = Perft.loadGame(layout.toString(), true);
+            Bot bot = game.getBotAgent();
+            game.setCurrentPlayer(bot);
+            bot.setTablebases(kingAndAmazon());
+
+            // The bot mates at once, without searching
+            bot.think(game);
+            assertTrue(bot.hasDecision());
+            Movement m = bot.takeDecision(game);
+            Position position = game.getBoard().toPosition(bot.getColor());
+            position.makeMove(MoveGenerator.encode(
+                    Position.square(m.getSourceTile().getX(), m.getSourceTile().getY()),
+                    Position.square(m.getTargetX(), m.getTargetY())));
+            assertEquals(0, new MoveGenerator().generate(position, new int[MoveGenerator.MAX_MOVES]));
+            assertTrue(MoveGenerator.isInCheck(position));
+        } finally {
+            Files.delete(layout);
+        }
+    }
+
+    @Test
+    public void testBotInCheckPlaysTablebaseMove() throws Exception {
+        // The bot is black, with a lone king checked by the human's amazon along the top row
+        char[][] rows = new char[Board.BOARD_WIDTH][Board.BOARD_WIDTH];
+        for (char[] row : rows) {
+            Arrays.fill(row, ' ');
+        }
+        rows[0][0] = 'K';
+        rows[0][5] = 'a';
+        rows[13][13] = 'k';
+        Path layout = Files.createTempFile("xxlchess", ".txt");
+        try {
+            StringBuilder sb = new StringBuilder();
+            for (char[] row : rows) {
+                sb.append(row).append('\n');
+            }
+            Files.write(layout, sb.toString().getBytes());
+            Game game = new Game(true, 60, 60, 0, 0, 1, 1);
+            game.setInstant(true);
+            game.loadLevel(layout.toString());
+            Bot bot = game.getBotAgent();
+            game.setCurrentPlayer(bot);
+            bot.setTablebases(kingAndAmazon());
+            assertEquals(Game.PositionStatus.CHECK, game.getPositionStatus());
+
+            // The bot's turn goes through the tables like any other, and plays the longest defence
+            int expected = kingAndAmazon().bestMove(game.getBoard().toPosition(bot.getColor()));
+            assertTrue(expected >= 0);
+            game.tick();
+            assertEquals(game.getHumanAgent(), game.getCurrentPlayer());
+            assertEquals(MoveGenerator.fromOf(expected), Position.square(
+                    bot.getLastMoveSource().getX(), bot.getLastMoveSource().getY()));
+            assertEquals(MoveGenerator.toOf(expected), Position.square(
+                    bot.getLastMoveTarget().getX(), bot.getLastMoveTarget().getY()));
+        } finally {
+            Files.delete(layout);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package XXLChess;
+
+/**
+ * Games and positions shared by the tests. Games are loaded the way the app loads them.
+ */
+public class TestGames {
+    private TestGames() {
+    }
+
+    /**
+     * Loads the game of a test case, with the time controls, player colour, layout and engine of its config.
+     *
+     * @param configFolder the folder of the test case under testcases.
+     * @return the game.
+     * @throws Exception if the config or the layout cannot be loaded.
+     */
+    public static Game load(String configFolder) throws Exception {
+        App app = new App();
+        app.loadXXLChess("testcases/" + configFolder + "/config.json");
+        return app.getGame();
+    }
+
+    /**
+     * Makes a position with both kings in opposite corners, white to move, for tests to add pieces to.
+     *
+     * @return the position.
+     */
+    public static Position kingsOnly() {
+        Position position = new Position();
+        position.put(Position.square(13, 13), Position.pieceCode(Position.WHITE, Position.KING), false);
+        position.put(Position.square(0, 0), Position.pieceCode(Position.BLACK, Position.KING), false);
+        position.setSideToMove(Position.WHITE);
+        return position;
+    }
+}
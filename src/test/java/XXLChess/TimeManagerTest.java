@@ -0,0 +1,76 @@
+package XXLChess;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class TimeManagerTest {
+    @Test
+    public void testMovesToGo() throws Exception {
+        Position start = Perft.loadGame("level1.txt", true).getBoard().toPosition(Piece.Color.WHITE);
+        assertEquals(TimeManager.MAX_MOVES_TO_GO, TimeManager.movesToGo(start));
+
+        Position kings = new Position();
+        kings.put(Position.square(13, 13), Position.pieceCode(Position.WHITE, Position.KING), false);
+        kings.put(Position.square(0, 0), Position.pieceCode(Position.BLACK, Position.KING), false);
+        assertEquals(TimeManager.MIN_MOVES_TO_GO, TimeManager.movesToGo(kings));
+
+        kings.put(Position.square(5, 5), Position.pieceCode(Position.WHITE, Position.AMAZON), false);
+        int moves = TimeManager.movesToGo(kings);
+        assertTrue(moves > TimeManager.MIN_MOVES_TO_GO && moves < TimeManager.MAX_MOVES_TO_GO);
+    }
+
+    @Test
+    public void testLimits() {
+        TimeManager time = TimeManager.forMove(180000, 2000, 40, 60000);
+        assertFalse(time.isPanic());
+        assertEquals((180000 - TimeManager.OVERHEAD_MILLIS) / 40 + 1500, time.getSoftMillis());
+        assertTrue(time.getHardMillis() > time.getSoftMillis());
+        assertTrue(time.getHardMillis() <= 180000 / 4);
+
+        // Fewer moves to go leave more time for each
+        assertTrue(TimeManager.forMove(180000, 2000, 15, 60000).getSoftMillis() > time.getSoftMillis());
+
+        // The search limit caps both
+        TimeManager capped = TimeManager.forMove(180000, 2000, 15, 1000);
+        assertEquals(1000, capped.getHardMillis());
+        assertEquals(1000, capped.getSoftMillis());
+    }
+
+    @Test
+    public void testPanic() {
+        TimeManager time = TimeManager.forMove(3000, 2000, 40, 60000);
+        assertTrue(time.isPanic());
+        // Near zero the search stays well within the clock, and the increment keeps it going
+        assertTrue(time.getSoftMillis() >= 1000);
+        assertTrue(time.getHardMillis() < 3000 / 8 + 1000);
+        assertTrue(TimeManager.forMove(3000, 0, 40, 60000).getHardMillis() <= 3000 / 8);
+        assertTrue(TimeManager.forMove(0, 0, 40, 60000).getHardMillis() >= 1);
+    }
+
+    @Test
+    public void testInstability() {
+        TimeManager time = new TimeManager(100, 250);
+        assertEquals(100, time.getExtendedMillis());
+        // A stable best move stops the search at the soft limit
+        assertTrue(time.iterationFinished(false, 50));
+        assertFalse(time.iterationFinished(false, 150));
+
+        // A changing one lets it run on, but never past the hard limit
+        assertTrue(time.iterationFinished(true, 150));
+        assertTrue(time.iterationFinished(true, 240));
+        assertTrue(time.getExtendedMillis() > 240);
+        for (int i = 0; i < 10; i++) {
+            time.iterationFinished(true, 0);
+        }
+        assertEquals(250, time.getExtendedMillis());
+
+        // Once it settles, the extra time shrinks again
+        for (int i = 0; i < 10; i++) {
+            time.iterationFinished(false, 0);
+        }
+        assertEquals(100, time.getExtendedMillis());
+    }
+}
@@ -0,0 +1,39 @@
+package XXLChess;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+public class TranspositionTableTest {
+    @Test
+    public void testStoreAndProbe() {
+        TranspositionTable table = new TranspositionTable(4);
+        long key = 0x123456789ABCDEFL;
+        int move = MoveGenerator.encode(195, 194);
+        table.store(key, move, -999999, 7, TranspositionTable.LOWER);
+        long entry = table.probe(key);
+        assertEquals(move, TranspositionTable.moveOf(entry));
+        assertEquals(-999999, TranspositionTable.scoreOf(entry));
+        assertEquals(7, TranspositionTable.depthOf(entry));
+        assertEquals(TranspositionTable.LOWER, TranspositionTable.boundOf(entry));
+        // Another key in the same slot is a miss
+        assertEquals(0, table.probe(key + 16));
+        table.clear();
+        assertEquals(0, table.probe(key));
+    }
+
+    @Test
+    public void testReplaceByDepth() {
+        TranspositionTable table = new TranspositionTable(4);
+        table.store(1, 0, 10, 5, TranspositionTable.EXACT);
+        // A shallower result for another position in the same slot does not replace a deeper one
+        table.store(17, 0, 20, 3, TranspositionTable.EXACT);
+        assertEquals(0, table.probe(17));
+        assertEquals(10, TranspositionTable.scoreOf(table.probe(1)));
+        // In a new search it does
+        table.newSearch();
+        table.store(17, 0, 20, 3, TranspositionTable.EXACT);
+        assertEquals(20, TranspositionTable.scoreOf(table.probe(17)));
+        assertEquals(0, table.probe(1));
+    }
+}
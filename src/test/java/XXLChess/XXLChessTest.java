@@ -2,10 +2,15 @@ package XXLChess;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
-import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Set;
 
 import org.junit.jupiter.api.Test;
 
@@ -21,10 +26,7 @@ public class XXLChessTest {
         // initialize the game, board and agents
         app = new App();
         app.loadXXLChess("testcases/" + configFolder + "/config.json");
-        Class<App> appClass = App.class;
-        Field gameField = appClass.getDeclaredField("game");
-        gameField.setAccessible(true);
-        game = (Game) gameField.get(app);
+        game = app.getGame();
         human = game.getHumanAgent();
         bot = game.getBotAgent();
         bot.setStrategy(new TestCheckmateStrategy());
@@ -143,6 +145,126 @@ public class XXLChessTest {
         printBoard();
     }
 
+    @Test
+    public void testInstantMode() throws Exception {
+        loadApp("normal");
+        game.setInstant(true);
+        app.handlePieceSelection(game.getTile(7, 12));
+        app.handlePieceMovement(game.getTile(7, 10));
+        // The move takes effect without an animation
+        assertNull(game.getAnimation());
+        assertEquals(GameStatus.COMPUTER_TURN, game.getGameStatus());
+        // The bot replies on the very next tick
+        game.tick();
+        assertEquals(GameStatus.PLAYER_TURN, game.getGameStatus());
+        assertNull(game.getAnimation());
+    }
+
+    @Test
+    public void testInstantModeSkipsWarning() throws Exception {
+        loadApp("royal_defense");
+        game.setInstant(true);
+        game.tick();
+        // Selecting a piece that does not protect the king is still refused, but without a warning
+        app.handlePieceSelection(game.getTile(10, 4));
+        assertNull(human.getSelection());
+        assertNull(game.getWarning());
+        assertEquals(GameStatus.PLAYER_TURN, game.getGameStatus());
+        simulateMove(2, 7, 1, 7);
+        assertNull(game.getInCheck());
+    }
+
+    @Test
+    public void testInstantModeClock() throws Exception {
+        loadApp("normal");
+        game.setInstant(true);
+        int start = human.getRemainingTime();
+        game.tick(1.5);
+        assertEquals(start - 2, human.getRemainingTime());
+        // Fractions of a frame add up rather than being dropped
+        for (int i = 0; i < 120; i++) {
+            game.tick(0.5 / App.FPS);
+        }
+        assertEquals(start - 3, human.getRemainingTime());
+        assertEquals(GameStatus.PLAYER_TURN, game.getGameStatus());
+    }
+
+    @Test
+    public void testSimulatedClock() throws Exception {
+        loadApp("normal");
+        SimulatedTimeSource time = new SimulatedTimeSource();
+        game.setTimeSource(time);
+        int start = human.getRemainingTime();
+        long startMillis = human.getRemainingMillis();
+        game.tick();
+        // The clock is charged the time that passed, however many frames it took
+        time.advanceSecs(2.25);
+        game.tick();
+        assertEquals(start - 3, human.getRemainingTime());
+        for (int i = 0; i < 100; i++) {
+            game.tick();
+        }
+        assertEquals(startMillis - 2250, human.getRemainingMillis());
+        // Time can be fast-forwarded to the end of the clock
+        time.advanceSecs(start);
+        game.tick();
+        assertTrue(human.isEnded());
+        // The next tick reports the timeout
+        game.tick();
+        assertEquals(GameStatus.ENDED, game.getGameStatus());
+    }
+
+    @Test
+    public void testLegalMoveCache() throws Exception {
+        loadApp("normal");
+        Tile pawn = game.getTile(7, 12);
+        app.handlePieceSelection(pawn);
+        // Every frame looks up the same cached moves until the position changes
+        assertSame(game.getSafeMovements(human), game.getSafeMovements(human));
+        Set<Movement> before = game.getSafeMovements(human);
+        assertTrue(app.getTargetTiles().contains(game.getTile(7, 10)));
+        assertEquals(game.getSafeMovements(game.getAllLegalMovements(human)), before);
+        assertNull(game.getSafeMovement(human, pawn, game.getTile(7, 9)));
+        assertNotNull(game.getSafeMovement(human, pawn, game.getTile(7, 10)));
+
+        long version = game.getPositionVersion();
+        app.handlePieceMovement(game.getTile(7, 10));
+        assertTrue(game.getPositionVersion() > version);
+        assertNotSame(before, game.getSafeMovements(human));
+        assertTrue(game.getSafeTargets(human, pawn).isEmpty());
+        assertEquals(game.getSafeMovements(game.getAllLegalMovements(human)), game.getSafeMovements(human));
+    }
+
+    @Test
+    public void testStalemate() throws Exception {
+        // The white king in the corner has no moves, but is not in check
+        char[][] rows = new char[Board.BOARD_WIDTH][Board.BOARD_WIDTH];
+        for (char[] row : rows) {
+            Arrays.fill(row, ' ');
+        }
+        rows[0][0] = 'k';
+        rows[1][2] = 'Q';
+        rows[13][13] = 'K';
+        Path layout = Files.createTempFile("xxlchess", ".txt");
+        try {
+            StringBuilder sb = new StringBuilder();
+            for (char[] row : rows) {
+                sb.append(row).append('\n');
+            }
+            Files.write(layout, sb.toString().getBytes());
+            game = new Game(true, 60, 60, 0, 0, 1, 1);
+            game.setInstant(true);
+            game.loadLevel(layout.toString());
+            assertEquals(Game.PositionStatus.STALEMATE, game.getPositionStatus());
+            assertNull(game.getInCheck());
+            game.tick();
+            assertEquals(GameStatus.ENDED, game.getGameStatus());
+            assertEquals(GameReport.EndReason.STALEMATE, game.getReport().getReasonForEnd());
+        } finally {
+            Files.delete(layout);
+        }
+    }
+
     @Test
     public void testInvalidConfig() throws Exception {
         boolean flag = false;